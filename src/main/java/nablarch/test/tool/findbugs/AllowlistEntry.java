@@ -0,0 +1,155 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 設定ファイルに記述された使用許可APIの1エントリ。
+ * <p/>
+ * エントリが判定に使用された回数を保持し、使用されていないエントリの特定に用いる。
+ * <p/>
+ * 先頭に「!」を付与したエントリは使用禁止APIの指定となる。
+ * 1つのAPIに複数のエントリが合致する場合は、{@link #outranks(AllowlistEntry)}により最も詳細なエントリを優先する。
+ */
+final class AllowlistEntry {
+
+    /** 設定ファイルに記述された内容。 */
+    private final String rule;
+
+    /** 記述されていた設定ファイル。 */
+    private final File configFile;
+
+    /** 記述されていた行番号。 */
+    private final int lineNumber;
+
+    /** 使用禁止APIの指定か否か。 */
+    private final boolean deny;
+
+    /**
+     * 指定の詳細度。
+     * ワイルドカードを含まない指定は「.」区切りの階層数の2倍、
+     * ワイルドカードを含む指定はワイルドカードより前の階層数の2倍に1を加えた値とする。
+     */
+    private final int specificity;
+
+    /** 判定に使用された回数。 */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param rule       設定ファイルに記述された内容
+     * @param configFile 記述されていた設定ファイル
+     * @param lineNumber 記述されていた行番号
+     */
+    AllowlistEntry(String rule, File configFile, int lineNumber) {
+        this.rule = rule;
+        this.configFile = configFile;
+        this.lineNumber = lineNumber;
+        String trimmed = rule.trim();
+        this.deny = trimmed.startsWith("!");
+        this.specificity = specificityOf(deny ? trimmed.substring(1) : trimmed);
+    }
+
+    /**
+     * 指定の詳細度を算出する。
+     *
+     * @param pattern 「!」を除いた指定
+     * @return 指定の詳細度
+     */
+    private static int specificityOf(String pattern) {
+        int paren = pattern.indexOf('(');
+        String name = paren < 0 ? pattern : pattern.substring(0, paren);
+        String[] segments = name.split("\\.");
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].indexOf('*') >= 0) {
+                return i * 2 + 1;
+            }
+        }
+        return paren >= 0 && pattern.contains("(..)") ? segments.length * 2 - 1 : segments.length * 2;
+    }
+
+    /**
+     * このエントリが指定したエントリより優先されるか否かを判定する。
+     * より詳細なエントリを優先し、詳細度が同じ場合は使用禁止の指定を優先する。
+     *
+     * @param other 比較対象のエントリ（{@code null}可）
+     * @return このエントリが優先される場合、{@code true}
+     */
+    boolean outranks(AllowlistEntry other) {
+        if (other == null || specificity != other.specificity) {
+            return other == null || specificity > other.specificity;
+        }
+        return deny && !other.deny;
+    }
+
+    /**
+     * 使用禁止APIの指定か否かを判定する。
+     *
+     * @return 使用禁止APIの指定の場合、{@code true}
+     */
+    boolean isDeny() {
+        return deny;
+    }
+
+    /**
+     * 判定に使用されたことを記録する。
+     */
+    void hit() {
+        hits.increment();
+    }
+
+    /**
+     * 前回の実行までに判定に使用された回数を加える。
+     *
+     * @param count 前回の実行までに判定に使用された回数
+     */
+    void addHits(long count) {
+        hits.add(count);
+    }
+
+    /**
+     * 判定に使用された回数を取得する。
+     *
+     * @return 判定に使用された回数
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 設定ファイルに記述された内容を取得する。
+     *
+     * @return 設定ファイルに記述された内容
+     */
+    String getRule() {
+        return rule;
+    }
+
+    /**
+     * 記述されていた設定ファイルを取得する。
+     *
+     * @return 記述されていた設定ファイル
+     */
+    File getConfigFile() {
+        return configFile;
+    }
+
+    /**
+     * 記述されていた行番号を取得する。
+     *
+     * @return 記述されていた行番号
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * 記述箇所を「ファイルパス:行番号」の形式で取得する。
+     *
+     * @return 記述箇所
+     */
+    String getLocation() {
+        return configFile.getPath() + ":" + lineNumber;
+    }
+}
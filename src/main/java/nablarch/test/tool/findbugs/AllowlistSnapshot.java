@@ -0,0 +1,219 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 設定ファイルから読み込んだ公開情報と、その公開情報による判定結果のキャッシュをまとめて保持する。
+ * <p/>
+ * 読み込み完了後に{@code volatile}フィールド経由で公開され、以後公開情報は変更されない。
+ * 判定中に設定が再読み込みされた場合も、判定中のスレッドは読み込み前の公開情報で判定を完了できる。
+ * <p/>
+ * {@code java.lang.Object}のメソッドは呼び出される頻度が高いため、合致するエントリを読み込み時に求めておき、
+ * {@code java.lang.Object}や配列に対する呼出をクラス情報を読み込まずに判定できるようにする。
+ */
+final class AllowlistSnapshot {
+
+    /** {@code java.lang.Object}のクラス名。 */
+    private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+
+    /** 静的初期化子のメソッド名。 */
+    private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+    /** パッケージ・クラス・メソッド・コンストラクタ指定の公開情報。 */
+    private final ExactRuleIndex decisionTree;
+
+    /** ワイルドカードを含む公開情報。 */
+    private final GlobRuleSet globRules;
+
+    /** ワイルドカードを含む公開情報のエントリ。 */
+    private final List<AllowlistEntry> globEntries;
+
+    /** 他のエントリと重複している公開情報。 */
+    private final List<AllowlistEntry> duplicateEntries;
+
+    /** 呼び出されたAPIの公開可否の判定結果のキャッシュ。 */
+    private final VerdictCache verdictCache = new VerdictCache();
+
+    /** 例外クラスの内部形式のクラス名（パッケージ区切りは「/」）と、使用禁止か否かの判定結果の対応。 */
+    private final ConcurrentMap<String, Boolean> exceptionVerdicts = new ConcurrentHashMap<>();
+
+    /** 「メソッド名(パラメータのディスクリプタ)」と、{@code java.lang.Object}のメソッドに合致するエントリ（{@code null}可）の対応。 */
+    private final Map<String, AllowlistEntry> objectMemberDecisions = new HashMap<>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param decisionTree     パッケージ・クラス・メソッド・コンストラクタ指定の公開情報
+     * @param globRules        ワイルドカードを含む公開情報
+     * @param globEntries      ワイルドカードを含む公開情報のエントリ
+     * @param duplicateEntries 他のエントリと重複している公開情報
+     */
+    AllowlistSnapshot(ExactRuleIndex decisionTree, GlobRuleSet globRules,
+                      List<AllowlistEntry> globEntries, List<AllowlistEntry> duplicateEntries) {
+        this.decisionTree = decisionTree;
+        this.globRules = globRules;
+        this.globEntries = Collections.unmodifiableList(new ArrayList<>(globEntries));
+        this.duplicateEntries = Collections.unmodifiableList(new ArrayList<>(duplicateEntries));
+        for (String method : ObjectMethods.METHODS) {
+            String methodName = method.substring(0, method.indexOf('('));
+            String methodSig = method.substring(method.indexOf('('));
+            objectMemberDecisions.put(method,
+                    decideMember(PublishedApisInfo.getCalleeApi(OBJECT_CLASS_NAME, methodName, methodSig + "V")));
+        }
+    }
+
+    /**
+     * 同じ公開情報を持ち、判定結果のキャッシュが空の公開情報を作成する。
+     *
+     * @return 判定結果のキャッシュが空の公開情報
+     */
+    AllowlistSnapshot withEmptyCache() {
+        return new AllowlistSnapshot(decisionTree, globRules, globEntries, duplicateEntries);
+    }
+
+    /**
+     * 呼び出されたAPIに合致する最も詳細なエントリを取得する。
+     *
+     * @param calleeApi Javaファイルフォーマットにて記述された被呼出API
+     * @return 合致したエントリ。合致しない場合は{@code null}
+     */
+    AllowlistEntry decideMember(String calleeApi) {
+        AllowlistEntry decision = decisionTree.decideMember(calleeApi);
+        if (!globRules.isEmpty()) {
+            decision = mostSpecific(decision, globRules.matchMember(calleeApi));
+            decision = mostSpecific(decision, globRules.matchPackageOrClass(calleeApi));
+        }
+        return decision;
+    }
+
+    /**
+     * {@code java.lang.Object}に定義されているメソッドか否かを判定する。
+     *
+     * @param methodName メソッド名
+     * @param methodSig  「)」までのシグネチャ（パッケージ区切りは「/」）
+     * @return {@code java.lang.Object}に定義されている場合、{@code true}
+     */
+    boolean isObjectMember(String methodName, String methodSig) {
+        return objectMemberDecisions.containsKey(methodName + methodSig);
+    }
+
+    /**
+     * {@code java.lang.Object}に定義されているメソッドに合致する最も詳細なエントリを取得する。
+     * 読み込み時に求めたエントリを返却する。
+     *
+     * @param methodName メソッド名
+     * @param methodSig  「)」までのシグネチャ（パッケージ区切りは「/」）
+     * @return 合致したエントリ。合致しない場合や、{@code java.lang.Object}に定義されていない場合は{@code null}
+     */
+    AllowlistEntry decideObjectMember(String methodName, String methodSig) {
+        return objectMemberDecisions.get(methodName + methodSig);
+    }
+
+    /**
+     * パッケージ名またはクラス名に合致する最も詳細なエントリを取得する。
+     *
+     * @param name パッケージ名またはクラス名
+     * @return 合致したエントリ。合致しない場合は{@code null}
+     */
+    AllowlistEntry decidePackageOrClass(String name) {
+        AllowlistEntry decision = decisionTree.decidePackageOrClass(name);
+        if (!globRules.isEmpty()) {
+            decision = mostSpecific(decision, globRules.matchPackageOrClass(name));
+        }
+        return decision;
+    }
+
+    /**
+     * 判定結果のキャッシュを取得する。
+     *
+     * @return 判定結果のキャッシュ
+     */
+    VerdictCache getVerdictCache() {
+        return verdictCache;
+    }
+
+    /**
+     * 例外クラスの使用禁止判定の結果のキャッシュを取得する。
+     *
+     * @return 例外クラスの内部形式のクラス名と、使用禁止か否かの判定結果の対応
+     */
+    ConcurrentMap<String, Boolean> getExceptionVerdicts() {
+        return exceptionVerdicts;
+    }
+
+    /**
+     * 公開情報の使用状況のレポートを作成する。
+     *
+     * @return 公開情報の使用状況のレポート
+     */
+    AllowlistUsageReport createUsageReport() {
+        return new AllowlistUsageReport(getEntries(), duplicateEntries);
+    }
+
+    /**
+     * 判定に使用されるエントリを取得する。
+     *
+     * @return 判定に使用されるエントリ
+     */
+    List<AllowlistEntry> getEntries() {
+        List<AllowlistEntry> entries = decisionTree.getEntries();
+        entries.addAll(globEntries);
+        return entries;
+    }
+
+    /**
+     * 2つのエントリのうち、優先されるエントリを取得する。
+     *
+     * @param entry 比較対象のエントリ（{@code null}可）
+     * @param other 比較対象のエントリ（{@code null}可）
+     * @return 優先されるエントリ。いずれも{@code null}の場合は{@code null}
+     */
+    private static AllowlistEntry mostSpecific(AllowlistEntry entry, AllowlistEntry other) {
+        return other != null && other.outranks(entry) ? other : entry;
+    }
+
+    /**
+     * 解析対象のJDKの{@code java.lang.Object}に定義されているメソッドを保持する。
+     * <p/>
+     * 最初に参照された時点で一度だけクラス情報を読み込む。
+     */
+    private static final class ObjectMethods {
+
+        /** privateでないメソッドの「メソッド名(パラメータのディスクリプタ)」。 */
+        private static final List<String> METHODS = readMethods();
+
+        /**
+         * コンストラクタ。
+         */
+        private ObjectMethods() {
+        }
+
+        /**
+         * {@code java.lang.Object}のクラス情報から、privateでないメソッドを読み込む。
+         * 静的初期化子は呼び出されることがないため除外する。
+         *
+         * @return 「メソッド名(パラメータのディスクリプタ)」のリスト
+         */
+        private static List<String> readMethods() {
+            ClassSummary objectClass;
+            try {
+                objectClass = ClassRepository.lookup(OBJECT_CLASS_NAME);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Couldn't find JavaClass. ClassName=[" + OBJECT_CLASS_NAME + "]", e);
+            }
+            List<String> methods = new ArrayList<>();
+            for (String method : objectClass.getNonPrivateMethods()) {
+                if (!method.startsWith(STATIC_INITIALIZER_NAME + "(")) {
+                    methods.add(method);
+                }
+            }
+            return Collections.unmodifiableList(methods);
+        }
+    }
+}
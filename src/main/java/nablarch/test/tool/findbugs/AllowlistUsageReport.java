@@ -0,0 +1,100 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 使用許可APIの設定のうち、判定に一度も使用されなかったエントリを出力する。
+ * <p/>
+ * システムプロパティ{@code nablarch-findbugs-unused-report}に出力先ファイルのパスを指定した場合、
+ * 解析終了時に出力する。出力されたエントリは設定ファイルから削除しても判定結果に影響しない候補となる。
+ * <p/>
+ * 判定結果はキャッシュされるため、使用回数は同一APIに対する初回の判定時のみ計上される。
+ * 前回の実行で保存した判定結果（{@link WarmStartSnapshot}）を読み込んだ場合は、保存時の使用回数を引き継ぐ。
+ */
+final class AllowlistUsageReport {
+
+    /** 未使用のエントリ。 */
+    private final List<AllowlistEntry> unusedEntries = new ArrayList<>();
+
+    /** 他のエントリと重複しているエントリ。 */
+    private final List<AllowlistEntry> duplicateEntries;
+
+    /** エントリの総数。 */
+    private int totalEntries;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param entries          判定に使用されるエントリ
+     * @param duplicateEntries 他のエントリと重複しているエントリ
+     */
+    AllowlistUsageReport(Collection<AllowlistEntry> entries, List<AllowlistEntry> duplicateEntries) {
+        for (AllowlistEntry entry : entries) {
+            totalEntries++;
+            if (entry.getHits() == 0) {
+                unusedEntries.add(entry);
+            }
+        }
+        this.duplicateEntries = duplicateEntries;
+        totalEntries += duplicateEntries.size();
+    }
+
+    /**
+     * 出力先が指定されている場合、レポートをファイルに出力する。
+     */
+    static void writeIfEnabled() {
+        String path = System.getProperty("nablarch-findbugs-unused-report");
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        File outputFile = new File(path);
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+            PublishedApisInfo.getUsageReport().write(writer);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write unused allowlist report. Path=[" + outputFile + "]", e);
+        }
+    }
+
+    /**
+     * レポートを出力する。
+     *
+     * @param writer 出力先
+     * @throws IOException 出力に失敗した場合
+     */
+    void write(Writer writer) throws IOException {
+        writer.write("# unused entries: " + unusedEntries.size() + " / " + totalEntries + "\n");
+        for (AllowlistEntry entry : unusedEntries) {
+            writer.write(entry.getLocation() + "\t" + entry.getRule() + "\n");
+        }
+        writer.write("# duplicate entries: " + duplicateEntries.size() + " / " + totalEntries + "\n");
+        for (AllowlistEntry entry : duplicateEntries) {
+            writer.write(entry.getLocation() + "\t" + entry.getRule() + "\n");
+        }
+    }
+
+    /**
+     * 未使用のエントリを取得する。
+     *
+     * @return 未使用のエントリ
+     */
+    List<AllowlistEntry> getUnusedEntries() {
+        return unusedEntries;
+    }
+
+    /**
+     * 他のエントリと重複しているエントリを取得する。
+     *
+     * @return 重複しているエントリ
+     */
+    List<AllowlistEntry> getDuplicateEntries() {
+        return duplicateEntries;
+    }
+}
@@ -0,0 +1,261 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * ワイルドカードを含まない使用許可・使用禁止APIの設定を、パッケージ→クラス→メンバの木構造にまとめて判定する。
+ * <p/>
+ * 各ノードは「.」区切りの1階層に対応し、パッケージ・クラス指定のエントリを保持する。
+ * クラスに対応するノードは、メソッド・コンストラクタ指定のエントリを「メソッド名(パラメータ)」をキーに保持する。
+ * <p/>
+ * 判定時は対象の名前を先頭から1度だけ辿り、辿った経路上で最も詳細なエントリを判定結果とする。
+ * 深いノードのエントリほど詳細であるため、経路上で最後に見つかったエントリが採用される。
+ * <p/>
+ * メソッド・コンストラクタ指定は多くの場合パッケージ・クラス指定の一部にとどまり、大半の判定ではメソッド名をキーとした参照が合致しない。
+ * そのため、{@link #buildMemberFilter()}で構築したブルームフィルタで合致しないことが確定した場合は、
+ * メソッド名のキーを切り出さずに参照を省略する。
+ */
+final class ApiDecisionTree implements ExactRuleIndex {
+
+    /** 最上位のノード。 */
+    private final Node root = new Node();
+
+    /** メソッド・コンストラクタ指定の数。 */
+    private int memberCount;
+
+    /** メソッド・コンストラクタ指定のAPIのブルームフィルタ。構築前は{@code null}。 */
+    private BloomFilter memberFilter;
+
+    /**
+     * パッケージ・クラス指定のエントリを追加する。
+     *
+     * @param name  パッケージ名またはクラス名
+     * @param entry 設定ファイルのエントリ
+     * @return 判定に使用されなくなったエントリ。いずれも使用される場合は{@code null}
+     */
+    AllowlistEntry addPackageOrClass(String name, AllowlistEntry entry) {
+        Node node = root;
+        for (String segment : name.split("\\.")) {
+            node = node.child(segment);
+        }
+        AllowlistEntry current = node.entry;
+        if (current != null && !entry.outranks(current)) {
+            return entry;
+        }
+        node.entry = entry;
+        return current;
+    }
+
+    /**
+     * メソッド・コンストラクタ指定のエントリを追加する。
+     *
+     * @param api   「クラス名.メソッド名(パラメータ)」形式のAPI
+     * @param entry 設定ファイルのエントリ
+     * @return 判定に使用されなくなったエントリ。いずれも使用される場合は{@code null}
+     */
+    AllowlistEntry addMember(String api, AllowlistEntry entry) {
+        int memberStart = api.lastIndexOf('.', api.indexOf('('));
+        Node node = root;
+        for (String segment : api.substring(0, memberStart).split("\\.")) {
+            node = node.child(segment);
+        }
+        if (node.members == null) {
+            node.members = new HashMap<>();
+        }
+        String member = api.substring(memberStart + 1);
+        AllowlistEntry current = node.members.get(member);
+        if (current != null && !entry.outranks(current)) {
+            return entry;
+        }
+        if (current == null) {
+            memberCount++;
+        }
+        node.members.put(member, entry);
+        return current;
+    }
+
+    /**
+     * メソッド・コンストラクタ指定のAPIのブルームフィルタを構築する。
+     * すべてのエントリを追加した後、判定に使用する前に呼び出すこと。
+     */
+    void buildMemberFilter() {
+        BloomFilter filter = new BloomFilter(memberCount);
+        forEachRule((api, entry) -> {
+            if (api.indexOf('(') >= 0) {
+                filter.add(api);
+            }
+        });
+        memberFilter = filter;
+    }
+
+    /**
+     * 判定に使用されるすべてのエントリを、指定対象の名前と共に処理する。
+     * 指定対象の名前は、パッケージ・クラス指定はパッケージ名またはクラス名、
+     * メソッド・コンストラクタ指定は「クラス名.メソッド名(パラメータ)」形式のAPIとなる。
+     *
+     * @param action 指定対象の名前とエントリを受け取る処理
+     */
+    void forEachRule(BiConsumer<String, AllowlistEntry> action) {
+        forEachRule(root, new StringBuilder(), action);
+    }
+
+    /**
+     * ノード配下のエントリを、指定対象の名前と共に処理する。
+     *
+     * @param node   ノード
+     * @param path   ノードまでの「.」区切りの名前
+     * @param action 指定対象の名前とエントリを受け取る処理
+     */
+    private static void forEachRule(Node node, StringBuilder path, BiConsumer<String, AllowlistEntry> action) {
+        if (node.entry != null) {
+            action.accept(path.toString(), node.entry);
+        }
+        if (node.members != null) {
+            for (Map.Entry<String, AllowlistEntry> member : node.members.entrySet()) {
+                action.accept(path + "." + member.getKey(), member.getValue());
+            }
+        }
+        if (node.children != null) {
+            for (Map.Entry<String, Node> child : node.children.entrySet()) {
+                int length = path.length();
+                if (length > 0) {
+                    path.append('.');
+                }
+                forEachRule(child.getValue(), path.append(child.getKey()), action);
+                path.setLength(length);
+            }
+        }
+    }
+
+    /**
+     * 呼び出されたAPIに合致する最も詳細なエントリを取得する。
+     *
+     * @param calleeApi Javaファイルフォーマットにて記述された被呼出API
+     * @return 合致したエントリ。合致しない場合は{@code null}
+     */
+    @Override
+    public AllowlistEntry decideMember(String calleeApi) {
+        int memberStart = calleeApi.lastIndexOf('.', calleeApi.indexOf('('));
+        AllowlistEntry decision = null;
+        Node node = root;
+        int start = 0;
+        while (start <= memberStart) {
+            int end = calleeApi.indexOf('.', start);
+            node = node.children == null ? null : node.children.get(calleeApi.substring(start, end));
+            if (node == null) {
+                return decision;
+            }
+            if (node.entry != null) {
+                decision = node.entry;
+            }
+            start = end + 1;
+        }
+        if (node.members != null) {
+            BloomFilter filter = memberFilter;
+            if (filter != null && !filter.mightContain(calleeApi)) {
+                CheckerMetrics.getInstance().countMemberFilter(false, false);
+                return decision;
+            }
+            AllowlistEntry member = node.members.get(calleeApi.substring(memberStart + 1));
+            if (filter != null) {
+                CheckerMetrics.getInstance().countMemberFilter(true, member == null);
+            }
+            if (member != null) {
+                return member;
+            }
+        }
+        return decision;
+    }
+
+    /**
+     * パッケージ名またはクラス名に合致する最も詳細なパッケージ・クラス指定のエントリを取得する。
+     *
+     * @param name パッケージ名またはクラス名
+     * @return 合致したエントリ。合致しない場合は{@code null}
+     */
+    @Override
+    public AllowlistEntry decidePackageOrClass(String name) {
+        AllowlistEntry decision = null;
+        Node node = root;
+        int start = 0;
+        while (start <= name.length()) {
+            int end = name.indexOf('.', start);
+            if (end < 0) {
+                end = name.length();
+            }
+            node = node.children == null ? null : node.children.get(name.substring(start, end));
+            if (node == null) {
+                return decision;
+            }
+            if (node.entry != null) {
+                decision = node.entry;
+            }
+            start = end + 1;
+        }
+        return decision;
+    }
+
+    /**
+     * 判定に使用されるすべてのエントリを取得する。
+     *
+     * @return 判定に使用されるエントリ
+     */
+    @Override
+    public List<AllowlistEntry> getEntries() {
+        List<AllowlistEntry> entries = new ArrayList<>();
+        collectEntries(root, entries);
+        return entries;
+    }
+
+    /**
+     * ノード配下のエントリを収集する。
+     *
+     * @param node    ノード
+     * @param entries 収集先
+     */
+    private static void collectEntries(Node node, List<AllowlistEntry> entries) {
+        if (node.entry != null) {
+            entries.add(node.entry);
+        }
+        if (node.members != null) {
+            entries.addAll(node.members.values());
+        }
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                collectEntries(child, entries);
+            }
+        }
+    }
+
+    /**
+     * 「.」区切りの1階層に対応するノード。
+     */
+    private static final class Node {
+
+        /** 下位の階層のノード。 */
+        private Map<String, Node> children;
+
+        /** この階層までのパッケージ・クラス指定のエントリ。 */
+        private AllowlistEntry entry;
+
+        /** この階層をクラスとするメソッド・コンストラクタ指定のエントリ。 */
+        private Map<String, AllowlistEntry> members;
+
+        /**
+         * 下位の階層のノードを取得する。存在しない場合は作成する。
+         *
+         * @param segment 階層の名前
+         * @return 下位の階層のノード
+         */
+        Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, key -> new Node());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.util.ClassPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * クラスディレクトリ・jarファイルに加えて、アーカイブのエントリから被呼出クラスを読み込むクラスパス。
+ * <p/>
+ * BCELの{@link ClassPath}はwarファイルの{@code WEB-INF/classes}配下やMulti-Release jarのバージョン毎のエントリを読み込めないため、
+ * {@link ArchiveClassReader}が選択したエントリを登録し、クラスパスより優先して読み込む。
+ * 登録したエントリは、被呼出クラスとして要求された時点で読み込むため、解析しないクラスを事前に読み込む必要はない。
+ * <p/>
+ * warファイルの{@code WEB-INF/lib}配下のjarファイルは、登録したエントリにもクラスパス（JDKを含む）にもないクラスが
+ * 初めて要求された時点で、展開せずにwarファイルのエントリのストリームから読み込み、クラスファイルの内容をメモリ上に保持する。
+ * 同じクラスがクラスパスとライブラリの両方に存在する場合は、クラスパスのクラスを使用する。
+ * ライブラリのクラスはwarファイル毎に変わり得るため、読み込んだクラスは起動間で再利用する情報として保存しないよう、
+ * 解析対象のクラスとして記録する（{@link WarmStartSnapshot}）。
+ * <p/>
+ * 登録したアーカイブは{@link #close()}まで開いたままとする。
+ */
+final class ArchiveClassPath extends ClassPath {
+
+    /** クラスファイルのパス（「/」区切り）毎の、クラスファイルを格納したエントリ。 */
+    private final Map<String, ClassFile> classFiles = new ConcurrentHashMap<>();
+
+    /** 開いているアーカイブ。 */
+    private final List<ZipFile> archives = new CopyOnWriteArrayList<>();
+
+    /** クラスを読み込んでいないライブラリ。 */
+    private final List<Library> pendingLibraries = new CopyOnWriteArrayList<>();
+
+    /**
+     * コンストラクタ。
+     *
+     * @param classPath クラスディレクトリ・jarファイルを区切り文字で連結したクラスパス
+     */
+    ArchiveClassPath(String classPath) {
+        super(classPath);
+    }
+
+    /**
+     * アーカイブのクラスファイルのエントリを登録する。
+     * アーカイブは{@link #close()}で閉じる。
+     *
+     * @param archive  アーカイブ
+     * @param location アーカイブの場所
+     * @param entries  クラスファイルのパス（「/」区切り）毎のエントリ
+     */
+    void add(ZipFile archive, File location, Map<String, ZipEntry> entries) {
+        archives.add(archive);
+        for (Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+            classFiles.putIfAbsent(entry.getKey(), new ArchiveClassFile(archive, location, entry.getValue()));
+        }
+    }
+
+    /**
+     * アーカイブに含まれるライブラリのjarファイルを登録する。
+     * ライブラリのクラスは、登録したエントリにもクラスパスにもないクラスが初めて要求された時点で読み込む。
+     *
+     * @param archive  ライブラリを含むアーカイブ（{@link #add(ZipFile, File, Map)}で登録したもの）
+     * @param location アーカイブの場所
+     * @param library  ライブラリのエントリ
+     */
+    void addLibrary(ZipFile archive, File location, ZipEntry library) {
+        pendingLibraries.add(new Library(archive, location, library));
+    }
+
+    @Override
+    public ClassFile getClassFile(String name, String suffix) throws IOException {
+        String path = name.replace('.', '/') + suffix;
+        ClassFile classFile = classFiles.get(path);
+        if (classFile != null) {
+            return classFile;
+        }
+        if (pendingLibraries.isEmpty()) {
+            return super.getClassFile(name, suffix);
+        }
+        try {
+            return super.getClassFile(name, suffix);
+        } catch (IOException e) {
+            // JDK・クラスパスのクラスではライブラリを読み込まず、いずれにもない場合のみライブラリを読み込む。
+            readLibraries();
+            classFile = classFiles.get(path);
+            if (classFile == null) {
+                throw e;
+            }
+            return classFile;
+        }
+    }
+
+    /**
+     * 登録したライブラリのクラスファイルを、展開せずにアーカイブのエントリのストリームから読み込んで登録する。
+     * 既に登録したエントリと同じパスのクラスファイルは登録しない。
+     *
+     * @throws IOException ライブラリを読み込めない場合
+     */
+    private synchronized void readLibraries() throws IOException {
+        for (Library library : pendingLibraries) {
+            File location = new File(library.location + "!/" + library.entry.getName());
+            Map<String, byte[]> classes;
+            try (InputStream in = library.archive.getInputStream(library.entry)) {
+                classes = ArchiveClassReader.readClassFiles(in);
+            } catch (IOException e) {
+                throw new IOException("Couldn't read library. Path=[" + location + "]", e);
+            }
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                classFiles.putIfAbsent(entry.getKey(),
+                        new LibraryClassFile(location, entry.getKey(), entry.getValue(), library.entry.getTime()));
+                WarmStartSnapshot.markApplicationClass(ArchiveClassReader.toClassName(entry.getKey()));
+            }
+            pendingLibraries.remove(library);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ZipFile archive : archives) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        archives.clear();
+        classFiles.clear();
+        pendingLibraries.clear();
+        try {
+            super.close();
+        } catch (UnsupportedOperationException e) {
+            // BCELは実行中のJDKのモジュールイメージ（jrt）を閉じられないが、それ以前のjarファイルは閉じられている。
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * アーカイブに含まれるライブラリのjarファイル。
+     */
+    private static final class Library {
+
+        /** ライブラリを含むアーカイブ。 */
+        private final ZipFile archive;
+
+        /** アーカイブの場所。 */
+        private final File location;
+
+        /** ライブラリのエントリ。 */
+        private final ZipEntry entry;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param archive  ライブラリを含むアーカイブ
+         * @param location アーカイブの場所
+         * @param entry    ライブラリのエントリ
+         */
+        Library(ZipFile archive, File location, ZipEntry entry) {
+            this.archive = archive;
+            this.location = location;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * ライブラリから読み込んだクラスファイル。
+     */
+    private static final class LibraryClassFile implements ClassFile {
+
+        /** ライブラリの場所。 */
+        private final File location;
+
+        /** クラスファイルのパス（「/」区切り）。 */
+        private final String path;
+
+        /** クラスファイルの内容。 */
+        private final byte[] bytes;
+
+        /** ライブラリの更新日時。 */
+        private final long time;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param location ライブラリの場所
+         * @param path     クラスファイルのパス（「/」区切り）
+         * @param bytes    クラスファイルの内容
+         * @param time     ライブラリの更新日時
+         */
+        LibraryClassFile(File location, String path, byte[] bytes, long time) {
+            this.location = location;
+            this.path = path;
+            this.bytes = bytes;
+            this.time = time;
+        }
+
+        @Override
+        public String getBase() {
+            return location.getPath();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public String getPath() {
+            return location + "!/" + path;
+        }
+
+        @Override
+        public long getSize() {
+            return bytes.length;
+        }
+
+        @Override
+        public long getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * アーカイブのエントリに格納されたクラスファイル。
+     */
+    private static final class ArchiveClassFile implements ClassFile {
+
+        /** アーカイブ。 */
+        private final ZipFile archive;
+
+        /** アーカイブの場所。 */
+        private final File location;
+
+        /** エントリ。 */
+        private final ZipEntry entry;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param archive  アーカイブ
+         * @param location アーカイブの場所
+         * @param entry    エントリ
+         */
+        ArchiveClassFile(ZipFile archive, File location, ZipEntry entry) {
+            this.archive = archive;
+            this.location = location;
+            this.entry = entry;
+        }
+
+        @Override
+        public String getBase() {
+            return location.getPath();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return archive.getInputStream(entry);
+        }
+
+        @Override
+        public String getPath() {
+            return location + "!/" + entry.getName();
+        }
+
+        @Override
+        public long getSize() {
+            return entry.getSize();
+        }
+
+        @Override
+        public long getTime() {
+            return entry.getTime();
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * jarファイル・warファイルから、展開せずにクラスを読み込む。
+ * <p/>
+ * アーカイブのエントリはセントラルディレクトリから取得し、クラスファイルのエントリを並列に読み込む。
+ * 読み込んだアーカイブは、被呼出クラスを読み込むために{@link ArchiveClassPath}に登録する。
+ * warファイルの場合、{@code WEB-INF/classes}配下のクラスを解析対象のクラスとし、
+ * {@code WEB-INF/lib}配下のjarファイルは、被呼出クラスとしてのみ使用するライブラリとしてクラスを読み込まずに登録する。
+ * ライブラリのクラスは、必要になった時点で{@link #readClassFiles(InputStream)}によりストリームから読み込む。
+ * <p/>
+ * マニフェストに{@code Multi-Release: true}が指定されたjarファイルは、
+ * {@code META-INF/versions/N}配下のエントリのうち、実行中のJavaのバージョン以下で最も新しいバージョンのエントリを使用する。
+ */
+final class ArchiveClassReader {
+
+    /** バージョン毎のエントリの格納先。 */
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    /** warファイルのクラスの格納先。 */
+    private static final String WAR_CLASSES_PREFIX = "WEB-INF/classes/";
+
+    /** warファイルのライブラリの格納先。 */
+    private static final String WAR_LIB_PREFIX = "WEB-INF/lib/";
+
+    /** 実行中のJavaのバージョン。 */
+    private static final int RUNTIME_VERSION = runtimeVersion();
+
+    /** クラスファイルの読み込みに使用するスレッド毎のバッファ。 */
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+
+    /** 解析対象のクラス。 */
+    private final List<JavaClass> classes;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param classes 解析対象のクラス
+     */
+    private ArchiveClassReader(List<JavaClass> classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * 読み込み可能なアーカイブか否かを判定する。
+     *
+     * @param file ファイル
+     * @return jarファイルまたはwarファイルの場合{@code true}
+     */
+    static boolean isArchive(File file) {
+        String name = file.getName();
+        return file.isFile() && (name.endsWith(".jar") || name.endsWith(".war"));
+    }
+
+    /**
+     * アーカイブからクラスを読み込む。
+     * 担当する分割に含まれないクラスは、エントリ名から求めたクラス名により読み込まずに除外する。
+     * 除外したクラスを含むすべてのクラスファイルのエントリとライブラリは、被呼出クラスとして読み込めるようクラスパスに登録する。
+     *
+     * @param archive   jarファイルまたはwarファイル
+     * @param shard     担当する分割
+     * @param classPath エントリを登録するクラスパス
+     * @return 読み込んだクラス
+     */
+    static ArchiveClassReader read(File archive, ShardSpec shard, ArchiveClassPath classPath) {
+        ZipFile zip = null;
+        try {
+            zip = new ZipFile(archive);
+            List<ZipEntry> libraries = new ArrayList<>();
+            Map<String, ZipEntry> selected = selectClassEntries(zip, libraries);
+            List<ZipEntry> targets = new ArrayList<>();
+            for (Map.Entry<String, ZipEntry> entry : selected.entrySet()) {
+                if (shard.contains(toClassName(entry.getKey()))) {
+                    targets.add(entry.getValue());
+                }
+            }
+            ZipFile opened = zip;
+            List<JavaClass> classes = targets.parallelStream()
+                    .map(entry -> parse(opened, entry, archive))
+                    .collect(Collectors.toList());
+            classPath.add(zip, archive, selected);
+            for (ZipEntry library : libraries) {
+                classPath.addLibrary(zip, archive, library);
+            }
+            return new ArchiveClassReader(classes);
+        } catch (IOException | UncheckedIOException e) {
+            closeQuietly(zip);
+            throw new RuntimeException("Couldn't read archive. Path=[" + archive + "]", e);
+        } catch (RuntimeException e) {
+            closeQuietly(zip);
+            throw e;
+        }
+    }
+
+    /**
+     * jarファイルの内容のストリームから、展開せずにクラスファイルの内容を読み込む。
+     * クラスファイルのエントリは{@link #read(File, ShardSpec, ArchiveClassPath)}と同じ規則で選択する。
+     *
+     * @param in jarファイルの内容のストリーム（閉じない）
+     * @return クラスファイルのパス（「/」区切り）毎に選択したエントリの内容（パスの昇順）
+     * @throws IOException jarファイルを読み込めない場合
+     */
+    static Map<String, byte[]> readClassFiles(InputStream in) throws IOException {
+        JarInputStream jar = new JarInputStream(in, false);
+        boolean multiRelease = isMultiRelease(jar.getManifest());
+        Map<String, Candidate<byte[]>> candidates = new TreeMap<>();
+        JarEntry entry;
+        while ((entry = jar.getNextJarEntry()) != null) {
+            if (!entry.isDirectory() && isSelectable(entry.getName(), multiRelease)) {
+                select(candidates, entry.getName(), multiRelease, readFully(jar));
+            }
+        }
+        Map<String, byte[]> selected = new LinkedHashMap<>();
+        for (Map.Entry<String, Candidate<byte[]>> candidate : candidates.entrySet()) {
+            selected.put(candidate.getKey(), candidate.getValue().value);
+        }
+        return selected;
+    }
+
+    /**
+     * ストリームの現在のエントリの内容を読み込む。
+     *
+     * @param in ストリーム
+     * @return エントリの内容
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = BUFFER.get();
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * アーカイブのクラスファイルのエントリを選択し、warファイルのライブラリのエントリを取得する。
+     *
+     * @param zip       アーカイブ
+     * @param libraries ライブラリのエントリの格納先
+     * @return クラスファイルのパス（「/」区切り）毎に選択したエントリ（パスの昇順）
+     * @throws IOException マニフェストを読み込めない場合
+     */
+    private static Map<String, ZipEntry> selectClassEntries(ZipFile zip, List<ZipEntry> libraries) throws IOException {
+        boolean multiRelease = isMultiRelease(readManifest(zip));
+        Map<String, Candidate<ZipEntry>> candidates = new TreeMap<>();
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (name.startsWith(WAR_LIB_PREFIX) && name.endsWith(".jar")) {
+                libraries.add(entry);
+            } else {
+                select(candidates, name, multiRelease, entry);
+            }
+        }
+        Map<String, ZipEntry> selected = new LinkedHashMap<>();
+        for (Map.Entry<String, Candidate<ZipEntry>> candidate : candidates.entrySet()) {
+            selected.put(candidate.getKey(), candidate.getValue().value);
+        }
+        return selected;
+    }
+
+    /**
+     * クラスファイルのパスからクラス名を求める。
+     *
+     * @param path クラスファイルのパス（「/」区切り）
+     * @return クラス名（「.」区切り）
+     */
+    static String toClassName(String path) {
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * 読み込みに失敗したアーカイブを閉じる。閉じる際の例外は、読み込みの例外を優先するため無視する。
+     *
+     * @param zip アーカイブ（{@code null}可）
+     */
+    private static void closeQuietly(ZipFile zip) {
+        if (zip == null) {
+            return;
+        }
+        try {
+            zip.close();
+        } catch (IOException ignored) {
+            // 読み込みの例外を送出する。
+        }
+    }
+
+    /**
+     * 解析対象のクラスを取得する。
+     *
+     * @return 担当する分割に含まれる解析対象のクラス（エントリ名の昇順）
+     */
+    List<JavaClass> getClasses() {
+        return classes;
+    }
+
+    /**
+     * エントリがクラスファイルであり、使用可能なバージョンのエントリであれば、同じクラスの候補と比較して選択する。
+     *
+     * @param selected     クラスファイルのパス毎に選択した候補
+     * @param name         エントリ名
+     * @param multiRelease Multi-Release jarであるか否か
+     * @param value        候補とする値
+     * @param <T>          候補とする値の型
+     */
+    private static <T> void select(Map<String, Candidate<T>> selected, String name, boolean multiRelease, T value) {
+        if (!isSelectable(name, multiRelease)) {
+            return;
+        }
+        String path = name;
+        int version = 0;
+        if (path.startsWith(VERSIONS_PREFIX)) {
+            int slash = path.indexOf('/', VERSIONS_PREFIX.length());
+            version = Integer.parseInt(path.substring(VERSIONS_PREFIX.length(), slash));
+            path = path.substring(slash + 1);
+        }
+        if (path.startsWith(WAR_CLASSES_PREFIX)) {
+            path = path.substring(WAR_CLASSES_PREFIX.length());
+        }
+        Candidate<T> current = selected.get(path);
+        if (current == null || current.version < version) {
+            selected.put(path, new Candidate<>(version, value));
+        }
+    }
+
+    /**
+     * エントリが読み込むべきクラスファイルであるか否かを判定する。
+     * モジュール記述子と、Multi-Release jarでない場合や実行中のJavaより新しいバージョンのエントリは読み込まない。
+     *
+     * @param name         エントリ名
+     * @param multiRelease Multi-Release jarであるか否か
+     * @return 読み込むべきクラスファイルの場合{@code true}
+     */
+    private static boolean isSelectable(String name, boolean multiRelease) {
+        if (!name.endsWith(".class") || name.endsWith("module-info.class")) {
+            return false;
+        }
+        if (!name.startsWith(VERSIONS_PREFIX)) {
+            return true;
+        }
+        if (!multiRelease) {
+            return false;
+        }
+        int slash = name.indexOf('/', VERSIONS_PREFIX.length());
+        if (slash < 0) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(name.substring(VERSIONS_PREFIX.length(), slash)) <= RUNTIME_VERSION;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * アーカイブのエントリのクラスファイルを読み込む。
+     */
+    private static JavaClass parse(ZipFile zip, ZipEntry entry, File archive) {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return parse(in, archive + "!/" + entry.getName());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ストリームからクラスファイルを読み込む。
+     * 読み込みにはスレッド毎のバッファを再利用する。ストリームは閉じない。
+     *
+     * @param in       クラスファイルの内容のストリーム
+     * @param location クラスファイルの場所
+     * @return クラス情報
+     */
+    private static JavaClass parse(InputStream in, String location) {
+        byte[] buffer = BUFFER.get();
+        int length = 0;
+        try {
+            int read;
+            while ((read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    BUFFER.set(buffer);
+                }
+            }
+            return new ClassParser(new ByteArrayInputStream(buffer, 0, length), location).parse();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read class file. Path=[" + location + "]", e);
+        }
+    }
+
+    private static Manifest readManifest(ZipFile zip) throws IOException {
+        ZipEntry entry = zip.getEntry(JarFile.MANIFEST_NAME);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return new Manifest(in);
+        }
+    }
+
+    private static boolean isMultiRelease(Manifest manifest) {
+        return manifest != null
+                && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue(new Attributes.Name("Multi-Release")));
+    }
+
+    /**
+     * 実行中のJavaのバージョンを取得する。
+     *
+     * @return Javaのバージョン（Java 8の場合は8）
+     */
+    private static int runtimeVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    /**
+     * 同じクラスファイルのパスに対する、バージョン毎のエントリの候補。
+     *
+     * @param <T> 候補とする値の型
+     */
+    private static final class Candidate<T> {
+
+        /** バージョン。バージョン毎のエントリでない場合は0。 */
+        private final int version;
+
+        /** 値。 */
+        private final T value;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param version バージョン
+         * @param value   値
+         */
+        Candidate(int version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * 文字列の集合に対するブルームフィルタ。
+ * <p/>
+ * 集合に含まれない文字列の大半を、集合そのものを参照せずに判定するために使用する。
+ * {@link #mightContain(CharSequence)}が{@code false}を返した場合は集合に含まれないことが確定し、
+ * {@code true}を返した場合は含まれる可能性がある（偽陽性を含む）。
+ * <p/>
+ * 1要素あたり{@value #BITS_PER_ELEMENT}bitを割り当て、{@value #HASH_COUNT}個のハッシュ関数で判定する。
+ * この場合の偽陽性率は理論上おおよそ1%となる。
+ * ハッシュ関数は、文字列から算出した64bitのハッシュ値の上位・下位32bitによるダブルハッシュとする。
+ * <p/>
+ * 構築後は変更されないため、複数スレッドから同時に判定できる。
+ */
+final class BloomFilter {
+
+    /** 1要素あたりのビット数。 */
+    private static final int BITS_PER_ELEMENT = 10;
+
+    /** ハッシュ関数の数。 */
+    private static final int HASH_COUNT = 7;
+
+    /** ビット配列。 */
+    private final long[] words;
+
+    /** ビット位置を求めるためのマスク。 */
+    private final int mask;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param expectedElements 登録する要素数
+     */
+    BloomFilter(int expectedElements) {
+        int bits = Math.max(64, Integer.highestOneBit(Math.max(1, expectedElements * BITS_PER_ELEMENT - 1)) << 1);
+        words = new long[bits >>> 6];
+        mask = bits - 1;
+    }
+
+    /**
+     * 文字列を登録する。構築中にのみ使用する。
+     *
+     * @param value 文字列
+     */
+    void add(CharSequence value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = (h1 + i * h2) & mask;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * 文字列が登録されている可能性があるか否かを判定する。
+     *
+     * @param value 文字列
+     * @return 登録されている可能性がある場合{@code true}。登録されていないことが確定した場合{@code false}
+     */
+    boolean mightContain(CharSequence value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 文字列の64bitハッシュ値を算出する。
+     * 各文字をFNV-1aで畳み込み、下位ビットにも上位ビットの影響が及ぶよう最後に攪拌する。
+     *
+     * @param value 文字列
+     * @return ハッシュ値
+     */
+    private static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,88 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.Arrays;
+
+/**
+ * 公開可否を一括して判定する呼出箇所。
+ * <p/>
+ * クラスやメソッドから収集した呼出箇所を追加順に保持する。
+ * {@link PublishedApisInfo#isPermitted(CallSiteBatch)}は呼出先クラス毎にまとめて判定し、
+ * 追加順に並んだ判定結果を返却する。
+ */
+final class CallSiteBatch {
+
+    /** 初期容量。 */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** 呼び出されたAPIのクラス名。 */
+    private String[] classNames = new String[INITIAL_CAPACITY];
+
+    /** 呼び出されたAPIのメソッド名。 */
+    private String[] methodNames = new String[INITIAL_CAPACITY];
+
+    /** 呼び出されたAPIのメソッドシグネチャ。 */
+    private String[] methodSigs = new String[INITIAL_CAPACITY];
+
+    /** 呼出箇所の数。 */
+    private int size;
+
+    /**
+     * 呼出箇所を追加する。
+     *
+     * @param calleeClassName  呼び出されたAPIのクラス名
+     * @param calleeMethodName 呼び出されたAPIのメソッド名
+     * @param calleeMethodSig  呼び出されたAPIメソッドシグネチャ
+     * @return 追加した呼出箇所のインデックス（判定結果の配列のインデックス）
+     */
+    int add(String calleeClassName, String calleeMethodName, String calleeMethodSig) {
+        if (size == classNames.length) {
+            int capacity = size * 2;
+            classNames = Arrays.copyOf(classNames, capacity);
+            methodNames = Arrays.copyOf(methodNames, capacity);
+            methodSigs = Arrays.copyOf(methodSigs, capacity);
+        }
+        classNames[size] = calleeClassName;
+        methodNames[size] = calleeMethodName;
+        methodSigs[size] = calleeMethodSig;
+        return size++;
+    }
+
+    /**
+     * 呼出箇所の数を取得する。
+     *
+     * @return 呼出箇所の数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 呼び出されたAPIのクラス名を取得する。
+     *
+     * @param index 呼出箇所のインデックス
+     * @return クラス名
+     */
+    String getClassName(int index) {
+        return classNames[index];
+    }
+
+    /**
+     * 呼び出されたAPIのメソッド名を取得する。
+     *
+     * @param index 呼出箇所のインデックス
+     * @return メソッド名
+     */
+    String getMethodName(int index) {
+        return methodNames[index];
+    }
+
+    /**
+     * 呼び出されたAPIのメソッドシグネチャを取得する。
+     *
+     * @param index 呼出箇所のインデックス
+     * @return メソッドシグネチャ
+     */
+    String getMethodSig(int index) {
+        return methodSigs[index];
+    }
+}
@@ -0,0 +1,157 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.AnnotationEntry;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+/**
+ * 非公開APIの使用をチェックする呼出元のクラス・メソッドの範囲。
+ * <p/>
+ * 以下のシステムプロパティで指定する。指定しない場合は、すべてのクラス・メソッドをチェックする。
+ * <ul>
+ * <li>{@code nablarch-findbugs-caller-include}：チェックするパッケージ・クラス（カンマ区切り）</li>
+ * <li>{@code nablarch-findbugs-caller-exclude}：チェックしないパッケージ・クラス（カンマ区切り）</li>
+ * <li>{@code nablarch-findbugs-skip-synthetic}：{@code true}の場合、コンパイラが生成したクラス・メソッド（ラムダ式の本体を含む）をチェックしない</li>
+ * <li>{@code nablarch-findbugs-skip-bridge}：{@code true}の場合、ブリッジメソッドをチェックしない</li>
+ * <li>{@code nablarch-findbugs-skip-generated}：{@code true}の場合、単純名に{@code Generated}を含むアノテーションが付与されたクラス・メソッドをチェックしない</li>
+ * </ul>
+ * パッケージ・クラスの指定は設定ファイルと同じく「.」区切りの前方一致で照合し、ワイルドカード（{@code *}、{@code **}）を使用できる。
+ * 除外の指定は対象の指定より優先する。
+ * <p/>
+ * 範囲の判定はオペコードの走査前に行い、範囲外のクラス・メソッドは走査しない。
+ */
+final class CallerScope {
+
+    /** すべてのクラス・メソッドをチェックする範囲。 */
+    static final CallerScope ALL = new CallerScope(null, null, false, false, false);
+
+    /** チェックするパッケージ・クラス。指定しない場合は{@code null}。 */
+    private final GlobRuleSet includes;
+
+    /** チェックしないパッケージ・クラス。指定しない場合は{@code null}。 */
+    private final GlobRuleSet excludes;
+
+    /** コンパイラが生成したクラス・メソッドをチェックしないか否か。 */
+    private final boolean skipSynthetic;
+
+    /** ブリッジメソッドをチェックしないか否か。 */
+    private final boolean skipBridge;
+
+    /** {@code Generated}アノテーションが付与されたクラス・メソッドをチェックしないか否か。 */
+    private final boolean skipGenerated;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param includes      チェックするパッケージ・クラス（{@code null}可）
+     * @param excludes      チェックしないパッケージ・クラス（{@code null}可）
+     * @param skipSynthetic コンパイラが生成したクラス・メソッドをチェックしないか否か
+     * @param skipBridge    ブリッジメソッドをチェックしないか否か
+     * @param skipGenerated {@code Generated}アノテーションが付与されたクラス・メソッドをチェックしないか否か
+     */
+    CallerScope(String includes, String excludes, boolean skipSynthetic, boolean skipBridge, boolean skipGenerated) {
+        this.includes = toRuleSet(includes);
+        this.excludes = toRuleSet(excludes);
+        this.skipSynthetic = skipSynthetic;
+        this.skipBridge = skipBridge;
+        this.skipGenerated = skipGenerated;
+    }
+
+    /**
+     * システムプロパティの指定から範囲を作成する。
+     *
+     * @return 呼出元の範囲
+     */
+    static CallerScope fromSystemProperties() {
+        String includes = System.getProperty("nablarch-findbugs-caller-include");
+        String excludes = System.getProperty("nablarch-findbugs-caller-exclude");
+        boolean skipSynthetic = Boolean.getBoolean("nablarch-findbugs-skip-synthetic");
+        boolean skipBridge = Boolean.getBoolean("nablarch-findbugs-skip-bridge");
+        boolean skipGenerated = Boolean.getBoolean("nablarch-findbugs-skip-generated");
+        if (includes == null && excludes == null && !skipSynthetic && !skipBridge && !skipGenerated) {
+            return ALL;
+        }
+        return new CallerScope(includes, excludes, skipSynthetic, skipBridge, skipGenerated);
+    }
+
+    /**
+     * クラスがチェックの範囲内か否かを判定する。
+     *
+     * @param javaClass 呼出元のクラス
+     * @return 範囲内の場合{@code true}
+     */
+    boolean includesClass(JavaClass javaClass) {
+        if (this == ALL) {
+            return true;
+        }
+        if (skipSynthetic && javaClass.isSynthetic()) {
+            return false;
+        }
+        if (skipGenerated && isGenerated(javaClass.getAnnotationEntries())) {
+            return false;
+        }
+        String className = javaClass.getClassName().replace('$', '.');
+        if (excludes != null && excludes.matchPackageOrClass(className) != null) {
+            return false;
+        }
+        return includes == null || includes.matchPackageOrClass(className) != null;
+    }
+
+    /**
+     * メソッドがチェックの範囲内か否かを判定する。
+     *
+     * @param method 呼出元のメソッド
+     * @return 範囲内の場合{@code true}
+     */
+    boolean includesMethod(Method method) {
+        if (this == ALL) {
+            return true;
+        }
+        if (skipSynthetic && method.isSynthetic()) {
+            return false;
+        }
+        if (skipBridge && (method.getAccessFlags() & Const.ACC_BRIDGE) != 0) {
+            return false;
+        }
+        return !(skipGenerated && isGenerated(method.getAnnotationEntries()));
+    }
+
+    /**
+     * 単純名に{@code Generated}を含むアノテーション（{@code lombok.Generated}等）が付与されているか否かを判定する。
+     * JaCoCoと同じ判定とする。保持ポリシーが{@code SOURCE}のアノテーションはクラスファイルに含まれないため判定できない。
+     *
+     * @param annotations アノテーション
+     * @return 付与されている場合{@code true}
+     */
+    private static boolean isGenerated(AnnotationEntry[] annotations) {
+        for (AnnotationEntry annotation : annotations) {
+            String type = annotation.getAnnotationType();
+            int simpleName = Math.max(type.lastIndexOf('/'), type.lastIndexOf('$')) + 1;
+            if (type.indexOf("Generated", simpleName) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * カンマ区切りのパッケージ・クラスの指定を照合用の設定に変換する。
+     *
+     * @param patterns カンマ区切りのパッケージ・クラスの指定（{@code null}可）
+     * @return 照合用の設定。指定がない場合は{@code null}
+     */
+    private static GlobRuleSet toRuleSet(String patterns) {
+        if (patterns == null) {
+            return null;
+        }
+        GlobRuleSet ruleSet = new GlobRuleSet();
+        for (String pattern : patterns.split(",")) {
+            String trimmed = pattern.trim();
+            if (!trimmed.isEmpty()) {
+                ruleSet.add(trimmed, new AllowlistEntry(trimmed, null, 0));
+            }
+        }
+        return ruleSet.isEmpty() ? null : ruleSet;
+    }
+}
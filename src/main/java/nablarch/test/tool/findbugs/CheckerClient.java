@@ -0,0 +1,100 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * {@link CheckerDaemon}に解析要求を送信し、応答をレポートと同じ形式で出力する。
+ */
+final class CheckerClient {
+
+    /**
+     * コンストラクタ。
+     */
+    private CheckerClient() {
+    }
+
+    /**
+     * 解析要求を送信する。
+     *
+     * @param port   デーモンのポート番号
+     * @param token  デーモンのトークン
+     * @param inputs 解析対象のクラスディレクトリまたはクラスファイルのパス
+     * @param out    使用箇所の出力先
+     * @return 使用箇所の件数
+     * @throws IOException 通信に失敗した場合
+     */
+    static int check(int port, String token, List<String> inputs, Writer out) throws IOException {
+        StringBuilder request = new StringBuilder(token).append('\n').append(CheckerDaemon.CHECK).append('\n');
+        for (String input : inputs) {
+            // デーモンの作業ディレクトリは異なり得るため、絶対パスで送信する。
+            request.append(new File(input).getAbsolutePath()).append('\n');
+        }
+        request.append('\n');
+        return send(port, request.toString(), out);
+    }
+
+    /**
+     * デーモンが出力したトークンを読み込む。
+     *
+     * @param portFile デーモンがポート番号を記録したファイル
+     * @return トークン
+     * @throws IOException トークンを記録したファイルを読み込めない場合
+     */
+    static String readToken(File portFile) throws IOException {
+        return new String(Files.readAllBytes(CheckerDaemon.tokenFile(portFile).toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * 停止要求を送信する。
+     *
+     * @param port  デーモンのポート番号
+     * @param token デーモンのトークン
+     * @throws IOException 通信に失敗した場合
+     */
+    static void shutdown(int port, String token) throws IOException {
+        send(port, token + "\n" + CheckerDaemon.SHUTDOWN + "\n", null);
+    }
+
+    /**
+     * 要求を送信し、応答を出力する。
+     *
+     * @param port    デーモンのポート番号
+     * @param request 要求
+     * @param out     使用箇所の出力先（{@code null}可）
+     * @return 使用箇所の件数
+     * @throws IOException 通信に失敗した場合
+     */
+    private static int send(int port, String request, Writer out) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            writer.write(request);
+            writer.flush();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(CheckerDaemon.END + " ")) {
+                    return Integer.parseInt(line.substring(CheckerDaemon.END.length() + 1));
+                }
+                if (line.startsWith(CheckerDaemon.ERROR + " ")) {
+                    throw new RuntimeException("Check failed in daemon. " + line.substring(CheckerDaemon.ERROR.length() + 1));
+                }
+                if (out != null) {
+                    out.write(line);
+                    out.write('\n');
+                }
+            }
+        }
+        throw new RuntimeException("Daemon closed connection unexpectedly. Port=[" + port + "]");
+    }
+}
@@ -0,0 +1,296 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.classfile.JavaClass;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 公開情報・クラス情報・判定結果のキャッシュを保持したまま常駐し、ローカルのソケット経由で解析要求を受け付ける。
+ * <p/>
+ * IDEでの保存時やpre-commitフックのように短い解析を繰り返す場合に、JVMの起動・設定ファイルの読み込み・
+ * クラス情報の読み込みを解析毎に行わずに済む。ループバックアドレスでのみ待ち受け、要求は1件ずつ順に処理する。
+ * <p/>
+ * 同じマシンの他のユーザが要求を送信できないよう、起動毎に生成したトークンを要求の先頭に含めることを必須とする。
+ * トークンは、ポート番号を記録するファイルの隣に、所有者のみが読み書きできるファイルとして出力する（{@link #writePortFile(File)}）。
+ * <p/>
+ * 通信はUTF-8の行単位で行う。
+ * <pre>
+ * 要求：トークン、CHECK、解析対象のクラスディレクトリまたはクラスファイルの絶対パス（1行に1件）、空行
+ *       または トークン、SHUTDOWN
+ * 応答：使用箇所（レポートファイルと同じ形式で1行に1件）、END 件数
+ *       または ERROR メッセージ
+ * </pre>
+ * 設定ファイルが前回の要求から変更（追加・削除を含む）されていた場合は、解析の前に設定ファイルを読み込み直す。
+ * 解析対象のクラスファイルの内容が前回の要求から変更されていた場合は、そのクラスのクラス情報と判定結果のキャッシュを破棄する。
+ * 変更の有無は、クラスファイルの内容を保持せずにダイジェストで判定する。
+ * 初めて解析するクラスも、被呼出クラスとして読み込んだ古い内容のクラス情報がキャッシュされ得るため、同様に破棄する。
+ */
+final class CheckerDaemon implements Closeable {
+
+    /** 解析要求。 */
+    static final String CHECK = "CHECK";
+
+    /** 停止要求。 */
+    static final String SHUTDOWN = "SHUTDOWN";
+
+    /** 応答の終端。 */
+    static final String END = "END";
+
+    /** 異常終了の応答。 */
+    static final String ERROR = "ERROR";
+
+    /** トークンのバイト数。 */
+    private static final int TOKEN_BYTES = 16;
+
+    /** 待ち受けるソケット。 */
+    private final ServerSocket serverSocket;
+
+    /** 要求に含めるトークン。 */
+    private final String token;
+
+    /** 読み込んだ設定ファイルのフィンガープリント。 */
+    private long configFingerprint;
+
+    /** 解析済みのクラスファイルのダイジェスト（サイズとCRC32）。クラス名をキーとする。 */
+    private final Map<String, Long> analyzedClasses = new HashMap<>();
+
+    /**
+     * コンストラクタ。公開情報を読み込み、ループバックアドレスで待ち受けを開始する。
+     *
+     * @param port      待ち受けるポート番号。0の場合は空いているポートを使用する
+     * @param config    設定ファイルが格納されているディレクトリ（{@code null}の場合はシステムプロパティの指定に従う）
+     * @param classPath 被呼出クラスを読み込むためのクラスパス（{@code null}可）
+     * @throws IOException 待ち受けを開始できない場合
+     */
+    CheckerDaemon(int port, String config, String classPath) throws IOException {
+        UnpublishedApiChecker.initialize(config, classPath, new ArrayList<>());
+        configFingerprint = PublishedApisInfo.configFingerprint();
+        token = generateToken();
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * トークンを生成する。
+     *
+     * @return 16進数表記のトークン
+     */
+    private static String generateToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder(TOKEN_BYTES * 2);
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+
+    /**
+     * 要求に含めるトークンを取得する。
+     *
+     * @return トークン
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * ポート番号を記録するファイルと、その隣にトークンを記録するファイル（{@link #tokenFile(File)}）を出力する。
+     * トークンを記録するファイルは、所有者のみが読み書きできるよう作成する。
+     * クライアントがポート番号を読み込んだ時点でトークンを読み込めるよう、トークンを先に出力する。
+     *
+     * @param portFile ポート番号を記録するファイル
+     * @throws IOException ファイルを出力できない場合
+     */
+    void writePortFile(File portFile) throws IOException {
+        Path tokenFile = tokenFile(portFile).toPath();
+        Files.deleteIfExists(tokenFile);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            File file = Files.createFile(tokenFile).toFile();
+            if (!(file.setReadable(false, false) && file.setReadable(true, true)
+                    && file.setWritable(false, false) && file.setWritable(true, true))) {
+                throw new IOException("Couldn't restrict token file to owner. Path=[" + tokenFile + "]");
+            }
+        }
+        Files.write(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+        Files.write(portFile.toPath(), String.valueOf(getPort()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * ポート番号を記録するファイルに対応する、トークンを記録するファイルを取得する。
+     *
+     * @param portFile ポート番号を記録するファイル
+     * @return ポート番号を記録するファイルのパスに「.token」を付与したファイル
+     */
+    static File tokenFile(File portFile) {
+        return new File(portFile.getPath() + ".token");
+    }
+
+    /**
+     * 待ち受けているポート番号を取得する。
+     *
+     * @return ポート番号
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 停止要求を受けるまで、解析要求を処理する。
+     */
+    void serve() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept();
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer writer = new BufferedWriter(
+                         new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                if (!handle(reader, writer)) {
+                    close();
+                }
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                // 1件の要求の通信に失敗しても、常駐は継続する。
+                System.err.println("Couldn't handle check request. " + e);
+            }
+        }
+    }
+
+    /**
+     * 1件の要求を処理する。
+     *
+     * @param reader 要求の読み込み元
+     * @param writer 応答の出力先
+     * @return 以降も要求を受け付ける場合、{@code true}
+     * @throws IOException 通信に失敗した場合
+     */
+    private boolean handle(BufferedReader reader, Writer writer) throws IOException {
+        String requestToken = reader.readLine();
+        if (requestToken == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                requestToken.getBytes(StandardCharsets.UTF_8))) {
+            writer.write(ERROR + " Invalid token.\n");
+            return true;
+        }
+        String command = reader.readLine();
+        if (SHUTDOWN.equals(command)) {
+            writer.write(END + " 0\n");
+            return false;
+        }
+        if (!CHECK.equals(command)) {
+            writer.write(ERROR + " Unknown command. Command=[" + command + "]\n");
+            return true;
+        }
+        List<String> inputs = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            inputs.add(line);
+        }
+        try {
+            ViolationReport report = check(inputs);
+            report.write(writer);
+            writer.write(END + " " + report.getViolations().size() + "\n");
+        } catch (RuntimeException e) {
+            writer.write(ERROR + " " + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n");
+        }
+        return true;
+    }
+
+    /**
+     * 指定したクラスディレクトリまたはクラスファイルを解析する。
+     *
+     * @param inputs クラスディレクトリまたはクラスファイルのパス
+     * @return 非公開APIの使用箇所のレポート
+     */
+    ViolationReport check(List<String> inputs) {
+        long fingerprint = PublishedApisInfo.configFingerprint();
+        if (fingerprint != configFingerprint) {
+            // 判定結果のキャッシュも、読み込み直した設定ファイルの公開情報と共に作成し直される。
+            PublishedApisInfo.readConfigFiles();
+            configFingerprint = fingerprint;
+        }
+        List<JavaClass> classes = new ArrayList<>();
+        boolean changed = false;
+        for (String input : inputs) {
+            for (Path classFile : UnpublishedApiChecker.listClassFiles(new File(input))) {
+                byte[] bytes = readAllBytes(classFile);
+                JavaClass javaClass = UnpublishedApiChecker.parse(bytes, classFile);
+                String className = javaClass.getClassName();
+                long digest = digest(bytes);
+                Long previous = analyzedClasses.put(className, digest);
+                if (previous == null ? ClassRepository.cached(className) != null : previous != digest) {
+                    ClassRepository.evict(className);
+                    changed = true;
+                }
+                classes.add(javaClass);
+            }
+        }
+        if (changed) {
+            // 変更されたクラスを継承するクラスの判定結果も変わり得るため、判定結果はすべて破棄する。
+            PublishedApisInfo.invalidateVerdicts();
+        }
+        return UnpublishedApiChecker.analyzeClasses(classes, ShardSpec.ALL);
+    }
+
+    /**
+     * 待ち受けを終了する。
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't close daemon socket. Port=[" + serverSocket.getLocalPort() + "]", e);
+        }
+    }
+
+    /**
+     * クラスファイルの内容のダイジェストを算出する。
+     *
+     * @param bytes クラスファイルの内容
+     * @return 上位32ビットをサイズ、下位32ビットをCRC32とした値
+     */
+    private static long digest(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (long) bytes.length << 32 | crc.getValue();
+    }
+
+    /**
+     * クラスファイルの内容を読み込む。
+     *
+     * @param classFile クラスファイル
+     * @return クラスファイルの内容
+     */
+    private static byte[] readAllBytes(Path classFile) {
+        try {
+            return Files.readAllBytes(classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read class file. Path=[" + classFile + "]", e);
+        }
+    }
+}
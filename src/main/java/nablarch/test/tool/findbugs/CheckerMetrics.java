@@ -0,0 +1,430 @@
+package nablarch.test.tool.findbugs;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 非公開APIチェッカーの内部メトリクスを保持する。
+ * <p/>
+ * 各カウンタは複数スレッドから更新されても競合の少ない{@link LongAdder}で保持する。
+ * システムプロパティ{@code nablarch-findbugs-metrics}に{@code true}を指定した場合、
+ * 解析終了時にメトリクスのサマリを標準エラー出力に出力する。
+ */
+final class CheckerMetrics implements CheckerMetricsMXBean {
+
+    /** JMXに登録する際のオブジェクト名。 */
+    static final String OBJECT_NAME = "nablarch.test.tool.findbugs:type=CheckerMetrics";
+
+    /** ヒストグラムのバケット数。 */
+    private static final int HISTOGRAM_BUCKETS = 40;
+
+    /** 唯一のインスタンス。 */
+    private static final CheckerMetrics INSTANCE = new CheckerMetrics();
+
+    static {
+        registerMBean();
+    }
+
+    /** 公開可否判定の呼出回数。 */
+    private final LongAdder permittedChecks = new LongAdder();
+
+    /** 使用禁止判定の呼出回数。 */
+    private final LongAdder prohibitedChecks = new LongAdder();
+
+    /** 例外クラスの使用禁止判定のキャッシュヒット回数。 */
+    private final LongAdder prohibitedCacheHits = new LongAdder();
+
+    /** キャッシュヒット回数。 */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /** キャッシュミス回数。 */
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /** クラス情報の読み込み回数。 */
+    private final LongAdder classLookups = new LongAdder();
+
+    /** バックグラウンドで読み込んだクラス情報の数。 */
+    private final LongAdder prefetchedClasses = new LongAdder();
+
+    /** クラス情報の読み込み時間の合計。 */
+    private final LongAdder classLookupNanos = new LongAdder();
+
+    /** クラス情報の読み込み時間のヒストグラム。 */
+    private final LongAdder[] classLookupHistogram = new LongAdder[HISTOGRAM_BUCKETS];
+
+    /** 継承階層を辿って公開可否を判定した回数。 */
+    private final LongAdder hierarchyWalks = new LongAdder();
+
+    /** 継承階層を辿った際に訪れたクラス・インタフェースの延べ数。 */
+    private final LongAdder hierarchyNodes = new LongAdder();
+
+    /** 直近の設定ファイル読み込み時間。 */
+    private final AtomicLong configLoadNanos = new AtomicLong();
+
+    /** 解析したクラス数。 */
+    private final LongAdder analyzedClasses = new LongAdder();
+
+    /** 解析したメソッド数。 */
+    private final LongAdder analyzedMethods = new LongAdder();
+
+    /** 呼出元の範囲外のため解析しなかったクラス数。 */
+    private final LongAdder outOfScopeClasses = new LongAdder();
+
+    /** 呼出元の範囲外のため解析しなかったメソッド数。 */
+    private final LongAdder outOfScopeMethods = new LongAdder();
+
+    /** 解析したオペコード数。 */
+    private final LongAdder analyzedOpcodes = new LongAdder();
+
+    /** 判定済みのメソッド参照の判定結果を再利用した回数。 */
+    private final LongAdder resolvedMethodRefReuses = new LongAdder();
+
+    /** ブルームフィルタにより参照を省略したメソッド・コンストラクタ指定の判定数。 */
+    private final LongAdder memberFilterRejects = new LongAdder();
+
+    /** ブルームフィルタを通過したが合致しなかったメソッド・コンストラクタ指定の判定数。 */
+    private final LongAdder memberFilterFalsePositives = new LongAdder();
+
+    /** ベースラインにより抑止した使用箇所の数。 */
+    private final LongAdder baselineSuppressions = new LongAdder();
+
+    /**
+     * コンストラクタ。
+     */
+    private CheckerMetrics() {
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            classLookupHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * インスタンスを取得する。
+     *
+     * @return インスタンス
+     */
+    static CheckerMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * プラットフォームMBeanサーバにメトリクスを登録する。
+     * 既に登録されている場合やJMXが利用できない場合は何もしない。
+     */
+    private static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException | SecurityException e) {
+            // メトリクスはチェック結果に影響しないため、登録できなくても処理を継続する。
+        }
+    }
+
+    /**
+     * 解析終了時にサマリを出力するか否かを判定する。
+     *
+     * @return サマリを出力する場合、{@code true}
+     */
+    static boolean isSummaryEnabled() {
+        return Boolean.getBoolean("nablarch-findbugs-metrics");
+    }
+
+    /** 公開可否判定の呼出を記録する。 */
+    void countPermittedCheck() {
+        permittedChecks.increment();
+    }
+
+    /** 使用禁止判定の呼出を記録する。 */
+    void countProhibitedCheck() {
+        prohibitedChecks.increment();
+    }
+
+    /** 例外クラスの使用禁止判定のキャッシュヒットを記録する。 */
+    void countProhibitedCacheHit() {
+        prohibitedCacheHits.increment();
+    }
+
+    /**
+     * キャッシュの参照結果を記録する。
+     *
+     * @param hit ヒットした場合、{@code true}
+     */
+    void countCache(boolean hit) {
+        if (hit) {
+            cacheHits.increment();
+        } else {
+            cacheMisses.increment();
+        }
+    }
+
+    /**
+     * クラス情報の読み込みを記録する。
+     *
+     * @param nanos 読み込みに要した時間（ナノ秒）
+     */
+    void recordClassLookup(long nanos) {
+        classLookups.increment();
+        classLookupNanos.add(nanos);
+        int bucket = nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+        classLookupHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)].increment();
+    }
+
+    /** バックグラウンドで読み込んだクラス情報を記録する。 */
+    void countPrefetchedClass() {
+        prefetchedClasses.increment();
+    }
+
+    /** 継承階層を辿った公開可否判定を記録する。 */
+    void countHierarchyWalk() {
+        hierarchyWalks.increment();
+    }
+
+    /** 継承階層の判定で訪れたクラス・インタフェースを記録する。 */
+    void countHierarchyNode() {
+        hierarchyNodes.increment();
+    }
+
+    /**
+     * 設定ファイルの読み込み時間を記録する。
+     *
+     * @param nanos 読み込みに要した時間（ナノ秒）
+     */
+    void recordConfigLoad(long nanos) {
+        configLoadNanos.set(nanos);
+    }
+
+    /** クラスの解析を記録する。 */
+    void countAnalyzedClass() {
+        analyzedClasses.increment();
+    }
+
+    /** メソッドの解析を記録する。 */
+    void countAnalyzedMethod() {
+        analyzedMethods.increment();
+    }
+
+    /**
+     * メソッドのオペコードの解析を記録する。
+     * オペコード毎の記録はスレッド間で共有するカウンタの更新となるため、メソッド毎にまとめて記録する。
+     *
+     * @param count メソッドで解析したオペコード数
+     */
+    void countAnalyzedOpcodes(int count) {
+        analyzedOpcodes.add(count);
+    }
+
+    /** 判定済みのメソッド参照の判定結果の再利用を記録する。 */
+    void countResolvedMethodRefReuse() {
+        resolvedMethodRefReuses.increment();
+    }
+
+    /**
+     * メソッド・コンストラクタ指定のブルームフィルタによる判定を記録する。
+     *
+     * @param passed        フィルタを通過した場合{@code true}
+     * @param falsePositive フィルタを通過したが合致しなかった場合{@code true}
+     */
+    void countMemberFilter(boolean passed, boolean falsePositive) {
+        if (!passed) {
+            memberFilterRejects.increment();
+        } else if (falsePositive) {
+            memberFilterFalsePositives.increment();
+        }
+    }
+
+    /** 呼出元の範囲外のクラスを記録する。 */
+    void countOutOfScopeClass() {
+        outOfScopeClasses.increment();
+    }
+
+    /** 呼出元の範囲外のメソッドを記録する。 */
+    void countOutOfScopeMethod() {
+        outOfScopeMethods.increment();
+    }
+
+    /** ベースラインによる使用箇所の抑止を記録する。 */
+    void countBaselineSuppression() {
+        baselineSuppressions.increment();
+    }
+
+    @Override
+    public long getPermittedCheckCount() {
+        return permittedChecks.sum();
+    }
+
+    @Override
+    public long getProhibitedCheckCount() {
+        return prohibitedChecks.sum();
+    }
+
+    @Override
+    public long getProhibitedCacheHitCount() {
+        return prohibitedCacheHits.sum();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public long getClassLookupCount() {
+        return classLookups.sum();
+    }
+
+    @Override
+    public long getClassLookupNanos() {
+        return classLookupNanos.sum();
+    }
+
+    @Override
+    public long getPrefetchedClassCount() {
+        return prefetchedClasses.sum();
+    }
+
+    @Override
+    public long[] getClassLookupLatencyHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = classLookupHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public double getAverageHierarchyDepth() {
+        long walks = hierarchyWalks.sum();
+        return walks == 0 ? 0.0 : (double) hierarchyNodes.sum() / walks;
+    }
+
+    @Override
+    public long getConfigLoadNanos() {
+        return configLoadNanos.get();
+    }
+
+    @Override
+    public long getAnalyzedClassCount() {
+        return analyzedClasses.sum();
+    }
+
+    @Override
+    public long getAnalyzedMethodCount() {
+        return analyzedMethods.sum();
+    }
+
+    @Override
+    public long getAnalyzedOpcodeCount() {
+        return analyzedOpcodes.sum();
+    }
+
+    @Override
+    public long getResolvedMethodRefReuseCount() {
+        return resolvedMethodRefReuses.sum();
+    }
+
+    @Override
+    public long getMemberFilterRejectCount() {
+        return memberFilterRejects.sum();
+    }
+
+    @Override
+    public double getMemberFilterFalsePositiveRate() {
+        long falsePositives = memberFilterFalsePositives.sum();
+        long negatives = falsePositives + memberFilterRejects.sum();
+        return negatives == 0 ? 0.0 : (double) falsePositives / negatives;
+    }
+
+    @Override
+    public long getBaselineSuppressionCount() {
+        return baselineSuppressions.sum();
+    }
+
+    @Override
+    public long getOutOfScopeClassCount() {
+        return outOfScopeClasses.sum();
+    }
+
+    @Override
+    public long getOutOfScopeMethodCount() {
+        return outOfScopeMethods.sum();
+    }
+
+    @Override
+    public void reset() {
+        permittedChecks.reset();
+        prohibitedChecks.reset();
+        prohibitedCacheHits.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        classLookups.reset();
+        classLookupNanos.reset();
+        prefetchedClasses.reset();
+        for (LongAdder bucket : classLookupHistogram) {
+            bucket.reset();
+        }
+        hierarchyWalks.reset();
+        hierarchyNodes.reset();
+        analyzedClasses.reset();
+        analyzedMethods.reset();
+        analyzedOpcodes.reset();
+        resolvedMethodRefReuses.reset();
+        memberFilterRejects.reset();
+        memberFilterFalsePositives.reset();
+        baselineSuppressions.reset();
+        outOfScopeClasses.reset();
+        outOfScopeMethods.reset();
+    }
+
+    /**
+     * メトリクスのサマリを出力する。
+     *
+     * @param out 出力先
+     */
+    void printSummary(PrintStream out) {
+        out.println("[nablarch-unpublished-api-checker] metrics summary");
+        out.printf("  isPermitted calls      : %d%n", getPermittedCheckCount());
+        out.printf("  isProhibited calls     : %d (cached %d)%n", getProhibitedCheckCount(), getProhibitedCacheHitCount());
+        out.printf("  cache hit/miss         : %d/%d (hit rate %.1f%%)%n",
+                getCacheHitCount(), getCacheMissCount(), getCacheHitRate() * 100);
+        long lookups = getClassLookupCount();
+        out.printf("  class lookups          : %d (total %d ms, avg %d us)%n",
+                lookups, TimeUnit.NANOSECONDS.toMillis(getClassLookupNanos()),
+                lookups == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(getClassLookupNanos() / lookups));
+        long[] histogram = getClassLookupLatencyHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] != 0) {
+                out.printf("    < %,14d ns       : %d%n", 1L << (i + 1), histogram[i]);
+            }
+        }
+        out.printf("  prefetched classes     : %d%n", getPrefetchedClassCount());
+        out.printf("  avg hierarchy depth    : %.2f%n", getAverageHierarchyDepth());
+        out.printf("  config load            : %d ms%n", TimeUnit.NANOSECONDS.toMillis(getConfigLoadNanos()));
+        out.printf("  classes/methods/opcodes: %d/%d/%d%n",
+                getAnalyzedClassCount(), getAnalyzedMethodCount(), getAnalyzedOpcodeCount());
+        out.printf("  method ref reuses      : %d%n", getResolvedMethodRefReuseCount());
+        out.printf("  member filter rejects  : %d (false positive rate %.2f%%)%n",
+                getMemberFilterRejectCount(), getMemberFilterFalsePositiveRate() * 100);
+        out.printf("  baseline suppressions  : %d%n", getBaselineSuppressionCount());
+        out.printf("  out-of-scope cls/meth  : %d/%d%n", getOutOfScopeClassCount(), getOutOfScopeMethodCount());
+    }
+}
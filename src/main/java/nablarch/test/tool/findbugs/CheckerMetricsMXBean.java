@@ -0,0 +1,163 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * 非公開APIチェッカーの内部メトリクスをJMXで公開するためのインタフェース。
+ * <p/>
+ * {@code nablarch.test.tool.findbugs:type=CheckerMetrics}という名前でプラットフォームMBeanサーバに登録される。
+ */
+public interface CheckerMetricsMXBean {
+
+    /**
+     * メソッド・コンストラクタの公開可否判定の呼出回数を取得する。
+     *
+     * @return 呼出回数
+     */
+    long getPermittedCheckCount();
+
+    /**
+     * 例外クラスの使用禁止判定の呼出回数を取得する。
+     *
+     * @return 呼出回数
+     */
+    long getProhibitedCheckCount();
+
+    /**
+     * 例外クラスの使用禁止判定のキャッシュヒット回数を取得する。
+     *
+     * @return ヒット回数
+     */
+    long getProhibitedCacheHitCount();
+
+    /**
+     * 判定結果キャッシュのヒット回数を取得する。
+     *
+     * @return ヒット回数
+     */
+    long getCacheHitCount();
+
+    /**
+     * 判定結果キャッシュのミス回数を取得する。
+     *
+     * @return ミス回数
+     */
+    long getCacheMissCount();
+
+    /**
+     * 判定結果キャッシュのヒット率を取得する。
+     *
+     * @return ヒット率（0.0～1.0）
+     */
+    double getCacheHitRate();
+
+    /**
+     * クラス情報の読み込み回数を取得する。
+     *
+     * @return 読み込み回数
+     */
+    long getClassLookupCount();
+
+    /**
+     * クラス情報の読み込みに要した時間の合計（ナノ秒）を取得する。
+     *
+     * @return 読み込み時間の合計
+     */
+    long getClassLookupNanos();
+
+    /**
+     * バックグラウンドで読み込んだクラス情報の数を取得する。
+     *
+     * @return 読み込んだクラス情報の数
+     */
+    long getPrefetchedClassCount();
+
+    /**
+     * クラス情報の読み込み時間のヒストグラムを取得する。
+     * 要素{@code i}は、読み込み時間が{@code 2^i}ナノ秒以上{@code 2^(i+1)}ナノ秒未満だった回数を表す。
+     *
+     * @return 読み込み時間のヒストグラム
+     */
+    long[] getClassLookupLatencyHistogram();
+
+    /**
+     * 公開可否判定1回あたりに辿った継承階層（クラス・インタフェース）の平均数を取得する。
+     *
+     * @return 平均階層数
+     */
+    double getAverageHierarchyDepth();
+
+    /**
+     * 直近の設定ファイル読み込みに要した時間（ナノ秒）を取得する。
+     *
+     * @return 設定ファイル読み込み時間
+     */
+    long getConfigLoadNanos();
+
+    /**
+     * ディテクターが解析したクラス数を取得する。
+     *
+     * @return 解析したクラス数
+     */
+    long getAnalyzedClassCount();
+
+    /**
+     * ディテクターが解析したメソッド数を取得する。
+     *
+     * @return 解析したメソッド数
+     */
+    long getAnalyzedMethodCount();
+
+    /**
+     * ディテクターが解析したオペコード数を取得する。
+     *
+     * @return 解析したオペコード数
+     */
+    long getAnalyzedOpcodeCount();
+
+    /**
+     * ディテクターが、同じクラス内で判定済みのメソッド参照の判定結果を再利用した回数を取得する。
+     *
+     * @return 判定結果を再利用した回数
+     */
+    long getResolvedMethodRefReuseCount();
+
+    /**
+     * メソッド・コンストラクタ指定のブルームフィルタにより、参照を省略した判定の数を取得する。
+     *
+     * @return 参照を省略した判定の数
+     */
+    long getMemberFilterRejectCount();
+
+    /**
+     * メソッド・コンストラクタ指定のブルームフィルタの偽陽性率を取得する。
+     * 合致しなかった判定のうち、フィルタを通過した判定の割合とする。
+     *
+     * @return 偽陽性率
+     */
+    double getMemberFilterFalsePositiveRate();
+
+    /**
+     * ベースラインに記録済みのため報告を抑止した使用箇所の数を取得する。
+     *
+     * @return 抑止した使用箇所の数
+     */
+    long getBaselineSuppressionCount();
+
+    /**
+     * 呼出元の範囲外のため解析しなかったクラス数を取得する。
+     *
+     * @return 解析しなかったクラス数
+     */
+    long getOutOfScopeClassCount();
+
+    /**
+     * 呼出元の範囲外のため解析しなかったメソッド数を取得する。
+     *
+     * @return 解析しなかったメソッド数
+     */
+    long getOutOfScopeMethodCount();
+
+    /**
+     * すべてのメトリクスをリセットする。
+     */
+    void reset();
+}
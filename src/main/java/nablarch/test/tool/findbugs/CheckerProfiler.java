@@ -0,0 +1,281 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 解析処理のプロファイル情報を収集し、JSON形式で出力する。
+ * <p/>
+ * システムプロパティ{@code nablarch-findbugs-profile}に出力先ファイルのパスを指定した場合のみ有効となる。
+ * 解析したクラス（呼出元）毎の処理時間・メモリ割り当て量と、
+ * {@link PublishedApisInfo}での判定に要した時間を呼出先のクラス・パッケージ毎に集計し、
+ * 上位N件（システムプロパティ{@code nablarch-findbugs-profile-top}、デフォルト20件）を出力する。
+ */
+final class CheckerProfiler {
+
+    /** 出力件数のデフォルト値。 */
+    private static final int DEFAULT_TOP = 20;
+
+    /** 実行中のプロファイラ。プロファイルが無効な場合は{@code null}。 */
+    private static volatile CheckerProfiler active;
+
+    /** 出力先ファイル。 */
+    private final File outputFile;
+
+    /** 出力件数。 */
+    private final int top;
+
+    /** 呼出元クラス毎の集計。 */
+    private final ConcurrentMap<String, Stat> callers = new ConcurrentHashMap<>();
+
+    /** 呼出先クラス毎の集計。 */
+    private final ConcurrentMap<String, Stat> callees = new ConcurrentHashMap<>();
+
+    /** スレッド毎のメモリ割り当て量を取得するためのMXBean。取得できない場合は{@code null}。 */
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param outputFile 出力先ファイル
+     * @param top        出力件数
+     */
+    CheckerProfiler(File outputFile, int top) {
+        this.outputFile = outputFile;
+        this.top = top;
+        this.allocationBean = getAllocationBean();
+    }
+
+    /**
+     * システムプロパティの設定に従ってプロファイルを開始する。
+     * 既にプロファイル中の場合や、プロファイルが無効な場合は何もしない。
+     * SpotBugsがdetectorを複数生成した場合も、集計中の結果を破棄しないようにする。
+     */
+    static synchronized void startIfEnabled() {
+        String path = System.getProperty("nablarch-findbugs-profile");
+        if (active != null || path == null || path.isEmpty()) {
+            return;
+        }
+        active = new CheckerProfiler(new File(path), Integer.getInteger("nablarch-findbugs-profile-top", DEFAULT_TOP));
+    }
+
+    /**
+     * 実行中のプロファイラを取得する。
+     *
+     * @return 実行中のプロファイラ。プロファイルが無効な場合は{@code null}
+     */
+    static CheckerProfiler active() {
+        return active;
+    }
+
+    /**
+     * プロファイルを終了し、結果をファイルに出力する。
+     * プロファイルが無効な場合は何もしない。
+     */
+    static synchronized void finish() {
+        CheckerProfiler profiler = active;
+        if (profiler == null) {
+            return;
+        }
+        active = null;
+        profiler.write();
+    }
+
+    /**
+     * 現在のスレッドのメモリ割り当て量を取得する。
+     *
+     * @return メモリ割り当て量（バイト）。取得できない場合は0
+     */
+    long currentThreadAllocatedBytes() {
+        return allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 呼出元クラスの解析結果を記録する。
+     *
+     * @param className      呼出元クラス名
+     * @param nanos          解析に要した時間（ナノ秒）
+     * @param allocatedBytes 解析中に割り当てたメモリ量（バイト）
+     */
+    void recordCaller(String className, long nanos, long allocatedBytes) {
+        Stat stat = callers.computeIfAbsent(className, k -> new Stat());
+        stat.add(nanos, allocatedBytes);
+    }
+
+    /**
+     * 呼出先クラスの判定に要した時間を記録する。
+     *
+     * @param className 呼出先クラス名
+     * @param nanos     判定に要した時間（ナノ秒）
+     */
+    void recordCallee(String className, long nanos) {
+        Stat stat = callees.computeIfAbsent(className, k -> new Stat());
+        stat.add(nanos, 0);
+    }
+
+    /**
+     * 集計結果をJSON形式でファイルに出力する。
+     */
+    void write() {
+        File parent = outputFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new RuntimeException("Couldn't create profile output directory. Path=[" + parent + "]");
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+            writeJson(writer);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write profile. Path=[" + outputFile + "]", e);
+        }
+    }
+
+    /**
+     * 集計結果をJSON形式で出力する。
+     *
+     * @param writer 出力先
+     * @throws IOException 出力に失敗した場合
+     */
+    void writeJson(Writer writer) throws IOException {
+        writer.write("{\n");
+        writer.write("  \"analyzedClasses\": " + callers.size() + ",\n");
+        writer.write("  \"totalCallerNanos\": " + total(callers) + ",\n");
+        writer.write("  \"totalCalleeNanos\": " + total(callees) + ",\n");
+        writeEntries(writer, "slowestCallers", "class", callers, true);
+        writer.write(",\n");
+        writeEntries(writer, "slowestCallerPackages", "package", byPackage(callers), true);
+        writer.write(",\n");
+        writeEntries(writer, "slowestCallees", "class", callees, false);
+        writer.write(",\n");
+        writeEntries(writer, "slowestCalleePackages", "package", byPackage(callees), false);
+        writer.write("\n}\n");
+    }
+
+    /**
+     * 集計結果を処理時間の降順に上位N件出力する。
+     *
+     * @param writer         出力先
+     * @param name           JSONの項目名
+     * @param keyName        集計キーの項目名
+     * @param stats          集計結果
+     * @param withAllocation メモリ割り当て量を出力する場合、{@code true}
+     * @throws IOException 出力に失敗した場合
+     */
+    private void writeEntries(Writer writer, String name, String keyName, Map<String, Stat> stats,
+                              boolean withAllocation) throws IOException {
+        List<Map.Entry<String, Stat>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Stat> e) -> e.getValue().nanos.sum()).reversed()
+                .thenComparing(Map.Entry::getKey));
+        writer.write("  \"" + name + "\": [");
+        for (int i = 0; i < Math.min(top, entries.size()); i++) {
+            Map.Entry<String, Stat> entry = entries.get(i);
+            Stat stat = entry.getValue();
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("    {\"" + keyName + "\": \"" + JsonStrings.escape(entry.getKey()) + "\""
+                    + ", \"nanos\": " + stat.nanos.sum()
+                    + ", \"count\": " + stat.count.sum());
+            if (withAllocation) {
+                writer.write(", \"allocatedBytes\": " + stat.allocatedBytes.sum());
+            }
+            writer.write("}");
+        }
+        writer.write(entries.isEmpty() ? "]" : "\n  ]");
+    }
+
+    /**
+     * クラス毎の集計結果をパッケージ毎に集計し直す。
+     *
+     * @param stats クラス毎の集計結果
+     * @return パッケージ毎の集計結果
+     */
+    private static Map<String, Stat> byPackage(Map<String, Stat> stats) {
+        Map<String, Stat> packages = new HashMap<>();
+        for (Map.Entry<String, Stat> entry : stats.entrySet()) {
+            String className = entry.getKey();
+            int index = className.lastIndexOf('.');
+            String packageName = index < 0 ? "" : className.substring(0, index);
+            packages.computeIfAbsent(packageName, k -> new Stat()).merge(entry.getValue());
+        }
+        return packages;
+    }
+
+    /**
+     * 集計結果の処理時間の合計を得る。
+     *
+     * @param stats 集計結果
+     * @return 処理時間の合計（ナノ秒）
+     */
+    private static long total(Map<String, Stat> stats) {
+        long total = 0;
+        for (Stat stat : stats.values()) {
+            total += stat.nanos.sum();
+        }
+        return total;
+    }
+
+    /**
+     * スレッド毎のメモリ割り当て量を取得できるMXBeanを取得する。
+     *
+     * @return MXBean。利用できない場合は{@code null}
+     */
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 集計値。
+     */
+    private static final class Stat {
+
+        /** 処理時間の合計。 */
+        private final LongAdder nanos = new LongAdder();
+
+        /** 回数。 */
+        private final LongAdder count = new LongAdder();
+
+        /** メモリ割り当て量の合計。 */
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        /**
+         * 集計値を加算する。
+         *
+         * @param nanos          処理時間
+         * @param allocatedBytes メモリ割り当て量
+         */
+        void add(long nanos, long allocatedBytes) {
+            this.nanos.add(nanos);
+            this.count.increment();
+            this.allocatedBytes.add(allocatedBytes);
+        }
+
+        /**
+         * 他の集計値を加算する。
+         *
+         * @param other 他の集計値
+         */
+        void merge(Stat other) {
+            nanos.add(other.nanos.sum());
+            count.add(other.count.sum());
+            allocatedBytes.add(other.allocatedBytes.sum());
+        }
+    }
+}
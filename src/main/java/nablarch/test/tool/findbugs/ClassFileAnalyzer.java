@@ -0,0 +1,319 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ExceptionTable;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.LineNumberTable;
+import org.apache.bcel.classfile.Method;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * SpotBugsを使用せず、BCELのみでクラスファイルを解析して非公開APIの使用箇所を検出する。
+ * <p/>
+ * {@link UsageOfUnpublishedMethodDetector}と同じく、以下を検出する。
+ * <ul>
+ * <li>非公開のメソッド・コンストラクタの呼出</li>
+ * <li>throws節に指定された使用禁止の例外</li>
+ * <li>catch節に指定された使用禁止の例外</li>
+ * </ul>
+ * 同じクラス内で判定済みのメソッド参照は、コンスタントプールインデックスにより判定結果を再利用する。
+ * 判定結果がキャッシュされていないメソッド参照は、クラス内の呼出を収集した後に呼出先クラス毎にまとめて判定する
+ * （{@link PublishedApisInfo#isPermitted(CallSiteBatch)}）。
+ */
+final class ClassFileAnalyzer {
+
+    /** 長さが固定の命令の長さ。未定義の命令は0。 */
+    private static final byte[] INSTRUCTION_LENGTHS = new byte[256];
+
+    static {
+        for (int opcode = 0; opcode < INSTRUCTION_LENGTHS.length; opcode++) {
+            if (Const.getNoOfOperands(opcode) < 0) {
+                continue;
+            }
+            int length = 1;
+            for (int i = 0; i < Const.getOperandTypeCount(opcode); i++) {
+                short type = Const.getOperandType(opcode, i);
+                length += type == Const.T_INT ? 4 : type == Const.T_SHORT ? 2 : 1;
+            }
+            INSTRUCTION_LENGTHS[opcode] = (byte) length;
+        }
+    }
+
+    /**
+     * コンストラクタ。
+     */
+    private ClassFileAnalyzer() {
+    }
+
+    /**
+     * クラスを解析する。
+     *
+     * @param javaClass 解析対象のクラス
+     * @return 非公開APIの使用箇所
+     */
+    static List<Violation> analyze(JavaClass javaClass) {
+        List<Violation> violations = new ArrayList<>();
+        analyze(javaClass, violations::add);
+        return violations;
+    }
+
+    /**
+     * クラスを解析し、検出した使用箇所を順次出力する。
+     * 呼出元の範囲（{@link CallerScope}）外のクラス・メソッドは解析しない。
+     *
+     * @param javaClass 解析対象のクラス
+     * @param sink      使用箇所の出力先
+     */
+    static void analyze(JavaClass javaClass, ViolationSink sink) {
+        CallerScope scope = PublishedApisInfo.getCallerScope();
+        if (!scope.includesClass(javaClass)) {
+            return;
+        }
+        ConstantPool constantPool = javaClass.getConstantPool();
+        MethodRefVerdicts verdicts = new MethodRefVerdicts(constantPool.getLength());
+        ConstantPoolKeys keys = new ConstantPoolKeys(constantPool, PublishedApisInfo.getVerdictCache());
+        Method[] methods = javaClass.getMethods();
+        for (Method method : methods) {
+            if (scope.includesMethod(method)) {
+                collectMethodRefs(method, keys, verdicts);
+            }
+        }
+        resolvePending(constantPool, verdicts);
+        for (Method method : methods) {
+            if (scope.includesMethod(method)) {
+                analyzeMethod(javaClass, method, verdicts, sink);
+            }
+        }
+    }
+
+    /**
+     * メソッドから呼び出されるメソッド参照のうち、判定結果がキャッシュされているものは判定結果を記録し、
+     * キャッシュされていないものは一括判定の対象として記録する。
+     *
+     * @param method   解析対象のメソッド
+     * @param keys     コンスタントプールのメソッド参照の判定結果のキー
+     * @param verdicts 判定結果の記録先
+     */
+    private static void collectMethodRefs(Method method, ConstantPoolKeys keys, MethodRefVerdicts verdicts) {
+        Code code = method.getCode();
+        if (code == null) {
+            return;
+        }
+        byte[] bytecode = code.getCode();
+        for (int pc = 0; pc < bytecode.length; pc += instructionLength(bytecode, pc)) {
+            if (!isInvocation(bytecode[pc] & 0xff)) {
+                continue;
+            }
+            int index = (bytecode[pc + 1] & 0xff) << 8 | bytecode[pc + 2] & 0xff;
+            if (verdicts.resolved.get(index) || verdicts.pending.get(index)) {
+                continue;
+            }
+            int verdict = PublishedApisInfo.getCachedVerdict(keys.getVerdictCache(), keys.keyOf(index));
+            if (verdict == VerdictCache.UNKNOWN) {
+                verdicts.pending.set(index);
+            } else if (verdict == VerdictCache.PERMITTED) {
+                verdicts.resolved.set(index);
+            } else {
+                ConstantPool constantPool = method.getConstantPool();
+                ConstantCP methodRef = constantPool.getConstant(index);
+                ConstantNameAndType nameAndType = constantPool.getConstant(methodRef.getNameAndTypeIndex());
+                verdicts.record(index, constantPool.getConstantString(methodRef.getClassIndex(), Const.CONSTANT_Class)
+                        .replace('/', '.'), nameAndType.getName(constantPool), nameAndType.getSignature(constantPool), false);
+            }
+        }
+    }
+
+    /**
+     * 判定結果がキャッシュされていないメソッド参照を、呼出先クラス毎にまとめて判定し、判定結果を記録する。
+     *
+     * @param constantPool コンスタントプール
+     * @param verdicts     判定結果の記録先
+     */
+    private static void resolvePending(ConstantPool constantPool, MethodRefVerdicts verdicts) {
+        if (verdicts.pending.isEmpty()) {
+            return;
+        }
+        CallSiteBatch batch = new CallSiteBatch();
+        BitSet pending = verdicts.pending;
+        for (int index = pending.nextSetBit(0); index >= 0; index = pending.nextSetBit(index + 1)) {
+            ConstantCP methodRef = constantPool.getConstant(index);
+            ConstantNameAndType nameAndType = constantPool.getConstant(methodRef.getNameAndTypeIndex());
+            batch.add(constantPool.getConstantString(methodRef.getClassIndex(), Const.CONSTANT_Class).replace('/', '.'),
+                    nameAndType.getName(constantPool), nameAndType.getSignature(constantPool));
+        }
+        boolean[] permitted = PublishedApisInfo.isPermitted(batch);
+        // 一括判定の呼出箇所は、コンスタントプールインデックスの昇順に追加している。
+        int i = 0;
+        for (int index = pending.nextSetBit(0); index >= 0; index = pending.nextSetBit(index + 1), i++) {
+            verdicts.record(index, batch.getClassName(i), batch.getMethodName(i), batch.getMethodSig(i), permitted[i]);
+        }
+        pending.clear();
+    }
+
+    /**
+     * メソッドを解析する。
+     *
+     * @param javaClass  解析対象のクラス
+     * @param method     解析対象のメソッド
+     * @param verdicts   クラス内で判定済みのメソッド参照の判定結果
+     * @param sink       使用箇所の出力先
+     */
+    private static void analyzeMethod(JavaClass javaClass, Method method, MethodRefVerdicts verdicts,
+                                      ViolationSink sink) {
+        String className = javaClass.getClassName();
+        ConstantPool constantPool = method.getConstantPool();
+        Code code = method.getCode();
+        if (code == null) {
+            // 検出器と同様に、コードを持たない抽象メソッド・ネイティブメソッドはthrows節もチェックしない。
+            return;
+        }
+        ExceptionTable throwsClause = method.getExceptionTable();
+        if (throwsClause != null) {
+            for (int index : throwsClause.getExceptionIndexTable()) {
+                String internalName = constantPool.getConstantString(index, Const.CONSTANT_Class);
+                if (PublishedApisInfo.isProhibitedException(internalName)) {
+                    sink.accept(new Violation(className, method.getName(), method.getSignature(), -1,
+                            internalName.replace('/', '.'), Violation.Kind.THROWS));
+                }
+            }
+        }
+
+        LineNumberTable lines = code.getLineNumberTable();
+        // 命令毎にInstructionを生成しないよう、バイトコードを直接走査する。
+        byte[] bytecode = code.getCode();
+        for (int pc = 0; pc < bytecode.length; pc += instructionLength(bytecode, pc)) {
+            if (!isInvocation(bytecode[pc] & 0xff)) {
+                continue;
+            }
+            int index = (bytecode[pc + 1] & 0xff) << 8 | bytecode[pc + 2] & 0xff;
+            String unpublishedApi = verdicts.unpublishedApis[index];
+            if (unpublishedApi != null) {
+                sink.accept(new Violation(className, method.getName(), method.getSignature(), lineOf(lines, pc),
+                        unpublishedApi, Violation.Kind.CALL));
+            }
+        }
+
+        for (CodeException handler : code.getExceptionTable()) {
+            // catchType が0の場合は finally句
+            if (handler.getCatchType() == 0) {
+                continue;
+            }
+            String internalName = constantPool.getConstantString(handler.getCatchType(), Const.CONSTANT_Class);
+            if (PublishedApisInfo.isProhibitedException(internalName)) {
+                sink.accept(new Violation(className, method.getName(), method.getSignature(),
+                        lineOf(lines, handler.getHandlerPC()), internalName.replace('/', '.'), Violation.Kind.CATCH));
+            }
+        }
+    }
+
+    /**
+     * プログラムカウンタに対応する行番号を取得する。
+     *
+     * @param lines 行番号表（{@code null}可）
+     * @param pc    プログラムカウンタ
+     * @return 行番号。不明な場合は-1
+     */
+    private static int lineOf(LineNumberTable lines, int pc) {
+        return lines == null ? -1 : lines.getSourceLine(pc);
+    }
+
+    /**
+     * 命令の長さ（オペコードとオペランドのバイト数）を取得する。
+     *
+     * @param bytecode バイトコード
+     * @param pc       命令のプログラムカウンタ
+     * @return 命令の長さ
+     */
+    static int instructionLength(byte[] bytecode, int pc) {
+        int opcode = bytecode[pc] & 0xff;
+        switch (opcode) {
+            case Const.TABLESWITCH: {
+                int operands = (pc + 4) & ~3;
+                int low = readInt(bytecode, operands + 4);
+                int high = readInt(bytecode, operands + 8);
+                return operands - pc + 12 + (high - low + 1) * 4;
+            }
+            case Const.LOOKUPSWITCH: {
+                int operands = (pc + 4) & ~3;
+                return operands - pc + 8 + readInt(bytecode, operands + 4) * 8;
+            }
+            case Const.WIDE:
+                return (bytecode[pc + 1] & 0xff) == Const.IINC ? 6 : 4;
+            default:
+                int length = INSTRUCTION_LENGTHS[opcode];
+                if (length == 0) {
+                    throw new IllegalStateException("Invalid opcode. Opcode=[" + opcode + "], pc=[" + pc + "]");
+                }
+                return length;
+        }
+    }
+
+    /**
+     * ビッグエンディアンの4バイト整数を読み込む。
+     */
+    private static int readInt(byte[] bytecode, int offset) {
+        return (bytecode[offset] & 0xff) << 24 | (bytecode[offset + 1] & 0xff) << 16
+                | (bytecode[offset + 2] & 0xff) << 8 | bytecode[offset + 3] & 0xff;
+    }
+
+    /**
+     * 指定されたオペコード値がメソッドコール命令であれば{@code true}を返す。
+     *
+     * @param opcode オペコード
+     * @return 指定されたオペコード値がメソッドコール命令であれば{@code true}
+     */
+    private static boolean isInvocation(int opcode) {
+        return opcode == Const.INVOKEVIRTUAL
+                || opcode == Const.INVOKEINTERFACE
+                || opcode == Const.INVOKESTATIC
+                || opcode == Const.INVOKESPECIAL;
+    }
+
+    /**
+     * クラス内で判定済みのメソッド参照の判定結果。
+     */
+    private static final class MethodRefVerdicts {
+
+        /** 判定済みのメソッド参照のコンスタントプールインデックス。 */
+        private final BitSet resolved = new BitSet();
+
+        /** 一括判定を待つメソッド参照のコンスタントプールインデックス。 */
+        private final BitSet pending = new BitSet();
+
+        /** コンスタントプールインデックスごとの、使用された非公開API。公開されている場合は{@code null}。 */
+        private final String[] unpublishedApis;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param constantPoolLength コンスタントプールの長さ
+         */
+        MethodRefVerdicts(int constantPoolLength) {
+            unpublishedApis = new String[constantPoolLength];
+        }
+
+        /**
+         * メソッド参照の判定結果を記録する。
+         *
+         * @param index            メソッド参照のコンスタントプールインデックス
+         * @param calleeClassName  呼び出されたAPIのクラス名
+         * @param calleeMethodName 呼び出されたAPIのメソッド名
+         * @param calleeMethodSig  呼び出されたAPIメソッドシグネチャ
+         * @param permitted        公開されている場合{@code true}
+         */
+        void record(int index, String calleeClassName, String calleeMethodName, String calleeMethodSig,
+                    boolean permitted) {
+            resolved.set(index);
+            unpublishedApis[index] = permitted ? null
+                    : PublishedApisInfo.getCalleeApi(calleeClassName, calleeMethodName, calleeMethodSig);
+        }
+    }
+}
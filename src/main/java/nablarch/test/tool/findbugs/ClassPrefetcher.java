@@ -0,0 +1,241 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.ClassFormatException;
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantInterfaceMethodref;
+import org.apache.bcel.classfile.ConstantMethodref;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.ClassPath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析対象クラスのコンスタントプールに記載された呼出先クラスの情報を、バックグラウンドで読み込む。
+ * <p/>
+ * システムプロパティ{@code nablarch-findbugs-prefetch}に{@code true}を指定した場合のみ有効となる。
+ * クラスの解析開始時に、メソッド参照の呼出先クラスとそのスーパークラス・インタフェースの読み込みを依頼し、
+ * 公開可否の判定時には{@link ClassRepository}のキャッシュから取得できるようにする。
+ * <p/>
+ * SpotBugsの{@code AnalysisCache}やBCELの{@link org.apache.bcel.Repository}はスレッドセーフではないため、
+ * クラスファイルはSpotBugsの解析対象・補助クラスパスから作成した専用の{@link ClassPath}から読み込み、
+ * 解析を終えた{@link ClassSummary}のみを{@link ClassRepository}に登録する。
+ * 読み込みは1スレッドで行い、依頼が溜まった場合は古い依頼から破棄する。
+ * 見つからないクラスや不正なクラスファイルは無視し、判定時の読み込みで改めてエラーとする。
+ */
+final class ClassPrefetcher {
+
+    /** {@code java.lang.Object}のクラス名。 */
+    private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+
+    /** 読み込みを待つ依頼の上限。 */
+    private static final int QUEUE_CAPACITY = 256;
+
+    /** 有効な読み込み。無効な場合は{@code null}。 */
+    private static volatile ClassPrefetcher active;
+
+    /** 内部メトリクス。 */
+    private final CheckerMetrics metrics = CheckerMetrics.getInstance();
+
+    /** クラスファイルの読み込み元。 */
+    private final ClassPath classPath;
+
+    /** 読み込みを行うスレッド。 */
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "nablarch-findbugs-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    /**
+     * コンストラクタ。
+     *
+     * @param classPath クラスファイルの読み込み元
+     */
+    private ClassPrefetcher(ClassPath classPath) {
+        this.classPath = classPath;
+    }
+
+    /**
+     * システムプロパティの設定に従って、現在のSpotBugsの解析のクラスパスから読み込みを開始する。
+     * 既に開始している場合や、無効な場合、SpotBugsの解析中でない場合は何もしない。
+     */
+    static synchronized void startIfEnabled() {
+        if (active != null || !Boolean.getBoolean("nablarch-findbugs-prefetch")) {
+            return;
+        }
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (analysisCache == null) {
+            return;
+        }
+        startIfEnabled(new ClassPath(toClassPath(analysisCache.getClassPath())));
+    }
+
+    /**
+     * システムプロパティの設定に従って、指定したクラスパスから読み込みを開始する。
+     * 既に開始している場合や、無効な場合は何もしない。
+     *
+     * @param classPath クラスファイルの読み込み元
+     */
+    static synchronized void startIfEnabled(ClassPath classPath) {
+        if (active != null || !Boolean.getBoolean("nablarch-findbugs-prefetch")) {
+            return;
+        }
+        active = new ClassPrefetcher(classPath);
+    }
+
+    /**
+     * SpotBugsのクラスパスを、解析対象・補助クラスパス・システムクラスパスの順に連結する。
+     *
+     * @param spotBugsClassPath SpotBugsのクラスパス
+     * @return クラスパス文字列
+     */
+    static String toClassPath(IClassPath spotBugsClassPath) {
+        StringBuilder sb = new StringBuilder();
+        appendPathNames(sb, spotBugsClassPath.appCodeBaseIterator());
+        appendPathNames(sb, spotBugsClassPath.auxCodeBaseIterator());
+        return sb.append(ClassPath.getClassPath()).toString();
+    }
+
+    /**
+     * コードベースのパスをクラスパス文字列に追加する。パスを持たないコードベースは無視する。
+     *
+     * @param sb        クラスパス文字列
+     * @param codeBases コードベース
+     */
+    private static void appendPathNames(StringBuilder sb, Iterator<? extends ICodeBase> codeBases) {
+        while (codeBases.hasNext()) {
+            String pathName = codeBases.next().getPathName();
+            if (pathName != null) {
+                sb.append(pathName).append(File.pathSeparator);
+            }
+        }
+    }
+
+    /**
+     * 有効な読み込みを取得する。
+     *
+     * @return 読み込み。無効な場合は{@code null}
+     */
+    static ClassPrefetcher active() {
+        return active;
+    }
+
+    /**
+     * 読み込みを終了する。未処理の依頼は破棄し、処理中の依頼の終了を待ってからクラスパスを閉じる。無効な場合は何もしない。
+     */
+    static synchronized void finish() {
+        ClassPrefetcher prefetcher = active;
+        if (prefetcher == null) {
+            return;
+        }
+        active = null;
+        prefetcher.executor.getQueue().clear();
+        prefetcher.executor.shutdown();
+        try {
+            prefetcher.executor.awaitTermination(1, TimeUnit.MINUTES);
+            prefetcher.classPath.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Couldn't close class path for prefetch. " + e);
+        } catch (UnsupportedOperationException e) {
+            // BCELは実行中のJDKのモジュールイメージ（jrt）を閉じられないが、それ以前のjarファイルは閉じられている。
+        }
+    }
+
+    /**
+     * 解析対象クラスが呼び出すクラスの読み込みを依頼する。
+     * 解析スレッドではクラス名の収集のみ行い、クラス名の変換と読み込みは読み込み用のスレッドで行う。
+     *
+     * @param javaClass 解析対象のクラス
+     */
+    void submit(JavaClass javaClass) {
+        ConstantPool constantPool = javaClass.getConstantPool();
+        List<String> internalNames = new ArrayList<>();
+        for (Constant constant : constantPool.getConstantPool()) {
+            if (constant instanceof ConstantMethodref || constant instanceof ConstantInterfaceMethodref) {
+                internalNames.add(constantPool.getConstantString(((ConstantCP) constant).getClassIndex(),
+                        Const.CONSTANT_Class));
+            }
+        }
+        if (!internalNames.isEmpty()) {
+            executor.execute(() -> {
+                try {
+                    prefetch(internalNames);
+                } catch (RuntimeException e) {
+                    // 想定外のエラーは、判定時の読み込みに影響しないよう出力のみ行う。
+                    System.err.println("Couldn't prefetch classes. " + e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 呼出先クラスと、そのスーパークラス・インタフェースを読み込む。
+     *
+     * @param internalNames 内部形式の呼出先クラス名（重複を含む）
+     */
+    private void prefetch(List<String> internalNames) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String internalName : internalNames) {
+            // 配列に対する呼出は、クラス情報を読み込まずに判定される。
+            if (!internalName.startsWith("[")) {
+                pending.add(internalName.replace('/', '.'));
+            }
+        }
+        while (!pending.isEmpty() && !executor.isShutdown()) {
+            String className = pending.poll();
+            if (OBJECT_CLASS_NAME.equals(className) || !visited.add(className)) {
+                continue;
+            }
+            ClassSummary summary = ClassRepository.cached(className);
+            if (summary == null) {
+                summary = read(className);
+                if (summary == null) {
+                    continue;
+                }
+                if (ClassRepository.publish(summary)) {
+                    metrics.countPrefetchedClass();
+                }
+            }
+            pending.add(summary.getSuperclassName());
+            pending.addAll(summary.getInterfaceNames());
+        }
+    }
+
+    /**
+     * 専用のクラスパスからクラスファイルを読み込み、クラス情報を作成する。
+     *
+     * @param className クラス名
+     * @return クラス情報。見つからない場合や不正なクラスファイルの場合は{@code null}（判定時の読み込みで改めてエラーとする）
+     */
+    private ClassSummary read(String className) {
+        try (InputStream in = classPath.getInputStream(className)) {
+            return new ClassSummary(new ClassParser(in, className).parse());
+        } catch (IOException | ClassFormatException e) {
+            return null;
+        }
+    }
+}
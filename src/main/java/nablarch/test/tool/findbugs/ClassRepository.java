@@ -0,0 +1,163 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 公開可否の判定に必要なクラス情報を読み込み、複数スレッドから参照できるようキャッシュする。
+ * <p/>
+ * BCELの{@link Repository}はスレッドセーフではないため、クラス情報の読み込みは排他して行い、
+ * 読み込んだ情報は不変の{@link ClassSummary}としてキャッシュする。
+ * SpotBugsは解析の開始時に{@link Repository}を差し替えるため、差し替えられた場合はキャッシュを破棄する。
+ * <p/>
+ * 前回の実行で保存したクラス情報（{@link WarmStartSnapshot}）は、{@link Repository}の差し替えによらず参照し、
+ * キャッシュに存在しない場合に{@link Repository}から読み込む前に使用する。
+ */
+final class ClassRepository {
+
+    /** {@link Repository}の読み込みを排他するためのロック。 */
+    private static final Object LOCK = new Object();
+
+    /** キャッシュしたクラス情報。 */
+    private static volatile Cache cache = new Cache(null);
+
+    /** 前回の実行で保存したクラス情報。 */
+    private static final ConcurrentMap<String, ClassSummary> PRELOADED = new ConcurrentHashMap<>();
+
+    /**
+     * コンストラクタ。
+     */
+    private ClassRepository() {
+    }
+
+    /**
+     * クラス情報を取得する。
+     *
+     * @param className クラス名
+     * @return クラス情報
+     * @throws ClassNotFoundException クラス情報を取得できない場合
+     */
+    static ClassSummary lookup(String className) throws ClassNotFoundException {
+        Cache current = cache;
+        ClassSummary summary = current.summaries.get(className);
+        if (summary != null && current.repository == Repository.getRepository()) {
+            return summary;
+        }
+        summary = PRELOADED.get(className);
+        if (summary != null) {
+            return summary;
+        }
+        synchronized (LOCK) {
+            org.apache.bcel.util.Repository repository = Repository.getRepository();
+            if (cache.repository != repository) {
+                cache = new Cache(repository);
+            }
+            summary = cache.summaries.get(className);
+            if (summary == null) {
+                JavaClass javaClass = Repository.lookupClass(className);
+                summary = new ClassSummary(javaClass);
+                cache.summaries.put(className, summary);
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * クラス情報がキャッシュされているか否かを判定する。
+     *
+     * @param className クラス名
+     * @return キャッシュされている場合{@code true}
+     */
+    static boolean isCached(String className) {
+        return cached(className) != null;
+    }
+
+    /**
+     * キャッシュしているクラス情報を取得する。{@link Repository}からの読み込みは行わない。
+     *
+     * @param className クラス名
+     * @return クラス情報。キャッシュされていない場合は{@code null}
+     */
+    static ClassSummary cached(String className) {
+        Cache current = cache;
+        ClassSummary summary = current.repository == Repository.getRepository() ? current.summaries.get(className) : null;
+        return summary != null ? summary : PRELOADED.get(className);
+    }
+
+    /**
+     * {@link Repository}を使用せずに作成したクラス情報をキャッシュに登録する。
+     * 既にキャッシュされている場合は登録しない。
+     *
+     * @param summary クラス情報
+     * @return 登録した場合{@code true}
+     */
+    static boolean publish(ClassSummary summary) {
+        synchronized (LOCK) {
+            org.apache.bcel.util.Repository repository = Repository.getRepository();
+            if (cache.repository != repository) {
+                cache = new Cache(repository);
+            }
+            return cache.summaries.putIfAbsent(summary.getClassName(), summary) == null;
+        }
+    }
+
+    /**
+     * キャッシュしたクラス情報を破棄する。
+     * クラスファイルが更新された場合に使用する。
+     *
+     * @param className クラス名
+     */
+    static void evict(String className) {
+        cache.summaries.remove(className);
+        PRELOADED.remove(className);
+    }
+
+    /**
+     * 前回の実行で保存したクラス情報を登録する。
+     *
+     * @param summaries クラス情報
+     */
+    static void preload(Collection<ClassSummary> summaries) {
+        for (ClassSummary summary : summaries) {
+            PRELOADED.put(summary.getClassName(), summary);
+        }
+    }
+
+    /**
+     * キャッシュしているクラス情報を取得する。
+     *
+     * @return クラス情報
+     */
+    static Collection<ClassSummary> cachedSummaries() {
+        Map<String, ClassSummary> summaries = new HashMap<>(PRELOADED);
+        summaries.putAll(cache.summaries);
+        return summaries.values();
+    }
+
+    /**
+     * 読み込み元の{@link Repository}毎のクラス情報のキャッシュ。
+     */
+    private static final class Cache {
+
+        /** 読み込み元のリポジトリ。 */
+        private final org.apache.bcel.util.Repository repository;
+
+        /** クラス名とクラス情報の対応。 */
+        private final ConcurrentMap<String, ClassSummary> summaries = new ConcurrentHashMap<>();
+
+        /**
+         * コンストラクタ。
+         *
+         * @param repository 読み込み元のリポジトリ
+         */
+        Cache(org.apache.bcel.util.Repository repository) {
+            this.repository = repository;
+        }
+    }
+}
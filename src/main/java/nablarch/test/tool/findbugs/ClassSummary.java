@@ -0,0 +1,164 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 公開可否の判定に必要なクラス情報を保持する。
+ * <p/>
+ * {@link JavaClass}から必要な情報のみを取り出した不変オブジェクトであり、複数スレッドから共有できる。
+ */
+final class ClassSummary {
+
+    /** クラス名。 */
+    private final String className;
+
+    /** スーパークラス名。 */
+    private final String superclassName;
+
+    /** 実装しているインタフェース名。 */
+    private final List<String> interfaceNames;
+
+    /** 「メソッド名(パラメータのディスクリプタ)」とprivateメソッドか否かの対応。 */
+    private final Map<String, Boolean> methods;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param javaClass クラス情報
+     */
+    ClassSummary(JavaClass javaClass) {
+        className = javaClass.getClassName();
+        superclassName = javaClass.getSuperclassName();
+        interfaceNames = Collections.unmodifiableList(Arrays.asList(javaClass.getInterfaceNames()));
+        Map<String, Boolean> map = new HashMap<>();
+        for (Method method : javaClass.getMethods()) {
+            String signature = method.getSignature();
+            // 戻り値の型のみ異なるメソッド（ブリッジメソッド等）は、先に定義されたメソッドを優先する。
+            map.putIfAbsent(method.getName() + signature.substring(0, signature.indexOf(')') + 1), method.isPrivate());
+        }
+        methods = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * コンストラクタ。
+     *
+     * @param className      クラス名
+     * @param superclassName スーパークラス名
+     * @param interfaceNames 実装しているインタフェース名
+     * @param methods        「メソッド名(パラメータのディスクリプタ)」とprivateメソッドか否かの対応
+     */
+    private ClassSummary(String className, String superclassName, List<String> interfaceNames,
+                         Map<String, Boolean> methods) {
+        this.className = className;
+        this.superclassName = superclassName;
+        this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+        this.methods = Collections.unmodifiableMap(methods);
+    }
+
+    /**
+     * {@link #write(DataOutput)}で出力したクラス情報を読み込む。
+     *
+     * @param in 入力元
+     * @return クラス情報
+     * @throws IOException 入力に失敗した場合
+     */
+    static ClassSummary read(DataInput in) throws IOException {
+        String className = in.readUTF();
+        String superclassName = in.readUTF();
+        int interfaceCount = in.readInt();
+        List<String> interfaceNames = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaceNames.add(in.readUTF());
+        }
+        int methodCount = in.readInt();
+        Map<String, Boolean> methods = new HashMap<>();
+        for (int i = 0; i < methodCount; i++) {
+            methods.put(in.readUTF(), in.readBoolean());
+        }
+        return new ClassSummary(className, superclassName, interfaceNames, methods);
+    }
+
+    /**
+     * クラス情報を出力する。
+     *
+     * @param out 出力先
+     * @throws IOException 出力に失敗した場合
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(className);
+        out.writeUTF(superclassName);
+        out.writeInt(interfaceNames.size());
+        for (String interfaceName : interfaceNames) {
+            out.writeUTF(interfaceName);
+        }
+        out.writeInt(methods.size());
+        for (Map.Entry<String, Boolean> method : methods.entrySet()) {
+            out.writeUTF(method.getKey());
+            out.writeBoolean(method.getValue());
+        }
+    }
+
+    /**
+     * クラス名を取得する。
+     *
+     * @return クラス名
+     */
+    String getClassName() {
+        return className;
+    }
+
+    /**
+     * スーパークラス名を取得する。
+     *
+     * @return スーパークラス名
+     */
+    String getSuperclassName() {
+        return superclassName;
+    }
+
+    /**
+     * 実装しているインタフェース名を取得する。
+     *
+     * @return インタフェース名
+     */
+    List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * privateでないメソッドを取得する。
+     *
+     * @return 「メソッド名(パラメータのディスクリプタ)」のリスト
+     */
+    List<String> getNonPrivateMethods() {
+        List<String> nonPrivateMethods = new ArrayList<>();
+        for (Map.Entry<String, Boolean> method : methods.entrySet()) {
+            if (!method.getValue()) {
+                nonPrivateMethods.add(method.getKey());
+            }
+        }
+        return nonPrivateMethods;
+    }
+
+    /**
+     * 指定したメソッドを定義しているか否かを判定する。
+     *
+     * @param methodName メソッド名
+     * @param methodSig  「)」までのシグネチャ（パッケージ区切りは「/」）
+     * @return 定義していない場合は{@code null}、privateメソッドの場合は{@code true}、それ以外は{@code false}
+     */
+    Boolean findMethod(String methodName, String methodSig) {
+        return methods.get(methodName + methodSig);
+    }
+}
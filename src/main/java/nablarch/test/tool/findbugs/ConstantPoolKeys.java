@@ -0,0 +1,94 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ConstantUtf8;
+
+/**
+ * 解析中のクラスのコンスタントプールのメソッド参照を、{@link VerdictCache}のキーに変換する。
+ * <p/>
+ * クラス名・メソッド名・シグネチャのシンボルIDは、コンスタントプールのエントリ毎に1度だけ求め、
+ * コンスタントプールインデックスをキーに保持する。同じクラス名・メソッド名・シグネチャを参照するメソッド参照のキーは、
+ * 文字列のハッシュ値の算出や比較を行わずに求められる。
+ * <p/>
+ * 解析するクラス毎に作成する。複数スレッドから使用することはできない。
+ */
+final class ConstantPoolKeys {
+
+    /** コンスタントプール。 */
+    private final ConstantPool constantPool;
+
+    /** キーの変換に使用する判定結果のキャッシュ。 */
+    private final VerdictCache verdictCache;
+
+    /** コンスタントプールインデックス毎のシンボルIDに1を加えた値。未変換のエントリは0。 */
+    private final int[] symbolIds;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param constantPool コンスタントプール
+     * @param verdictCache キーの変換に使用する判定結果のキャッシュ
+     */
+    ConstantPoolKeys(ConstantPool constantPool, VerdictCache verdictCache) {
+        this.constantPool = constantPool;
+        this.verdictCache = verdictCache;
+        this.symbolIds = new int[constantPool.getLength()];
+    }
+
+    /**
+     * メソッド参照が表す呼び出されたAPIのキーを取得する。
+     *
+     * @param methodRefIndex メソッド参照のコンスタントプールインデックス
+     * @return {@link VerdictCache#keyOf(String, String, String)}と同じキー
+     */
+    long keyOf(int methodRefIndex) {
+        ConstantCP methodRef = constantPool.getConstant(methodRefIndex);
+        ConstantNameAndType nameAndType = constantPool.getConstant(methodRef.getNameAndTypeIndex());
+        return verdictCache.keyOf(classSymbol(methodRef.getClassIndex()), utf8Symbol(nameAndType.getNameIndex()),
+                utf8Symbol(nameAndType.getSignatureIndex()));
+    }
+
+    /**
+     * キーの変換に使用する判定結果のキャッシュを取得する。
+     *
+     * @return 判定結果のキャッシュ
+     */
+    VerdictCache getVerdictCache() {
+        return verdictCache;
+    }
+
+    /**
+     * クラスエントリが表すクラス名（「.」区切り）のシンボルIDを取得する。
+     *
+     * @param classIndex クラスエントリのコンスタントプールインデックス
+     * @return シンボルID
+     */
+    private int classSymbol(int classIndex) {
+        int id = symbolIds[classIndex];
+        if (id == 0) {
+            String className = constantPool.getConstantString(classIndex, Const.CONSTANT_Class).replace('/', '.');
+            id = verdictCache.symbolOf(className) + 1;
+            symbolIds[classIndex] = id;
+        }
+        return id - 1;
+    }
+
+    /**
+     * UTF-8エントリが表す文字列のシンボルIDを取得する。
+     *
+     * @param utf8Index UTF-8エントリのコンスタントプールインデックス
+     * @return シンボルID
+     */
+    private int utf8Symbol(int utf8Index) {
+        int id = symbolIds[utf8Index];
+        if (id == 0) {
+            ConstantUtf8 utf8 = constantPool.getConstant(utf8Index, Const.CONSTANT_Utf8, ConstantUtf8.class);
+            id = verdictCache.symbolOf(utf8.getBytes()) + 1;
+            symbolIds[utf8Index] = id;
+        }
+        return id - 1;
+    }
+}
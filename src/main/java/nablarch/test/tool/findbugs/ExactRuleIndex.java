@@ -0,0 +1,34 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.List;
+
+/**
+ * ワイルドカードを含まない使用許可・使用禁止APIの設定を保持し、最も詳細なエントリを判定する。
+ * <p/>
+ * ヒープ上の木構造（{@link ApiDecisionTree}）と、メモリマップしたインデックスファイル（{@link MappedAllowlistIndex}）の実装がある。
+ */
+interface ExactRuleIndex {
+
+    /**
+     * 呼び出されたAPIに合致する最も詳細なエントリを取得する。
+     *
+     * @param calleeApi Javaファイルフォーマットにて記述された被呼出API
+     * @return 合致したエントリ。合致しない場合は{@code null}
+     */
+    AllowlistEntry decideMember(String calleeApi);
+
+    /**
+     * パッケージ名またはクラス名に合致する最も詳細なパッケージ・クラス指定のエントリを取得する。
+     *
+     * @param name パッケージ名またはクラス名
+     * @return 合致したエントリ。合致しない場合は{@code null}
+     */
+    AllowlistEntry decidePackageOrClass(String name);
+
+    /**
+     * 判定に使用されるすべてのエントリを取得する。
+     *
+     * @return 判定に使用されるエントリ
+     */
+    List<AllowlistEntry> getEntries();
+}
@@ -0,0 +1,445 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ワイルドカードを含む使用許可APIの設定を1つのオートマトンにまとめて判定する。
+ * <p/>
+ * 設定には以下のワイルドカードを使用できる。
+ * <pre>
+ * *    : 「.」を含まない任意の文字列（パッケージ名・クラス名・メソッド名の一部）
+ * **   : 「.」を含む任意の文字列（任意の階層のパッケージ）
+ * (..) : 任意のパラメータ（メソッドの任意のオーバーロード）
+ * </pre>
+ * 例）
+ * <pre>
+ * nablarch.core.db.statement.*Statement.get*(..)
+ * nablarch.core.**.*Util
+ * </pre>
+ * 「(」を含む設定はメソッド・コンストラクタ指定として呼び出されたAPI全体と、
+ * それ以外はパッケージ・クラス指定として「.」区切りの前方一致で照合する。
+ * 複数の設定に合致する場合は、{@link AllowlistEntry#outranks(AllowlistEntry)}により最も詳細な設定を返却する。
+ * <p/>
+ * すべての設定は読み込み時に1つの非決定性オートマトンにまとめ、照合時に決定性オートマトンの状態を
+ * 遅延して構築・キャッシュする。これにより、設定の件数によらず照合は対象文字列の長さに比例した時間で行える。
+ * <p/>
+ * 設定の追加は読み込み時に単一スレッドで行うこと。照合は複数スレッドから行える。
+ * 構築済みの遷移はロックを取得せずに参照し、未構築の遷移の構築のみ排他して行う。
+ */
+final class GlobRuleSet {
+
+    /** 決定性オートマトンの状態数の上限。超えた場合は構築済みの状態を破棄する。 */
+    private static final int MAX_DFA_STATES = 10000;
+
+    /** トークン種別：1文字。 */
+    private static final byte LITERAL = 0;
+
+    /** トークン種別：「.」を含まない任意の文字列。 */
+    private static final byte STAR = 1;
+
+    /** トークン種別：「.」を含む任意の文字列。 */
+    private static final byte DOUBLE_STAR = 2;
+
+    /** トークン種別：パラメータ内の任意の文字列。 */
+    private static final byte PARAMETERS = 3;
+
+    /** トークン種別：照合の終端。 */
+    private static final byte END = 4;
+
+    /** 非決定性オートマトンの各状態のトークン種別。 */
+    private byte[] tokenTypes = new byte[0];
+
+    /** 非決定性オートマトンの各状態のトークン文字（{@link #LITERAL}の場合のみ）。 */
+    private char[] tokenChars = new char[0];
+
+    /** 終端状態に対応するメソッド・コンストラクタ指定のエントリ。 */
+    private AllowlistEntry[] memberEntries = new AllowlistEntry[0];
+
+    /** 終端状態に対応するパッケージ・クラス指定のエントリ。 */
+    private AllowlistEntry[] prefixEntries = new AllowlistEntry[0];
+
+    /** 各パターンの開始状態。 */
+    private final List<Integer> startStates = new ArrayList<>();
+
+    /** 非決定性オートマトンの状態数。 */
+    private int stateCount;
+
+    /** 構築済みの決定性オートマトンの状態。 */
+    private final Map<StateSet, DfaState> dfaStates = new HashMap<>();
+
+    /** 決定性オートマトンの開始状態。 */
+    private volatile DfaState startState;
+
+    /**
+     * 指定した設定がワイルドカードを含むか否かを判定する。
+     *
+     * @param rule 設定
+     * @return ワイルドカードを含む場合、{@code true}
+     */
+    static boolean isGlob(String rule) {
+        return rule.indexOf('*') >= 0 || rule.contains("(..)");
+    }
+
+    /**
+     * エントリの記述内容から、{@link #add(String, AllowlistEntry)}に指定する設定を作成する。
+     * 使用禁止の指定を表す「!」と空白を除去し、可変長引数の「...」を配列の「[]」に置き換える。
+     *
+     * @param entry 設定ファイルのエントリ
+     * @return ワイルドカードを含む設定（空白除去済み）
+     */
+    static String patternOf(AllowlistEntry entry) {
+        String rule = entry.getRule().trim();
+        if (entry.isDeny()) {
+            rule = rule.substring(1);
+        }
+        return rule.replaceAll("\\s+", "").replaceAll("\\.{3}", "[]");
+    }
+
+    /**
+     * 設定を追加する。
+     *
+     * @param pattern ワイルドカードを含む設定（空白除去済み）
+     * @param entry   設定ファイルのエントリ
+     */
+    void add(String pattern, AllowlistEntry entry) {
+        List<Byte> types = new ArrayList<>();
+        List<Character> chars = new ArrayList<>();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    i++;
+                    addToken(types, chars, DOUBLE_STAR, '\0');
+                } else {
+                    addToken(types, chars, STAR, '\0');
+                }
+            } else if (pattern.startsWith("(..)", i)) {
+                addToken(types, chars, LITERAL, '(');
+                addToken(types, chars, PARAMETERS, '\0');
+                addToken(types, chars, LITERAL, ')');
+                i += 3;
+            } else {
+                addToken(types, chars, LITERAL, c);
+            }
+        }
+        addToken(types, chars, END, '\0');
+
+        int offset = stateCount;
+        stateCount += types.size();
+        tokenTypes = Arrays.copyOf(tokenTypes, stateCount);
+        tokenChars = Arrays.copyOf(tokenChars, stateCount);
+        memberEntries = Arrays.copyOf(memberEntries, stateCount);
+        prefixEntries = Arrays.copyOf(prefixEntries, stateCount);
+        for (int i = 0; i < types.size(); i++) {
+            tokenTypes[offset + i] = types.get(i);
+            tokenChars[offset + i] = chars.get(i);
+        }
+        if (pattern.indexOf('(') >= 0) {
+            memberEntries[stateCount - 1] = entry;
+        } else {
+            prefixEntries[stateCount - 1] = entry;
+        }
+        startStates.add(offset);
+
+        dfaStates.clear();
+        startState = null;
+    }
+
+    /**
+     * 設定が1件も登録されていないか否かを判定する。
+     *
+     * @return 設定が登録されていない場合、{@code true}
+     */
+    boolean isEmpty() {
+        return startStates.isEmpty();
+    }
+
+    /**
+     * メソッド・コンストラクタ指定の設定に合致するか判定する。
+     *
+     * @param calleeApi Javaファイルフォーマットにて記述された被呼出API
+     * @return 合致した最も詳細な設定のエントリ。合致しない場合は{@code null}
+     */
+    AllowlistEntry matchMember(String calleeApi) {
+        DfaState state = start();
+        for (int i = 0; i < calleeApi.length(); i++) {
+            state = next(state, calleeApi.charAt(i));
+            if (state.isDead()) {
+                return null;
+            }
+        }
+        return state.memberEntry;
+    }
+
+    /**
+     * パッケージ・クラス指定の設定に「.」区切りの前方一致で合致するか判定する。
+     *
+     * @param name 判定対象の名前
+     * @return 合致した最も詳細な設定のエントリ。合致しない場合は{@code null}
+     */
+    AllowlistEntry matchPackageOrClass(String name) {
+        AllowlistEntry match = null;
+        DfaState state = start();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.' && state.prefixEntry != null && state.prefixEntry.outranks(match)) {
+                match = state.prefixEntry;
+            }
+            state = next(state, c);
+            if (state.isDead()) {
+                return match;
+            }
+        }
+        return state.prefixEntry != null && state.prefixEntry.outranks(match) ? state.prefixEntry : match;
+    }
+
+    /**
+     * 決定性オートマトンの開始状態を取得する。
+     *
+     * @return 開始状態
+     */
+    private DfaState start() {
+        DfaState state = startState;
+        if (state != null) {
+            return state;
+        }
+        synchronized (this) {
+            if (startState == null) {
+                BitSet states = new BitSet(stateCount);
+                for (int s : startStates) {
+                    addWithClosure(states, s);
+                }
+                startState = toDfaState(states);
+            }
+            return startState;
+        }
+    }
+
+    /**
+     * 遷移先の状態を取得する。未構築の場合は構築する。
+     *
+     * @param state 遷移元の状態
+     * @param c     入力文字
+     * @return 遷移先の状態
+     */
+    private DfaState next(DfaState state, char c) {
+        DfaState next = state.get(c);
+        if (next != null) {
+            return next;
+        }
+        return build(state, c);
+    }
+
+    /**
+     * 遷移先の状態を構築する。
+     *
+     * @param state 遷移元の状態
+     * @param c     入力文字
+     * @return 遷移先の状態
+     */
+    private synchronized DfaState build(DfaState state, char c) {
+        DfaState next = state.get(c);
+        if (next != null) {
+            return next;
+        }
+        if (dfaStates.size() >= MAX_DFA_STATES) {
+            // 状態数が上限に達した場合は構築済みの状態を破棄し、以降は新たに構築し直す。
+            dfaStates.clear();
+            startState = null;
+        }
+        BitSet states = new BitSet(stateCount);
+        for (int s : state.nfaStates) {
+            if (accepts(s, c)) {
+                int target = tokenTypes[s] == LITERAL ? s + 1 : s;
+                addWithClosure(states, target);
+            }
+        }
+        next = toDfaState(states);
+        state.put(c, next);
+        return next;
+    }
+
+    /**
+     * 非決定性オートマトンの状態が指定した文字を受理するか判定する。
+     *
+     * @param state 状態
+     * @param c     入力文字
+     * @return 受理する場合、{@code true}
+     */
+    private boolean accepts(int state, char c) {
+        switch (tokenTypes[state]) {
+            case LITERAL:
+                return tokenChars[state] == c;
+            case STAR:
+                return c != '.' && c != '(' && c != ')' && c != ',';
+            case DOUBLE_STAR:
+                return c != '(' && c != ')' && c != ',';
+            case PARAMETERS:
+                return c != ')';
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 状態と、空文字列で遷移できる状態を追加する。
+     *
+     * @param states 追加先
+     * @param state  状態
+     */
+    private void addWithClosure(BitSet states, int state) {
+        states.set(state);
+        byte type = tokenTypes[state];
+        if (type == STAR || type == DOUBLE_STAR || type == PARAMETERS) {
+            addWithClosure(states, state + 1);
+        }
+    }
+
+    /**
+     * 非決定性オートマトンの状態の集合に対応する決定性オートマトンの状態を取得する。
+     *
+     * @param states 非決定性オートマトンの状態の集合
+     * @return 決定性オートマトンの状態
+     */
+    private DfaState toDfaState(BitSet states) {
+        StateSet key = new StateSet(states.stream().toArray());
+        DfaState state = dfaStates.get(key);
+        if (state == null) {
+            AllowlistEntry memberEntry = null;
+            AllowlistEntry prefixEntry = null;
+            for (int s : key.states) {
+                if (memberEntries[s] != null && memberEntries[s].outranks(memberEntry)) {
+                    memberEntry = memberEntries[s];
+                }
+                if (prefixEntries[s] != null && prefixEntries[s].outranks(prefixEntry)) {
+                    prefixEntry = prefixEntries[s];
+                }
+            }
+            state = new DfaState(key.states, memberEntry, prefixEntry);
+            dfaStates.put(key, state);
+        }
+        return state;
+    }
+
+    /**
+     * トークンを追加する。
+     *
+     * @param types トークン種別の追加先
+     * @param chars トークン文字の追加先
+     * @param type  トークン種別
+     * @param c     トークン文字
+     */
+    private static void addToken(List<Byte> types, List<Character> chars, byte type, char c) {
+        types.add(type);
+        chars.add(c);
+    }
+
+    /**
+     * 非決定性オートマトンの状態の集合。決定性オートマトンの状態を一意に識別するキーとして使用する。
+     */
+    private static final class StateSet {
+
+        /** 状態の集合（昇順）。 */
+        private final int[] states;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param states 状態の集合（昇順）
+         */
+        StateSet(int[] states) {
+            this.states = states;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet && Arrays.equals(states, ((StateSet) o).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(states);
+        }
+    }
+
+    /**
+     * 決定性オートマトンの状態。
+     * <p/>
+     * 他のスレッドに遷移先として公開されるため、遷移表以外のフィールドは{@code final}とする。
+     */
+    private static final class DfaState {
+
+        /** ASCII文字の遷移表のサイズ。 */
+        private static final int ASCII = 128;
+
+        /** 対応する非決定性オートマトンの状態の集合。 */
+        private final int[] nfaStates;
+
+        /** ASCII文字による遷移先。 */
+        private final DfaState[] asciiTransitions = new DfaState[ASCII];
+
+        /** ASCII以外の文字による遷移先。 */
+        private final Map<Character, DfaState> otherTransitions = new ConcurrentHashMap<>();
+
+        /** この状態で合致するメソッド・コンストラクタ指定のエントリ。 */
+        private final AllowlistEntry memberEntry;
+
+        /** この状態で合致するパッケージ・クラス指定のエントリ。 */
+        private final AllowlistEntry prefixEntry;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param nfaStates   対応する非決定性オートマトンの状態の集合
+         * @param memberEntry この状態で合致するメソッド・コンストラクタ指定のエントリ
+         * @param prefixEntry この状態で合致するパッケージ・クラス指定のエントリ
+         */
+        DfaState(int[] nfaStates, AllowlistEntry memberEntry, AllowlistEntry prefixEntry) {
+            this.nfaStates = nfaStates;
+            this.memberEntry = memberEntry;
+            this.prefixEntry = prefixEntry;
+        }
+
+        /**
+         * いずれの設定にも合致し得ない状態か否かを判定する。
+         *
+         * @return 合致し得ない場合、{@code true}
+         */
+        boolean isDead() {
+            return nfaStates.length == 0;
+        }
+
+        /**
+         * 遷移先を取得する。
+         *
+         * @param c 入力文字
+         * @return 遷移先。未構築の場合は{@code null}
+         */
+        DfaState get(char c) {
+            if (c < ASCII) {
+                return asciiTransitions[c];
+            }
+            return otherTransitions.get(c);
+        }
+
+        /**
+         * 遷移先を登録する。
+         *
+         * @param c    入力文字
+         * @param next 遷移先
+         */
+        void put(char c, DfaState next) {
+            if (c < ASCII) {
+                asciiTransitions[c] = next;
+            } else {
+                otherTransitions.put(c, next);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * 非公開APIの使用箇所を、1件を1行のJSONオブジェクトとするJSON Lines形式で出力する。
+ * <pre>
+ * {"kind":"call","class":"...","method":"...","signature":"...","line":12,"api":"..."}
+ * </pre>
+ * 複数スレッドから使用できる。
+ */
+final class JsonLinesViolationSink implements ViolationSink {
+
+    /** 出力先。 */
+    private final Writer writer;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param writer 出力先
+     */
+    JsonLinesViolationSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public synchronized void accept(Violation violation) {
+        try {
+            writer.write("{\"kind\":\"" + violation.getKind().name().toLowerCase(Locale.ROOT)
+                    + "\",\"class\":\"" + JsonStrings.escape(violation.getClassName())
+                    + "\",\"method\":\"" + JsonStrings.escape(violation.getMethodName())
+                    + "\",\"signature\":\"" + JsonStrings.escape(violation.getMethodSig())
+                    + "\",\"line\":" + violation.getLine()
+                    + ",\"api\":\"" + JsonStrings.escape(violation.getApi()) + "\"}\n");
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write violation. Violation=[" + violation + "]", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't close violation output.", e);
+        }
+    }
+}
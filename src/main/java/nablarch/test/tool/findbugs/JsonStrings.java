@@ -0,0 +1,52 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * JSON形式の出力に使用する文字列の変換。
+ * <p/>
+ * プロファイル結果、SARIF形式・JSON Lines形式の使用箇所の出力で共通して使用する。
+ */
+final class JsonStrings {
+
+    /**
+     * コンストラクタ。
+     */
+    private JsonStrings() {
+    }
+
+    /**
+     * JSONの文字列として出力できるようにエスケープする。
+     *
+     * @param value 文字列
+     * @return エスケープした文字列
+     */
+    static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,213 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * キーを{@code long}、値を{@code int}とするオープンアドレス法のハッシュマップ。
+ * <p/>
+ * キー・値ともにプリミティブのまま保持するため、参照・登録時にボクシングが発生しない。
+ * キーに{@link #EMPTY_KEY}は使用できない。
+ * <p/>
+ * 複数スレッドから使用できる。参照はロックを取得せずに行い、登録は排他して行う。
+ * 登録時は値を書き込んだ後にキーを書き込むため、キーが見えたスロットの値は常に登録済みの値となる。
+ * 容量の拡張時は新しいテーブルを構築してから差し替えるため、参照中のスレッドは差し替え前のテーブルを参照し続けられる。
+ */
+final class LongIntHashMap {
+
+    /** 空きスロットを表すキー。 */
+    static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    /** 値が存在しない場合に返却する値。 */
+    static final int NO_VALUE = -1;
+
+    /** 初期容量。 */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** キーと値のテーブル。 */
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    /** 登録件数。 */
+    private volatile int size;
+
+    /**
+     * 指定したキーに対応する値を取得する。
+     *
+     * @param key キー
+     * @return キーに対応する値。存在しない場合は{@link #NO_VALUE}
+     */
+    int get(long key) {
+        Table t = table;
+        int mask = t.capacity - 1;
+        int i = mix(key) & mask;
+        while (true) {
+            long k = t.keys.get(i);
+            if (k == key) {
+                return t.values.get(i);
+            }
+            if (k == EMPTY_KEY) {
+                return NO_VALUE;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * キーと値を登録する。既に登録されている場合は値を上書きする。
+     *
+     * @param key   キー
+     * @param value 値
+     */
+    synchronized void put(long key, int value) {
+        insert(key, value, true);
+    }
+
+    /**
+     * キーが未登録の場合のみ、キーと値を登録する。
+     *
+     * @param key   キー
+     * @param value 値
+     * @return 登録済みの値。未登録だった場合は指定した値
+     */
+    synchronized int putIfAbsent(long key, int value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * キーと値を登録する。呼出元で排他していること。
+     *
+     * @param key       キー
+     * @param value     値
+     * @param overwrite 登録済みの場合に上書きするか否か
+     * @return 登録後の値
+     */
+    private int insert(long key, int value, boolean overwrite) {
+        if ((size + 1) * 2 > table.capacity) {
+            table = rehash(table, table.capacity * 2);
+        }
+        Table t = table;
+        int mask = t.capacity - 1;
+        int i = mix(key) & mask;
+        while (true) {
+            long k = t.keys.get(i);
+            if (k == key) {
+                if (!overwrite) {
+                    return t.values.get(i);
+                }
+                t.values.set(i, value);
+                return value;
+            }
+            if (k == EMPTY_KEY) {
+                t.values.set(i, value);
+                t.keys.set(i, key);
+                size++;
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * 登録件数を取得する。
+     *
+     * @return 登録件数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 登録されているすべてのキーと値を処理する。
+     * 処理中に登録されたエントリは処理されない場合がある。
+     *
+     * @param visitor キーと値を受け取る処理
+     */
+    void forEach(EntryVisitor visitor) {
+        Table t = table;
+        for (int i = 0; i < t.capacity; i++) {
+            long key = t.keys.get(i);
+            if (key != EMPTY_KEY) {
+                visitor.visit(key, t.values.get(i));
+            }
+        }
+    }
+
+    /**
+     * 容量を拡張したテーブルに、登録済みのエントリを再配置する。
+     *
+     * @param old         拡張前のテーブル
+     * @param newCapacity 新しい容量（2のべき乗）
+     * @return 拡張後のテーブル
+     */
+    private static Table rehash(Table old, int newCapacity) {
+        Table t = new Table(newCapacity);
+        int mask = newCapacity - 1;
+        for (int j = 0; j < old.capacity; j++) {
+            long key = old.keys.get(j);
+            if (key == EMPTY_KEY) {
+                continue;
+            }
+            int i = mix(key) & mask;
+            while (t.keys.get(i) != EMPTY_KEY) {
+                i = (i + 1) & mask;
+            }
+            t.values.set(i, old.values.get(j));
+            t.keys.set(i, key);
+        }
+        return t;
+    }
+
+    /**
+     * キーを攪拌したハッシュ値を得る。
+     *
+     * @param key キー
+     * @return ハッシュ値
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * キーと値を受け取る処理。
+     */
+    interface EntryVisitor {
+
+        /**
+         * キーと値を処理する。
+         *
+         * @param key   キー
+         * @param value 値
+         */
+        void visit(long key, int value);
+    }
+
+    /**
+     * キーと値のテーブル。
+     */
+    private static final class Table {
+
+        /** 容量（2のべき乗）。 */
+        private final int capacity;
+
+        /** キー配列。 */
+        private final AtomicLongArray keys;
+
+        /** 値配列。 */
+        private final AtomicIntegerArray values;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param capacity 容量（2のべき乗）
+         */
+        Table(int capacity) {
+            this.capacity = capacity;
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY_KEY);
+            }
+        }
+    }
+}
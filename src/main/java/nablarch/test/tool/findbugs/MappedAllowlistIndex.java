@@ -0,0 +1,455 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * ワイルドカードを含まない使用許可・使用禁止APIの設定を、メモリマップしたインデックスファイル上で判定する。
+ * ワイルドカードを含む設定もインデックスファイルに記録し、インデックスファイルが有効な場合は設定ファイルを読み込まない。
+ * <p/>
+ * システムプロパティ{@code nablarch-findbugs-index-file}にインデックスファイルのパスを指定した場合に使用する。
+ * インデックスファイルが存在しない場合や設定ファイルが更新されている場合は、設定ファイルを読み込んで作成し直す。
+ * 同じビルドエージェント上で並行して動作する複数のJVMが同じインデックスファイルを読み取り専用でマップするため、
+ * 物理メモリ上のページはJVM間で共有され、各JVMのヒープには判定に使用されたエントリのみが生成される。
+ * <p/>
+ * インデックスファイルは以下の形式とする。数値はすべてビッグエンディアン、文字列はUTF-16で記録する。
+ * <pre>
+ * ヘッダ         : 識別子, バージョン, 設定ファイルのフィンガープリント(long),
+ *                  設定ファイル表の位置, レコード数, 重複レコード数, 重複レコード表の位置, ハッシュ表の容量, ハッシュ表の位置,
+ *                  ワイルドカードレコード数, ワイルドカードレコード表の位置
+ * 設定ファイル表 : 件数, (文字数, パス)...
+ * レコード       : 通し番号, 設定ファイル番号, 行番号, 指定対象の名前の文字数, 記述内容の文字数, 指定対象の名前, 記述内容
+ * 重複レコード表 : 他のエントリと重複しているエントリのレコードの位置...
+ * ワイルドカードレコード表 : ワイルドカードを含むエントリのレコードの位置...  指定対象の名前はワイルドカードを含む設定
+ * ハッシュ表     : (指定対象の名前のハッシュ値, レコードの位置)...  オープンアドレス法、位置0は空き
+ * </pre>
+ * 判定時は対象の名前を先頭から1度だけ走査し、「.」の位置ごとにそこまでのハッシュ値でハッシュ表を参照するため、
+ * 部分文字列を生成しない。
+ */
+final class MappedAllowlistIndex implements ExactRuleIndex {
+
+    /** インデックスファイルの識別子（"NUAL"）。 */
+    private static final int MAGIC = 0x4E55414C;
+
+    /** インデックスファイルの形式のバージョン。 */
+    private static final int VERSION = 2;
+
+    /** ヘッダのバイト数。 */
+    private static final int HEADER_SIZE = 48;
+
+    /** レコードのうち文字列より前の部分のバイト数。 */
+    private static final int RECORD_HEADER_SIZE = 20;
+
+    /** FNV-1aのオフセット基底。 */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /** FNV-1aの素数。 */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** マップしたインデックスファイル。 */
+    private final ByteBuffer buffer;
+
+    /** 設定ファイル。 */
+    private final File[] configFiles;
+
+    /** 重複レコード数。 */
+    private final int duplicateCount;
+
+    /** 重複レコード表の位置。 */
+    private final int duplicatesOffset;
+
+    /** ハッシュ表の容量。 */
+    private final int tableCapacity;
+
+    /** ハッシュ表の位置。 */
+    private final int tableOffset;
+
+    /** ワイルドカードレコード数。 */
+    private final int globCount;
+
+    /** ワイルドカードレコード表の位置。 */
+    private final int globsOffset;
+
+    /** レコードの通し番号ごとに生成したエントリ。判定に使用されるまでは{@code null}。 */
+    private final AtomicReferenceArray<AllowlistEntry> entries;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param buffer マップしたインデックスファイル
+     */
+    private MappedAllowlistIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int fileTableOffset = buffer.getInt(16);
+        int recordCount = buffer.getInt(20);
+        duplicateCount = buffer.getInt(24);
+        duplicatesOffset = buffer.getInt(28);
+        tableCapacity = buffer.getInt(32);
+        tableOffset = buffer.getInt(36);
+        globCount = buffer.getInt(40);
+        globsOffset = buffer.getInt(44);
+        configFiles = new File[buffer.getInt(fileTableOffset)];
+        int position = fileTableOffset + 4;
+        for (int i = 0; i < configFiles.length; i++) {
+            int length = buffer.getInt(position);
+            configFiles[i] = new File(readChars(position + 4, length));
+            position += 4 + length * 2;
+        }
+        entries = new AtomicReferenceArray<>(recordCount);
+    }
+
+    /**
+     * インデックスファイルをマップする。
+     *
+     * @param file        インデックスファイル
+     * @param fingerprint 現在の設定ファイルのフィンガープリント
+     * @return インデックス。ファイルが存在しない場合、形式が異なる場合、設定ファイルが更新されている場合は{@code null}
+     */
+    static MappedAllowlistIndex open(File file, long fingerprint) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // マップした領域はチャネルを閉じた後も有効である。
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't map allowlist index file. Path=[" + file + "]", e);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != fingerprint) {
+            return null;
+        }
+        return new MappedAllowlistIndex(buffer);
+    }
+
+    /**
+     * 設定ファイルのフィンガープリントを算出する。設定ファイルのパス・サイズ・更新日時から算出する。
+     *
+     * @param configFiles 設定ファイル
+     * @return フィンガープリント
+     */
+    static long fingerprint(File[] configFiles) {
+        File[] sorted = configFiles.clone();
+        Arrays.sort(sorted, Comparator.comparing(File::getAbsolutePath));
+        long hash = FNV_OFFSET_BASIS;
+        for (File configFile : sorted) {
+            hash = hash(hash, configFile.getAbsolutePath(), configFile.getAbsolutePath().length());
+            hash = (hash ^ configFile.length()) * FNV_PRIME;
+            hash = (hash ^ configFile.lastModified()) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * インデックスファイルを作成する。
+     * 並行して動作する他のJVMが作成途中のファイルをマップしないよう、一時ファイルに出力してから置き換える。
+     *
+     * @param file             インデックスファイル
+     * @param fingerprint      設定ファイルのフィンガープリント
+     * @param decisionTree     ワイルドカードを含まない公開情報
+     * @param globEntries      ワイルドカードを含む公開情報
+     * @param duplicateEntries 他のエントリと重複している公開情報
+     */
+    static void write(File file, long fingerprint, ApiDecisionTree decisionTree, List<AllowlistEntry> globEntries,
+                      List<AllowlistEntry> duplicateEntries) {
+        List<String> names = new ArrayList<>();
+        List<AllowlistEntry> rules = new ArrayList<>();
+        decisionTree.forEachRule((name, entry) -> {
+            names.add(name);
+            rules.add(entry);
+        });
+        Map<String, Integer> fileNumbers = new LinkedHashMap<>();
+        for (AllowlistEntry entry : rules) {
+            fileNumbers.putIfAbsent(entry.getConfigFile().getPath(), fileNumbers.size());
+        }
+        for (AllowlistEntry entry : globEntries) {
+            fileNumbers.putIfAbsent(entry.getConfigFile().getPath(), fileNumbers.size());
+        }
+        for (AllowlistEntry entry : duplicateEntries) {
+            fileNumbers.putIfAbsent(entry.getConfigFile().getPath(), fileNumbers.size());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            int fileTableOffset = HEADER_SIZE + out.size();
+            out.writeInt(fileNumbers.size());
+            for (String path : fileNumbers.keySet()) {
+                out.writeInt(path.length());
+                out.writeChars(path);
+            }
+
+            int tableCapacity = Math.max(16, Integer.highestOneBit(Math.max(1, rules.size() * 2 - 1)) << 1);
+            int[] table = new int[tableCapacity * 2];
+            int ordinal = 0;
+            for (int i = 0; i < rules.size(); i++) {
+                String name = names.get(i);
+                int hash = slotHash(hash(FNV_OFFSET_BASIS, name, name.length()));
+                int slot = hash & (tableCapacity - 1);
+                while (table[slot * 2 + 1] != 0) {
+                    slot = (slot + 1) & (tableCapacity - 1);
+                }
+                table[slot * 2] = hash;
+                table[slot * 2 + 1] = HEADER_SIZE + out.size();
+                writeRecord(out, ordinal++, name, rules.get(i), fileNumbers);
+            }
+            int[] duplicateOffsets = new int[duplicateEntries.size()];
+            for (int i = 0; i < duplicateOffsets.length; i++) {
+                duplicateOffsets[i] = HEADER_SIZE + out.size();
+                writeRecord(out, ordinal++, "", duplicateEntries.get(i), fileNumbers);
+            }
+            int[] globOffsets = new int[globEntries.size()];
+            for (int i = 0; i < globOffsets.length; i++) {
+                globOffsets[i] = HEADER_SIZE + out.size();
+                writeRecord(out, ordinal++, GlobRuleSet.patternOf(globEntries.get(i)), globEntries.get(i), fileNumbers);
+            }
+            int duplicatesOffset = HEADER_SIZE + out.size();
+            for (int offset : duplicateOffsets) {
+                out.writeInt(offset);
+            }
+            int globsOffset = HEADER_SIZE + out.size();
+            for (int offset : globOffsets) {
+                out.writeInt(offset);
+            }
+            int tableOffset = HEADER_SIZE + out.size();
+            for (int value : table) {
+                out.writeInt(value);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(fingerprint)
+                    .putInt(fileTableOffset).putInt(ordinal).putInt(duplicateOffsets.length).putInt(duplicatesOffset)
+                    .putInt(tableCapacity).putInt(tableOffset).putInt(globOffsets.length).putInt(globsOffset);
+            File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+            try {
+                Files.write(temp.toPath(), header.array());
+                Files.write(temp.toPath(), bytes.toByteArray(), StandardOpenOption.APPEND);
+                try {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write allowlist index file. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * レコードを出力する。
+     *
+     * @param out         出力先
+     * @param ordinal     通し番号
+     * @param name        指定対象の名前
+     * @param entry       エントリ
+     * @param fileNumbers 設定ファイルのパスと番号
+     * @throws IOException 出力に失敗した場合
+     */
+    private static void writeRecord(DataOutputStream out, int ordinal, String name, AllowlistEntry entry,
+                                    Map<String, Integer> fileNumbers) throws IOException {
+        out.writeInt(ordinal);
+        out.writeInt(fileNumbers.get(entry.getConfigFile().getPath()));
+        out.writeInt(entry.getLineNumber());
+        out.writeInt(name.length());
+        out.writeInt(entry.getRule().length());
+        out.writeChars(name);
+        out.writeChars(entry.getRule());
+    }
+
+    @Override
+    public AllowlistEntry decideMember(String calleeApi) {
+        int memberStart = calleeApi.lastIndexOf('.', calleeApi.indexOf('('));
+        AllowlistEntry decision = null;
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < calleeApi.length(); i++) {
+            char c = calleeApi.charAt(i);
+            if (c == '.' && i <= memberStart) {
+                AllowlistEntry entry = find(calleeApi, i, hash);
+                if (entry != null) {
+                    decision = entry;
+                }
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        AllowlistEntry member = find(calleeApi, calleeApi.length(), hash);
+        return member != null ? member : decision;
+    }
+
+    @Override
+    public AllowlistEntry decidePackageOrClass(String name) {
+        AllowlistEntry decision = null;
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                AllowlistEntry entry = find(name, i, hash);
+                if (entry != null) {
+                    decision = entry;
+                }
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        AllowlistEntry entry = find(name, name.length(), hash);
+        return entry != null ? entry : decision;
+    }
+
+    @Override
+    public List<AllowlistEntry> getEntries() {
+        List<AllowlistEntry> result = new ArrayList<>();
+        for (int slot = 0; slot < tableCapacity; slot++) {
+            int offset = buffer.getInt(tableOffset + slot * 8 + 4);
+            if (offset != 0) {
+                result.add(entryAt(offset));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 他のエントリと重複しているエントリを取得する。
+     *
+     * @return 重複しているエントリ
+     */
+    List<AllowlistEntry> getDuplicateEntries() {
+        List<AllowlistEntry> result = new ArrayList<>(duplicateCount);
+        for (int i = 0; i < duplicateCount; i++) {
+            result.add(entryAt(buffer.getInt(duplicatesOffset + i * 4)));
+        }
+        return result;
+    }
+
+    /**
+     * ワイルドカードを含むすべてのエントリを、ワイルドカードを含む設定と共に設定ファイルの記述順に処理する。
+     *
+     * @param action {@link GlobRuleSet#add(String, AllowlistEntry)}に指定する設定とエントリを受け取る処理
+     */
+    void forEachGlobRule(BiConsumer<String, AllowlistEntry> action) {
+        for (int i = 0; i < globCount; i++) {
+            int offset = buffer.getInt(globsOffset + i * 4);
+            action.accept(readChars(offset + RECORD_HEADER_SIZE, buffer.getInt(offset + 12)), entryAt(offset));
+        }
+    }
+
+    /**
+     * 名前の先頭から指定した長さまでを指定対象とするエントリを取得する。
+     *
+     * @param name   名前
+     * @param length 指定対象の名前の長さ
+     * @param hash   指定対象の名前のハッシュ値
+     * @return エントリ。存在しない場合は{@code null}
+     */
+    private AllowlistEntry find(String name, int length, long hash) {
+        int slotHash = slotHash(hash);
+        int mask = tableCapacity - 1;
+        int slot = slotHash & mask;
+        while (true) {
+            int position = tableOffset + slot * 8;
+            int offset = buffer.getInt(position + 4);
+            if (offset == 0) {
+                return null;
+            }
+            if (buffer.getInt(position) == slotHash && nameEquals(offset, name, length)) {
+                return entryAt(offset);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * レコードの指定対象の名前が、名前の先頭から指定した長さまでと一致するか否かを判定する。
+     *
+     * @param offset レコードの位置
+     * @param name   名前
+     * @param length 比較する長さ
+     * @return 一致する場合{@code true}
+     */
+    private boolean nameEquals(int offset, String name, int length) {
+        if (buffer.getInt(offset + 12) != length) {
+            return false;
+        }
+        int chars = offset + RECORD_HEADER_SIZE;
+        for (int i = 0; i < length; i++) {
+            if (buffer.getChar(chars + i * 2) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * レコードのエントリを取得する。初めて使用されるエントリの場合は生成する。
+     *
+     * @param offset レコードの位置
+     * @return エントリ
+     */
+    private AllowlistEntry entryAt(int offset) {
+        int ordinal = buffer.getInt(offset);
+        AllowlistEntry entry = entries.get(ordinal);
+        if (entry != null) {
+            return entry;
+        }
+        int nameLength = buffer.getInt(offset + 12);
+        String rule = readChars(offset + RECORD_HEADER_SIZE + nameLength * 2, buffer.getInt(offset + 16));
+        entries.compareAndSet(ordinal, null,
+                new AllowlistEntry(rule, configFiles[buffer.getInt(offset + 4)], buffer.getInt(offset + 8)));
+        return entries.get(ordinal);
+    }
+
+    /**
+     * UTF-16で記録された文字列を読み込む。
+     *
+     * @param position 文字列の位置
+     * @param length   文字数
+     * @return 文字列
+     */
+    private String readChars(int position, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(position + i * 2);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 文字列の先頭から指定した長さまでをハッシュ値に加える。
+     *
+     * @param hash   ハッシュ値
+     * @param value  文字列
+     * @param length 長さ
+     * @return ハッシュ値
+     */
+    private static long hash(long hash, String value, int length) {
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * ハッシュ表に記録する32bitのハッシュ値に変換する。
+     *
+     * @param hash 64bitのハッシュ値
+     * @return 32bitのハッシュ値
+     */
+    private static int slotHash(long hash) {
+        int h = (int) (hash ^ (hash >>> 32));
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,30 +1,38 @@
 package nablarch.test.tool.findbugs;
 
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.classfile.Method;
-
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 公開APIの情報を保持する。
+ * <p/>
+ * SpotBugsの複数スレッドでの解析に対応するため、公開情報は読み込み完了後に{@link AllowlistSnapshot}として
+ * {@code volatile}フィールド経由で公開し、クラス情報は{@link ClassRepository}から取得する。
  *
  * @author 香川朋和
  */
 public final class PublishedApisInfo {
 
-    /** パッケージまたはクラス指定の公開情報。 */
-    private static Set<String> publishedPackageOrClassSet;
+    /** すべてのクラスのスーパークラスとなるクラスの名前。 */
+    private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+
+    /** 公開情報。 */
+    private static volatile AllowlistSnapshot snapshot;
+
+    /** 非公開APIの使用をチェックする呼出元の範囲。 */
+    private static volatile CallerScope callerScope = CallerScope.ALL;
 
-    /** メソッドコンストラクタ指定の公開情報。 */
-    private static Set<String> publishedMethodAndConstructorSet;
+    /** 内部メトリクス。 */
+    private static final CheckerMetrics METRICS = CheckerMetrics.getInstance();
 
     static {
         readConfigFiles();
@@ -41,36 +49,136 @@ public final class PublishedApisInfo {
      */
     static void readConfigFiles() {
 
-        publishedMethodAndConstructorSet = new HashSet<>();
-        publishedPackageOrClassSet = new HashSet<>();
+        long start = System.nanoTime();
+        ApiDecisionTree decisionTree = new ApiDecisionTree();
+        GlobRuleSet globRules = new GlobRuleSet();
+        List<AllowlistEntry> globEntries = new ArrayList<>();
+        List<AllowlistEntry> duplicateEntries = new ArrayList<>();
         String configDirPath = System.getProperty("nablarch-findbugs-config");
 
+        File[] configFiles = listConfigFiles(configDirPath);
+
+        String indexPath = System.getProperty("nablarch-findbugs-index-file");
+        if (indexPath == null || indexPath.isEmpty()) {
+            for (File configFile : configFiles) {
+                readConfigFile(configFile, decisionTree, globRules, globEntries, duplicateEntries);
+            }
+            decisionTree.buildMemberFilter();
+            snapshot = new AllowlistSnapshot(decisionTree, globRules, globEntries, duplicateEntries);
+        } else {
+            snapshot = readIndexFile(new File(indexPath), configFiles);
+        }
+        callerScope = CallerScope.fromSystemProperties();
+        WarmStartSnapshot.loadIfEnabled(configFiles, snapshot);
+        METRICS.recordConfigLoad(System.nanoTime() - start);
+    }
+
+    /**
+     * 設定ファイルが格納されているディレクトリから、設定ファイルを取得する。
+     *
+     * @param configDirPath 設定ファイルが格納されているディレクトリ
+     * @return 設定ファイル
+     */
+    private static File[] listConfigFiles(String configDirPath) {
         File configDir = new File(configDirPath);
         if (!configDir.exists() || !configDir.isDirectory()) {
             throw new RuntimeException("Config file directory doesn't exist.Path=[" + configDirPath + "]");
         }
+        return configDir.listFiles((dir, name) -> name.endsWith(".config"));
+    }
 
-        File[] configFiles = configDir.listFiles((dir, name) -> name.endsWith(".config"));
+    /**
+     * 現在の設定ファイルのフィンガープリントを算出する。
+     * 設定ファイルの変更・追加・削除により値が変わる（{@link MappedAllowlistIndex#fingerprint(File[])}）。
+     *
+     * @return 設定ファイルのフィンガープリント
+     */
+    static long configFingerprint() {
+        return MappedAllowlistIndex.fingerprint(listConfigFiles(System.getProperty("nablarch-findbugs-config")));
+    }
 
-        for (File configFile : configFiles) {
-            readConfigFile(configFile);
+    /**
+     * 非公開APIの使用をチェックする呼出元の範囲を取得する。
+     *
+     * @return 設定ファイルの読み込み時にシステムプロパティから作成した範囲
+     */
+    static CallerScope getCallerScope() {
+        return callerScope;
+    }
+
+    /**
+     * 有効な場合、判定結果とクラス情報を次回の実行のために保存する。
+     */
+    static void saveWarmStartSnapshot() {
+        WarmStartSnapshot.saveIfEnabled(snapshot);
+    }
+
+    /**
+     * 公開情報をインデックスファイルから読み込む。
+     * インデックスファイルが存在しない場合や設定ファイルが更新されている場合は、設定ファイルから作成する。
+     * インデックスファイルが有効な場合、設定ファイルは読み込まない。
+     *
+     * @param indexFile   インデックスファイル
+     * @param configFiles 設定ファイル
+     * @return 公開情報
+     */
+    private static AllowlistSnapshot readIndexFile(File indexFile, File[] configFiles) {
+        long fingerprint = MappedAllowlistIndex.fingerprint(configFiles);
+        MappedAllowlistIndex index = MappedAllowlistIndex.open(indexFile, fingerprint);
+        if (index == null) {
+            ApiDecisionTree decisionTree = new ApiDecisionTree();
+            List<AllowlistEntry> globEntries = new ArrayList<>();
+            List<AllowlistEntry> duplicateEntries = new ArrayList<>();
+            for (File configFile : configFiles) {
+                readConfigFile(configFile, decisionTree, new GlobRuleSet(), globEntries, duplicateEntries);
+            }
+            MappedAllowlistIndex.write(indexFile, fingerprint, decisionTree, globEntries, duplicateEntries);
+            index = MappedAllowlistIndex.open(indexFile, fingerprint);
+            if (index == null) {
+                throw new RuntimeException("Couldn't read allowlist index file. Path=[" + indexFile + "]");
+            }
         }
+        GlobRuleSet globRules = new GlobRuleSet();
+        List<AllowlistEntry> globEntries = new ArrayList<>();
+        index.forEachGlobRule((pattern, entry) -> {
+            globRules.add(pattern, entry);
+            globEntries.add(entry);
+        });
+        return new AllowlistSnapshot(index, globRules, globEntries, index.getDuplicateEntries());
     }
 
     /**
      * 各設定ファイルを読み込む。
      *
-     * @param configFile 設定ファイル
+     * @param configFile       設定ファイル
+     * @param decisionTree     パッケージ・クラス・メソッド・コンストラクタ指定の公開情報の登録先
+     * @param globRules        ワイルドカードを含む公開情報の登録先
+     * @param globEntries      ワイルドカードを含む公開情報のエントリの登録先
+     * @param duplicateEntries 他のエントリと重複している公開情報の登録先
      */
-    private static void readConfigFile(File configFile) {
+    private static void readConfigFile(File configFile, ApiDecisionTree decisionTree, GlobRuleSet globRules,
+                                       List<AllowlistEntry> globEntries, List<AllowlistEntry> duplicateEntries) {
         try (BufferedReader reader = new BufferedReader(new FileReader(configFile))) {
             String line;
+            int lineNumber = 0;
             while ((line = reader.readLine()) != null) {
-                // 「(」が存在すれば、メソッド指定公開
-                if (line.contains("(")) {
-                    publishedMethodAndConstructorSet.add(replaceInnerClassConstructor(line.replaceAll("\\s+", "").replaceAll("\\.{3}", "[]")));
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                AllowlistEntry entry = new AllowlistEntry(line, configFile, lineNumber);
+                // 「!」が先頭にあれば、使用禁止の指定
+                String rule = entry.isDeny() ? line.trim().substring(1).trim() : line;
+                if (GlobRuleSet.isGlob(rule)) {
+                    // ワイルドカードを含む場合は、オートマトンにまとめて照合する。
+                    globRules.add(GlobRuleSet.patternOf(entry), entry);
+                    globEntries.add(entry);
+                } else if (rule.contains("(")) {
+                    // 「(」が存在すれば、メソッド指定公開
+                    addEntry(duplicateEntries, decisionTree.addMember(
+                            replaceInnerClassConstructor(rule.replaceAll("\\s+", "").replaceAll("\\.{3}", "[]")), entry));
                 } else {
-                    publishedPackageOrClassSet.add(line);
+                    addEntry(duplicateEntries, decisionTree.addPackageOrClass(rule, entry));
                 }
             }
         } catch (IOException e) {
@@ -79,6 +187,36 @@ public final class PublishedApisInfo {
         }
     }
 
+    /**
+     * 公開情報の登録結果を記録する。同じ対象への指定が既に登録されていたために判定に使用されなくなったエントリは、
+     * 重複したエントリとして記録する。
+     *
+     * @param duplicateEntries 重複したエントリの記録先
+     * @param unusedEntry      判定に使用されなくなったエントリ（{@code null}可）
+     */
+    private static void addEntry(List<AllowlistEntry> duplicateEntries, AllowlistEntry unusedEntry) {
+        if (unusedEntry != null) {
+            duplicateEntries.add(unusedEntry);
+        }
+    }
+
+    /**
+     * 判定結果のキャッシュを破棄する。
+     * 被呼出クラスのクラスファイルが更新された場合など、キャッシュした判定結果が正しくなくなった場合に使用する。
+     */
+    static void invalidateVerdicts() {
+        snapshot = snapshot.withEmptyCache();
+    }
+
+    /**
+     * 公開情報の使用状況のレポートを取得する。
+     *
+     * @return 公開情報の使用状況のレポート
+     */
+    static AllowlistUsageReport getUsageReport() {
+        return snapshot.createUsageReport();
+    }
+
     /**
      * Innerクラスのコンストラクタ呼出を置き換える。
      * Innerクラスの場合、許可ファイルに{@code xx.xxx.xxxx.Hoge.InnerHoge.Hoge.InnerHoge()}のように
@@ -125,16 +263,136 @@ public final class PublishedApisInfo {
      */
     static boolean isPermitted(String calleeClassName, String calleeMethodName, String calleeMethodSig) {
 
-        JavaClass calleeJavaClass;
+        CheckerProfiler profiler = CheckerProfiler.active();
+        if (profiler == null) {
+            return isPermittedWithCache(snapshot, calleeClassName, calleeMethodName, calleeMethodSig, null);
+        }
+        long start = System.nanoTime();
         try {
-            // 配列に対する呼出の場合
-            if (calleeClassName.startsWith("[")) {
-                calleeClassName = "java.lang.Object";
+            return isPermittedWithCache(snapshot, calleeClassName, calleeMethodName, calleeMethodSig, null);
+        } finally {
+            profiler.recordCallee(calleeClassName.startsWith("[") ? OBJECT_CLASS_NAME : calleeClassName,
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 現在の公開情報の判定結果のキャッシュを取得する。
+     *
+     * @return 判定結果のキャッシュ
+     */
+    static VerdictCache getVerdictCache() {
+        return snapshot.getVerdictCache();
+    }
+
+    /**
+     * 呼び出されたメソッド・コンストラクタが判定済みの場合のみ、キャッシュした判定結果を取得する。
+     * 判定済みでない場合は判定を行わない。判定済みでない呼出は、{@link #isPermitted(String, String, String)}
+     * または{@link #isPermitted(CallSiteBatch)}で判定すること。
+     *
+     * @param verdictCache 判定結果のキャッシュ
+     * @param key          {@link ConstantPoolKeys#keyOf(int)}等で取得したキー
+     * @return {@link VerdictCache#PERMITTED}、{@link VerdictCache#PROHIBITED}、判定済みでない場合は{@link VerdictCache#UNKNOWN}
+     */
+    static int getCachedVerdict(VerdictCache verdictCache, long key) {
+        int verdict = verdictCache.get(key);
+        if (verdict != VerdictCache.UNKNOWN) {
+            // 判定済みでない場合は、判定の際に判定とキャッシュの参照を計上する。
+            METRICS.countPermittedCheck();
+            METRICS.countCache(true);
+        }
+        return verdict;
+    }
+
+    /**
+     * 判定結果のキャッシュを参照し、呼び出されたメソッド・コンストラクタが公開されているか否かをチェックする。
+     *
+     * @param config           公開情報
+     * @param calleeClassName  呼び出されたAPIのクラス名
+     * @param calleeMethodName 呼び出されたAPIのメソッド名
+     * @param calleeMethodSig  呼び出されたAPIメソッドシグネチャ
+     * @param resolved         解決済みのクラス階層（再利用しない場合は{@code null}）
+     * @return 指定したメソッドが公開されている場合、{@code true}
+     */
+    private static boolean isPermittedWithCache(AllowlistSnapshot config, String calleeClassName, String calleeMethodName,
+                                                String calleeMethodSig, Map<String, HierarchyNode> resolved) {
+
+        METRICS.countPermittedCheck();
+        VerdictCache verdictCache = config.getVerdictCache();
+        // 同じAPIの呼び出しは何度も現れるため、判定済みであればキャッシュした結果を返却する。
+        long key = verdictCache.keyOf(calleeClassName, calleeMethodName, calleeMethodSig);
+        int verdict = verdictCache.get(key);
+        METRICS.countCache(verdict != VerdictCache.UNKNOWN);
+        if (verdict != VerdictCache.UNKNOWN) {
+            return verdict == VerdictCache.PERMITTED;
+        }
+
+        METRICS.countHierarchyWalk();
+        boolean permitted = resolvePermitted(config, calleeClassName, calleeMethodName, calleeMethodSig, resolved);
+        verdictCache.put(key, permitted);
+        return permitted;
+    }
+
+    /**
+     * 複数の呼出箇所について、呼び出されたメソッド・コンストラクタが公開されているか否かを一括してチェックする。
+     * <p/>
+     * 呼出箇所を呼出先クラス毎にまとめて判定する。呼出先クラスの継承階層（親クラス・インタフェース）は
+     * 一括判定の間、解決済みの階層として保持し、同じ階層に対する判定では階層を再度解決しない。
+     *
+     * @param batch 呼出箇所
+     * @return 呼出箇所の追加順に並んだ判定結果。公開されている場合、{@code true}
+     */
+    static boolean[] isPermitted(CallSiteBatch batch) {
+
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            groups.computeIfAbsent(batch.getClassName(i), k -> new ArrayList<>()).add(i);
+        }
+
+        boolean[] verdicts = new boolean[batch.size()];
+        // 判定中に設定が再読み込みされても一貫した公開情報で判定するため、参照は1度だけ行う。
+        AllowlistSnapshot config = snapshot;
+        Map<String, HierarchyNode> resolved = new HashMap<>();
+        CheckerProfiler profiler = CheckerProfiler.active();
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            String calleeClassName = group.getKey();
+            long start = System.nanoTime();
+            for (int index : group.getValue()) {
+                verdicts[index] = isPermittedWithCache(config, calleeClassName, batch.getMethodName(index),
+                        batch.getMethodSig(index), resolved);
             }
+            if (profiler != null) {
+                profiler.recordCallee(calleeClassName.startsWith("[") ? OBJECT_CLASS_NAME : calleeClassName,
+                        System.nanoTime() - start);
+            }
+        }
+        return verdicts;
+    }
 
-            calleeJavaClass = Repository.lookupClass(calleeClassName);
+    /**
+     * クラス情報を読み込み、呼び出されたメソッド・コンストラクタが公開されているか否かを判定する。
+     *
+     * @param config           公開情報
+     * @param calleeClassName  呼び出されたAPIのクラス名
+     * @param calleeMethodName 呼び出されたAPIのメソッド名
+     * @param calleeMethodSig  呼び出されたAPIメソッドシグネチャ
+     * @param resolved         解決済みのクラス階層（再利用しない場合は{@code null}）
+     * @return 指定したメソッドが公開されている場合、{@code true}
+     */
+    private static boolean resolvePermitted(AllowlistSnapshot config, String calleeClassName, String calleeMethodName,
+                                            String calleeMethodSig, Map<String, HierarchyNode> resolved) {
+
+        try {
+            // ")"以後には戻り値の型が記述されているが、以後考慮しないため、切り捨てる。
+            String sig = calleeMethodSig.substring(0, calleeMethodSig.indexOf(')') + 1);
+
+            // 配列に対する呼出の場合は、java.lang.Objectに対する呼出として、クラス情報を読み込まずに判定する。
+            if (calleeClassName.startsWith("[") || OBJECT_CLASS_NAME.equals(calleeClassName)) {
+                return isPermittedForObject(config, calleeMethodName, sig);
+            }
 
-            return isPermittedForClassOrInterface(calleeJavaClass, calleeMethodName, calleeMethodSig);
+            return isPermittedForClassOrInterface(config, HierarchyNode.of(calleeClassName, resolved), calleeMethodName,
+                    sig);
 
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("Couldn't find JavaClass of itself or super class. ClassName=[" + calleeClassName + "]", e);
@@ -148,117 +406,112 @@ public final class PublishedApisInfo {
      * @return 指定したクラスが使用禁止されている場合、{@code true}
      */
     static boolean isProhibited(String calleeClassName) {
-        return !checkForClassOrPackage(calleeClassName.replace('$', '.'));
+        METRICS.countProhibitedCheck();
+        return !isAllowed(snapshot.decidePackageOrClass(calleeClassName.replace('$', '.')));
+    }
+
+    /**
+     * 指定した例外クラスが使用禁止されているか否かをチェックする。
+     * <p/>
+     * throws節・catch節の例外クラスは同じクラスが繰り返し現れるため、判定結果を内部形式のクラス名をキーにキャッシュする。
+     * 判定済みの例外クラスは、クラス名の変換を行わずキャッシュの参照のみで判定する。
+     *
+     * @param internalName 内部形式のクラス名（パッケージ区切りは「/」）
+     * @return 指定したクラスが使用禁止されている場合、{@code true}
+     */
+    static boolean isProhibitedException(String internalName) {
+        METRICS.countProhibitedCheck();
+        AllowlistSnapshot config = snapshot;
+        ConcurrentMap<String, Boolean> verdicts = config.getExceptionVerdicts();
+        Boolean prohibited = verdicts.get(internalName);
+        if (prohibited != null) {
+            METRICS.countProhibitedCacheHit();
+            return prohibited;
+        }
+        prohibited = !isAllowed(config.decidePackageOrClass(internalName.replace('/', '.').replace('$', '.')));
+        verdicts.putIfAbsent(internalName, prohibited);
+        return prohibited;
     }
 
     /**
      * 呼び出されたメソッド・コンストラクタが公開されているか否かをチェックする。
      *
-     * @param calleeJavaClass  呼び出されたAPIのクラス情報
+     * @param config           公開情報
+     * @param callee           呼び出されたAPIのクラスの階層
      * @param calleeMethodName 呼び出されたAPIのメソッド名
-     * @param calleeMethodSig  呼び出されたAPIのシグネチャ
+     * @param calleeMethodSig  呼び出されたAPIの「)」までのシグネチャ
      * @return 呼び出されたメソッド・コンストラクタが公開されている場合、{@code true}
      * @throws ClassNotFoundException 親クラス情報を取得できない場合に発生する。
      */
-    private static boolean isPermittedForClassOrInterface(JavaClass calleeJavaClass, String calleeMethodName, String calleeMethodSig)
+    private static boolean isPermittedForClassOrInterface(AllowlistSnapshot config, HierarchyNode callee,
+                                                          String calleeMethodName, String calleeMethodSig)
             throws ClassNotFoundException {
 
-        // ")"以後には戻り値の型が記述されているが、以後考慮しないため、切り捨てる。
-        calleeMethodSig = calleeMethodSig.substring(0, calleeMethodSig.indexOf(')') + 1);
-        Method method = getMethodOf(calleeJavaClass, calleeMethodName, calleeMethodSig);
-        if (method != null) {
+        METRICS.countHierarchyNode();
+        ClassSummary calleeClass = callee.summary;
+        Boolean isPrivate = calleeClass.findMethod(calleeMethodName, calleeMethodSig.replace('.', '/'));
+        if (isPrivate != null) {
             // privateメソッドチェックしない
-            if (method.isPrivate()) {
+            if (isPrivate) {
                 return true;
             }
             // 自クラスがチェック対象のメソッドを定義している場合は、そのAPIが公開されているかチェックする。
-            return checkPublicityForTheClass(calleeJavaClass, calleeMethodName, calleeMethodSig);
+            return checkPublicityForTheClass(config, calleeClass, calleeMethodName, calleeMethodSig);
         } else {
-            return checkSuperClassOrInterface(calleeJavaClass, calleeMethodName, calleeMethodSig);
-        }
-    }
-
-    /**
-     * calleeJavaClassがcalleeMethodNameAndSigで表されるメソッドを有する場合、そのメソッド情報を保持する{@link Method}を返却する。<br/>
-     * 該当するメソッドがcalleeJavaClassになければ、{@code null}を返却する。
-     *
-     * @param calleeJavaClass  チェック対象のクラス情報を保持する{@link JavaClass}
-     * @param calleeMethodName 呼出APIメソッド名
-     * @param calleeMethodSig  呼出APIシグネチャ
-     * @return calleeJavaClassがcalleeMethodNameAndSigで表されるメソッドを有する場合、そのメソッド情報を保持する{@link Method}
-     */
-    private static Method getMethodOf(JavaClass calleeJavaClass, String calleeMethodName, String calleeMethodSig) {
-
-        calleeMethodSig = calleeMethodSig.replace('.', '/');
-        Method[] methods = calleeJavaClass.getMethods();
-        for (Method method : methods) {
-            String methodNameAndSig = method.getName() + method.getSignature();
-            if (methodNameAndSig.startsWith(calleeMethodName + calleeMethodSig)) {
-                return method;
-            }
+            return checkSuperClassOrInterface(config, callee, calleeMethodName, calleeMethodSig);
         }
-        return null;
     }
 
     /**
      * 当該のクラスレベルにてメソッドが公開されているかをチェックする。
+     * メソッド・コンストラクタ・クラス・パッケージ指定のうち、最も詳細な指定により判定する。
      *
-     * @param calleeJavaClass  チェック対象のクラス情報を保持する{@link JavaClass}
+     * @param config           公開情報
+     * @param calleeClass      チェック対象のクラス情報
      * @param calleeMethodName 呼出APIメソッド名
      * @param calleeMethodSig  呼出APIシグネチャ
      * @return 当該のクラスレベルにてメソッドが公開されている場合{@code true}
      */
-    private static boolean checkPublicityForTheClass(JavaClass calleeJavaClass, String calleeMethodName, String calleeMethodSig) {
-
-        String calleeApi = getCalleeApi(calleeJavaClass.getClassName().replace('$', '.'), calleeMethodName, calleeMethodSig);
-        if (publishedMethodAndConstructorSet.contains(calleeApi)) {
-            return true;
-        }
+    private static boolean checkPublicityForTheClass(AllowlistSnapshot config, ClassSummary calleeClass,
+                                                     String calleeMethodName, String calleeMethodSig) {
 
-        return checkForClassOrPackage(calleeApi);
+        String calleeApi = getCalleeApi(calleeClass.getClassName().replace('$', '.'), calleeMethodName, calleeMethodSig);
+        return isAllowed(config.decideMember(calleeApi));
     }
 
     /**
-     * クラスレベル・パッケージレベルで公開されているか否かをチェックする。
+     * 判定に使用されたエントリを記録し、使用が許可されているか否かを判定する。
      *
-     * @param calleeJavaClass チェック対象クラス名
-     * @return クラスレベル・パッケージレベルで公開されている場合、{@code true}
+     * @param decision 最も詳細なエントリ（{@code null}可）
+     * @return 使用許可の指定に合致した場合、{@code true}
      */
-    private static boolean checkForClassOrPackage(String calleeJavaClass) {
-
-        String[] packageParts = calleeJavaClass.split("\\.");
-        StringBuilder sb = new StringBuilder();
-        // 当該のパッケージまたはクラスが公開されているか判定する。
-        // 上位のパッケージから判定していき、最終的にクラスが公開されているか判定する。
-        for (int i = 0; i < packageParts.length; i++) {
-            if (i > 0) {
-                sb.append(".");
-            }
-            sb.append(packageParts[i]);
-            if (publishedPackageOrClassSet.contains(sb.toString())) {
-                return true;
-            }
+    private static boolean isAllowed(AllowlistEntry decision) {
+        if (decision == null) {
+            return false;
         }
-        return false;
+        decision.hit();
+        return !decision.isDeny();
     }
 
     /**
      * 呼び出されたクラス自身が当該のメソッドを有しない場合、スーパークラスとインタフェースレベルにて公開されているか否かをチェックする。
      *
-     * @param calleeJavaClass  呼び出されたクラスの情報を保持する{@link JavaClass}
+     * @param config           公開情報
+     * @param callee           呼び出されたクラスの階層
      * @param calleeMethodName 呼出APIメソッド名
      * @param calleeMethodSig  呼出APIシグネチャ
      * @return スーパークラスまたはインタフェースレベルにて公開されていれば{@code true}
-     * @throws ClassNotFoundException 親クラスの{@link JavaClass}
+     * @throws ClassNotFoundException 親クラスの{@link ClassSummary}
      *                                を取得できない場合に発生する。この例外が発生する場合は、クラスパス設定を確認すること。
      */
-    private static boolean checkSuperClassOrInterface(JavaClass calleeJavaClass, String calleeMethodName, String calleeMethodSig)
+    private static boolean checkSuperClassOrInterface(AllowlistSnapshot config, HierarchyNode callee,
+                                                      String calleeMethodName, String calleeMethodSig)
             throws ClassNotFoundException {
 
-        JavaClass[] interfaceJavaClasses = calleeJavaClass.getInterfaces();
+        ClassSummary calleeClass = callee.summary;
         // インタフェースに対して公開されているかチェックする。
-        for (JavaClass interfaze : interfaceJavaClasses) {
-            if (isPermittedForClassOrInterface(interfaze, calleeMethodName, calleeMethodSig)) {
+        for (int i = 0; i < calleeClass.getInterfaceNames().size(); i++) {
+            if (isPermittedForClassOrInterface(config, callee.interfaceAt(i), calleeMethodName, calleeMethodSig)) {
                 return true;
             }
         }
@@ -268,8 +521,48 @@ public final class PublishedApisInfo {
         //     String headersMsg = request.headers().toString();
         // Java17で上記の例をコンパイルすると、toStringメソッドはjava.lang.Objectクラスのものを呼び出すようなバイトコードが生成されていた。
         // Java21ではバイトコードが変更され、java.util.MapインタフェースのtoStringメソッドを最初に参照するようになった。
-        JavaClass superClass = calleeJavaClass.getSuperClass();
-        return superClass != null && isPermittedForClassOrInterface(superClass, calleeMethodName, calleeMethodSig);
+        if (OBJECT_CLASS_NAME.equals(calleeClass.getClassName())) {
+            return false;
+        }
+        String superclassName = calleeClass.getSuperclassName();
+        if (OBJECT_CLASS_NAME.equals(superclassName)) {
+            return isPermittedForObject(config, calleeMethodName, calleeMethodSig);
+        }
+        return isPermittedForClassOrInterface(config, callee.superclass(), calleeMethodName, calleeMethodSig);
+    }
+
+    /**
+     * {@code java.lang.Object}のメソッドが公開されているか否かを、読み込み時に求めたエントリにより判定する。
+     * {@code java.lang.Object}に定義されていないメソッドは公開されていないものとする。
+     *
+     * @param config           公開情報
+     * @param calleeMethodName 呼出APIメソッド名
+     * @param calleeMethodSig  呼出APIの「)」までのシグネチャ
+     * @return 公開されている場合{@code true}
+     */
+    private static boolean isPermittedForObject(AllowlistSnapshot config, String calleeMethodName, String calleeMethodSig) {
+        METRICS.countHierarchyNode();
+        String sig = calleeMethodSig.replace('.', '/');
+        if (!config.isObjectMember(calleeMethodName, sig)) {
+            return false;
+        }
+        return isAllowed(config.decideObjectMember(calleeMethodName, sig));
+    }
+
+    /**
+     * クラス情報を読み込む。
+     *
+     * @param className クラス名
+     * @return クラス情報
+     * @throws ClassNotFoundException クラス情報を取得できない場合
+     */
+    private static ClassSummary lookupClass(String className) throws ClassNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return ClassRepository.lookup(className);
+        } finally {
+            METRICS.recordClassLookup(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -387,4 +680,84 @@ public final class PublishedApisInfo {
         parameter.append(")");
         return parameter.toString();
     }
+
+    /**
+     * 公開可否の判定で辿る、呼び出されたクラスの継承階層の1階層。
+     * <p/>
+     * 親クラス・インタフェースは判定で辿る際に初めて解決し、解決した階層は以後の判定で再利用する。
+     * 一括判定では、クラス名と階層の対応を共有することで、同じクラスの階層を一括判定につき1度だけ解決する。
+     */
+    private static final class HierarchyNode {
+
+        /** クラス情報。 */
+        private final ClassSummary summary;
+
+        /** クラス名と解決済みの階層の対応（共有しない場合は{@code null}）。 */
+        private final Map<String, HierarchyNode> resolved;
+
+        /** 解決済みのインタフェースの階層。未解決の要素は{@code null}。 */
+        private final HierarchyNode[] interfaces;
+
+        /** 解決済みのスーパークラスの階層。未解決の場合は{@code null}。 */
+        private HierarchyNode superclass;
+
+        /**
+         * コンストラクタ。
+         *
+         * @param summary  クラス情報
+         * @param resolved クラス名と解決済みの階層の対応（共有しない場合は{@code null}）
+         */
+        private HierarchyNode(ClassSummary summary, Map<String, HierarchyNode> resolved) {
+            this.summary = summary;
+            this.resolved = resolved;
+            this.interfaces = new HierarchyNode[summary.getInterfaceNames().size()];
+        }
+
+        /**
+         * クラスの階層を取得する。解決済みの場合は再利用する。
+         *
+         * @param className クラス名
+         * @param resolved  クラス名と解決済みの階層の対応（共有しない場合は{@code null}）
+         * @return クラスの階層
+         * @throws ClassNotFoundException クラス情報を取得できない場合
+         */
+        static HierarchyNode of(String className, Map<String, HierarchyNode> resolved) throws ClassNotFoundException {
+            if (resolved == null) {
+                return new HierarchyNode(lookupClass(className), null);
+            }
+            HierarchyNode node = resolved.get(className);
+            if (node == null) {
+                node = new HierarchyNode(lookupClass(className), resolved);
+                resolved.put(className, node);
+            }
+            return node;
+        }
+
+        /**
+         * インタフェースの階層を取得する。
+         *
+         * @param index インタフェースのインデックス
+         * @return インタフェースの階層
+         * @throws ClassNotFoundException クラス情報を取得できない場合
+         */
+        HierarchyNode interfaceAt(int index) throws ClassNotFoundException {
+            if (interfaces[index] == null) {
+                interfaces[index] = of(summary.getInterfaceNames().get(index), resolved);
+            }
+            return interfaces[index];
+        }
+
+        /**
+         * スーパークラスの階層を取得する。
+         *
+         * @return スーパークラスの階層
+         * @throws ClassNotFoundException クラス情報を取得できない場合
+         */
+        HierarchyNode superclass() throws ClassNotFoundException {
+            if (superclass == null) {
+                superclass = of(summary.getSuperclassName(), resolved);
+            }
+            return superclass;
+        }
+    }
 }
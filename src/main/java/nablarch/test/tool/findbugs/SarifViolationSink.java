@@ -0,0 +1,100 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * 非公開APIの使用箇所をSARIF 2.1.0形式で出力する。
+ * <p/>
+ * 先頭部分を作成時に、各使用箇所を{@code results}の要素として検出時に、末尾部分を終了時に出力するため、
+ * 使用箇所を保持せずに出力できる。複数スレッドから使用できる。
+ */
+final class SarifViolationSink implements ViolationSink {
+
+    /** 出力先。 */
+    private final Writer writer;
+
+    /** 最初の使用箇所か否か。 */
+    private boolean first = true;
+
+    /**
+     * コンストラクタ。SARIFの先頭部分を出力する。
+     *
+     * @param writer 出力先
+     */
+    SarifViolationSink(Writer writer) {
+        this.writer = writer;
+        write("{\"version\":\"2.1.0\","
+                + "\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\","
+                + "\"runs\":[{\"tool\":{\"driver\":{\"name\":\"nablarch-unpublished-api-checker\","
+                + "\"rules\":[{\"id\":\"" + UsageOfUnpublishedMethodDetector.BUG_CODE + "\","
+                + "\"shortDescription\":{\"text\":\"Usage of unpublished API\"}}]}},"
+                + "\"results\":[\n");
+    }
+
+    @Override
+    public synchronized void accept(Violation violation) {
+        StringBuilder sb = new StringBuilder(256);
+        if (!first) {
+            sb.append(",\n");
+        }
+        first = false;
+        sb.append("{\"ruleId\":\"").append(UsageOfUnpublishedMethodDetector.BUG_CODE).append("\",")
+                .append("\"level\":\"warning\",")
+                .append("\"message\":{\"text\":\"").append(JsonStrings.escape(violation.getApi())).append("\"},")
+                .append("\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":\"")
+                .append(JsonStrings.escape(sourcePathOf(violation.getClassName()))).append("\"}");
+        if (violation.getLine() > 0) {
+            sb.append(",\"region\":{\"startLine\":").append(violation.getLine()).append('}');
+        }
+        sb.append("},\"logicalLocations\":[{\"fullyQualifiedName\":\"")
+                .append(JsonStrings.escape(violation.getClassName() + "." + violation.getMethodName()))
+                .append("\",\"kind\":\"function\"}]}],")
+                .append("\"properties\":{\"kind\":\"").append(violation.getKind().name().toLowerCase(Locale.ROOT))
+                .append("\",\"callerClass\":\"").append(JsonStrings.escape(violation.getClassName()))
+                .append("\",\"callerMethod\":\"").append(JsonStrings.escape(violation.getMethodName()))
+                .append("\",\"callerSignature\":\"").append(JsonStrings.escape(violation.getMethodSig()))
+                .append("\",\"api\":\"").append(JsonStrings.escape(violation.getApi()))
+                .append("\"}}");
+        write(sb.toString());
+    }
+
+    /**
+     * SARIFの末尾部分を出力し、出力を終了する。
+     */
+    @Override
+    public synchronized void close() {
+        write("\n]}]}\n");
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't close violation output.", e);
+        }
+    }
+
+    /**
+     * クラス名から、ソースファイルのパスを推定する。内部クラスは外側のクラスのソースファイルとする。
+     *
+     * @param className クラス名
+     * @return ソースファイルのパス
+     */
+    private static String sourcePathOf(String className) {
+        int inner = className.indexOf('$');
+        String outer = inner < 0 ? className : className.substring(0, inner);
+        return outer.replace('.', '/') + ".java";
+    }
+
+    /**
+     * 文字列を出力する。
+     *
+     * @param value 文字列
+     */
+    private void write(String value) {
+        try {
+            writer.write(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write SARIF output.", e);
+        }
+    }
+}
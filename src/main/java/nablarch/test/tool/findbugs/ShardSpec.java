@@ -0,0 +1,80 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * 解析対象のクラスを複数のプロセスに分割する際の、担当する分割を表す。
+ * <p/>
+ * クラスはパッケージ名のハッシュ値により分割する。{@link String#hashCode()}はJVMによらず同じ値となるため、
+ * 同じ分割数であれば、どのプロセスでも各クラスは必ず同じ分割に割り当てられる。
+ * 同じパッケージのクラスは同じ分割に割り当てられるため、各プロセスで読み込むクラスの重複も抑えられる。
+ */
+final class ShardSpec {
+
+    /** 分割しないことを表す。 */
+    static final ShardSpec ALL = new ShardSpec(0, 1);
+
+    /** 担当する分割のインデックス（0始まり）。 */
+    private final int index;
+
+    /** 分割数。 */
+    private final int count;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param index 担当する分割のインデックス（0始まり）
+     * @param count 分割数
+     */
+    ShardSpec(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard. Shard=[" + index + "/" + count + "]");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * 「インデックス/分割数」形式の文字列から作成する。
+     *
+     * @param spec 「インデックス/分割数」形式の文字列（例：{@code 0/4}）
+     * @return 担当する分割。分割数が1の場合は{@link #ALL}
+     */
+    static ShardSpec parse(String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Invalid shard. Shard=[" + spec + "]");
+        }
+        try {
+            ShardSpec shard = new ShardSpec(Integer.parseInt(spec.substring(0, slash)),
+                    Integer.parseInt(spec.substring(slash + 1)));
+            return shard.isAll() ? ALL : shard;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shard. Shard=[" + spec + "]", e);
+        }
+    }
+
+    /**
+     * 分割しないことを表すか否かを判定する。
+     *
+     * @return 分割数が1の場合、{@code true}
+     */
+    boolean isAll() {
+        return count == 1;
+    }
+
+    /**
+     * 指定したクラスがこの分割の担当か否かを判定する。
+     *
+     * @param className クラス名
+     * @return 担当の場合、{@code true}
+     */
+    boolean contains(String className) {
+        int lastDot = className.lastIndexOf('.');
+        String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+        return Math.floorMod(packageName.hashCode(), count) == index;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
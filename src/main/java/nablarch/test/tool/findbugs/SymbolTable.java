@@ -0,0 +1,61 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * クラス名・メソッド名・ディスクリプタ等の文字列を{@code int}のIDに変換（インターン）する。
+ * <p/>
+ * 同一の文字列には常に同一のIDが割り当てられる。
+ * IDは0から順に採番される。
+ * <p/>
+ * 複数スレッドから使用できる。
+ */
+final class SymbolTable {
+
+    /** 文字列とIDの対応。 */
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** 次に採番するID。 */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * 指定した文字列のIDを取得する。未登録の場合は新たに採番する。
+     *
+     * @param symbol 文字列
+     * @return 文字列に対応するID
+     */
+    int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(symbol, key -> nextId.getAndIncrement());
+    }
+
+    /**
+     * IDをインデックスとして、登録されている文字列を格納した配列を取得する。
+     *
+     * @return IDに対応する文字列の配列
+     */
+    String[] toArray() {
+        String[] symbols = new String[nextId.get()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            if (entry.getValue() < symbols.length) {
+                symbols[entry.getValue()] = entry.getKey();
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * 登録されている文字列の件数を取得する。
+     *
+     * @return 登録件数
+     */
+    int size() {
+        return ids.size();
+    }
+}
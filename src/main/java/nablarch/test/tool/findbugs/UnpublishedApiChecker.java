@@ -0,0 +1,755 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.ClassPath;
+import org.apache.bcel.util.MemorySensitiveClassPathRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * SpotBugsを使用せずに非公開APIの使用箇所を検出するコマンドラインツール。
+ * <p/>
+ * 以下のコマンドを提供する。
+ * <pre>
+ * analyze --output &lt;file&gt; [--config &lt;dir&gt;] [--classpath &lt;path&gt;] [--shard &lt;i/N&gt; | --fork &lt;N&gt;]
+ *         [--format text|sarif|jsonl] [--baseline &lt;file&gt;] &lt;class dir or archive&gt;...
+ *     クラスディレクトリ配下またはjarファイル・warファイル内のクラスを解析し、使用箇所をレポートファイルに出力する。
+ *     warファイルの WEB-INF/lib 配下のjarファイルのクラスは、被呼出クラスとしてのみ使用する。
+ *     --baseline を指定した場合は、ベースラインファイルに記録済みの使用箇所を除外する。
+ *     --format に sarif または jsonl を指定した場合は、使用箇所を保持せずに検出した順にSARIFまたはJSON Lines形式で出力する。
+ *     --shard を指定した場合は、パッケージ名のハッシュ値によりN分割したクラスのうちi番目（0始まり）のみを解析する。
+ *     --fork を指定した場合は、N個のプロセスで分割して解析し、結果を併合する。
+ * baseline --output &lt;file&gt; [--config &lt;dir&gt;] [--classpath &lt;path&gt;] &lt;class dir or archive&gt;...
+ *     クラスディレクトリ配下またはjarファイル・warファイル内のクラスを解析し、使用箇所をベースラインファイル（{@link ViolationBaseline}）に記録する。
+ * merge --output &lt;file&gt; &lt;report file&gt;...
+ *     分割して解析したレポートファイルを1つに併合する。
+ * daemon --port-file &lt;file&gt; [--port &lt;port&gt;] [--config &lt;dir&gt;] [--classpath &lt;path&gt;]
+ *     キャッシュを保持したまま常駐し、ローカルのソケット経由で解析要求を受け付ける（{@link CheckerDaemon}）。
+ *     待ち受けているポート番号を --port-file に、要求に必要なトークンを「.token」を付与したファイルに出力する。
+ * client --port-file &lt;file&gt; [--output &lt;file&gt;] [--shutdown] &lt;class dir or class file&gt;...
+ *     常駐しているデーモンに解析を要求し、レポートを出力する。--output を省略した場合は標準出力に出力する。
+ *     --shutdown を指定した場合は、デーモンを停止する。
+ * </pre>
+ * 併合したレポートは、分割せずに解析したレポートと同一の内容となる。
+ * 終了コードは、使用箇所がない場合は0、ある場合は1（--shard を指定した場合は常に0）、引数が不正な場合は2となる。
+ */
+public final class UnpublishedApiChecker {
+
+    /** 使用箇所が検出された場合の終了コード。 */
+    static final int EXIT_VIOLATIONS = 1;
+
+    /** 引数が不正な場合の終了コード。 */
+    static final int EXIT_USAGE = 2;
+
+    /** 並列に解析してから使用箇所を出力するまでのクラス数。 */
+    private static final int ANALYSIS_BATCH_SIZE = 256;
+
+    /** 子プロセスに引き継ぐシステムプロパティの接頭辞。 */
+    private static final String PROPERTY_PREFIX = "nablarch-findbugs-";
+
+    /** 使用方法。 */
+    private static final String USAGE = "usage:\n"
+            + "  analyze --output <file> [--config <dir>] [--classpath <path>] [--shard <i/N> | --fork <N>]\n"
+            + "          [--format text|sarif|jsonl] [--baseline <file>] <class dir or archive>...\n"
+            + "  baseline --output <file> [--config <dir>] [--classpath <path>] <class dir or archive>...\n"
+            + "  merge --output <file> <report file>...\n"
+            + "  daemon --port-file <file> [--port <port>] [--config <dir>] [--classpath <path>]\n"
+            + "  client --port-file <file> [--output <file>] [--shutdown] <class dir or class file>...";
+
+    /** 前回設定した被呼出クラスを読み込むクラスパス。 */
+    private static ArchiveClassPath currentClassPath;
+
+    /**
+     * コンストラクタ。
+     */
+    private UnpublishedApiChecker() {
+    }
+
+    /**
+     * メインメソッド。
+     *
+     * @param args コマンドと引数
+     */
+    public static void main(String[] args) {
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * コマンドを実行する。
+     *
+     * @param args コマンドと引数
+     * @return 終了コード
+     */
+    static int run(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if ("merge".equals(options.command)) {
+            return merge(options);
+        }
+        if ("daemon".equals(options.command)) {
+            return daemon(options);
+        }
+        if ("client".equals(options.command)) {
+            return client(options);
+        }
+        if ("baseline".equals(options.command)) {
+            return baseline(options);
+        }
+        if (options.forks > 0) {
+            return fork(options);
+        }
+        return analyze(options);
+    }
+
+    /**
+     * クラスディレクトリ配下のクラスを解析する。
+     *
+     * @param options オプション
+     * @return 終了コード
+     */
+    private static int analyze(Options options) {
+        List<JavaClass> classes = readClasses(options);
+        ViolationBaseline baseline = options.baseline == null ? ViolationBaseline.EMPTY : ViolationBaseline.read(options.baseline);
+        boolean found;
+        if (options.format == null) {
+            ViolationReport report = new ViolationReport();
+            analyzeClasses(classes, options.shard, violation -> {
+                if (!baseline.contains(violation)) {
+                    report.accept(violation);
+                }
+            });
+            report.write(options.output);
+            found = !report.getViolations().isEmpty();
+        } else {
+            // 使用箇所を保持せずに、検出した順に出力する。
+            boolean[] detected = new boolean[1];
+            try (ViolationSink sink = ViolationStream.open(options.output, options.format)) {
+                analyzeClasses(classes, options.shard, violation -> {
+                    if (!baseline.contains(violation)) {
+                        detected[0] = true;
+                        sink.accept(violation);
+                    }
+                });
+            }
+            found = detected[0];
+        }
+        PublishedApisInfo.saveWarmStartSnapshot();
+        return options.shard.isAll() && found ? EXIT_VIOLATIONS : 0;
+    }
+
+    /**
+     * クラスディレクトリ配下のクラスを解析し、使用箇所をベースラインファイルに記録する。
+     *
+     * @param options オプション
+     * @return 終了コード
+     */
+    private static int baseline(Options options) {
+        ViolationReport report = analyzeClasses(readClasses(options), ShardSpec.ALL);
+        ViolationBaseline baseline = ViolationBaseline.of(report.getViolations());
+        baseline.write(options.output);
+        System.err.println("Recorded baseline. Violations=[" + report.getViolations().size()
+                + "], Fingerprints=[" + baseline.size() + "]");
+        return 0;
+    }
+
+    /**
+     * 公開情報を読み込み、解析対象のクラスを読み込む。
+     * jarファイル・warファイルを指定した場合は、展開せずにクラスを読み込む（{@link ArchiveClassReader}）。
+     *
+     * @param options オプション
+     * @return 解析対象のクラス
+     */
+    private static List<JavaClass> readClasses(Options options) {
+        return readClasses(options.config, options.classPath, options.inputs, options.shard);
+    }
+
+    /**
+     * 公開情報を読み込み、解析対象のクラスを読み込む。
+     *
+     * @param config    設定ファイルが格納されているディレクトリ（{@code null}の場合はシステムプロパティの指定に従う）
+     * @param classPath 被呼出クラスを読み込むためのクラスパス（{@code null}可）
+     * @param inputs    解析対象のクラスディレクトリ・jarファイル・warファイル
+     * @return 解析対象のクラス
+     */
+    static List<JavaClass> readClasses(String config, String classPath, List<String> inputs) {
+        return readClasses(config, classPath, inputs, ShardSpec.ALL);
+    }
+
+    /**
+     * 公開情報を読み込み、担当する分割に含まれる解析対象のクラスを読み込む。
+     * 分割に含まれないクラスは、クラスファイルのパスから求めたクラス名により読み込まずに除外し、
+     * 被呼出クラスとしてはクラスパスから読み込む。
+     *
+     * @param config    設定ファイルが格納されているディレクトリ（{@code null}の場合はシステムプロパティの指定に従う）
+     * @param classPath 被呼出クラスを読み込むためのクラスパス（{@code null}可）
+     * @param inputs    解析対象のクラスディレクトリ・jarファイル・warファイル
+     * @param shard     担当する分割
+     * @return 解析対象のクラス
+     */
+    static List<JavaClass> readClasses(String config, String classPath, List<String> inputs, ShardSpec shard) {
+        ArchiveClassPath archiveClassPath = initialize(config, classPath, inputs);
+        List<JavaClass> classes = new ArrayList<>();
+        for (String input : inputs) {
+            File file = new File(input);
+            if (ArchiveClassReader.isArchive(file)) {
+                classes.addAll(ArchiveClassReader.read(file, shard, archiveClassPath).getClasses());
+                continue;
+            }
+            classes.addAll(readDirectory(file, shard));
+        }
+        return classes;
+    }
+
+    /**
+     * クラスディレクトリ配下のクラスのうち、担当する分割に含まれるクラスを読み込む。
+     * <p/>
+     * パスから求めたクラス名は、クラスディレクトリがパッケージのルートの場合のみ正しい。
+     * 読み込んだクラスのクラス名がパスから求めたクラス名と異なる場合は、ルートでないため、
+     * すべてのクラスを読み込んで被呼出クラスとして登録する。
+     *
+     * @param dir   クラスディレクトリまたはクラスファイル
+     * @param shard 担当する分割
+     * @return 解析対象のクラス
+     */
+    private static List<JavaClass> readDirectory(File dir, ShardSpec shard) {
+        List<Path> classFiles = listClassFiles(dir);
+        List<JavaClass> classes = new ArrayList<>();
+        if (!shard.isAll() && dir.isDirectory()) {
+            boolean packageRoot = true;
+            for (Path classFile : classFiles) {
+                String className = toClassName(dir.toPath(), classFile);
+                if (!shard.contains(className)) {
+                    continue;
+                }
+                JavaClass javaClass = parse(classFile);
+                if (!javaClass.getClassName().equals(className)) {
+                    packageRoot = false;
+                    classes.clear();
+                    break;
+                }
+                classes.add(javaClass);
+            }
+            if (packageRoot) {
+                return classes;
+            }
+        }
+        for (Path classFile : classFiles) {
+            classes.add(parse(classFile));
+        }
+        return classes;
+    }
+
+    /**
+     * クラスディレクトリからの相対パスからクラス名を求める。
+     *
+     * @param dir       クラスディレクトリ
+     * @param classFile クラスファイル
+     * @return クラス名（「.」区切り）
+     */
+    private static String toClassName(Path dir, Path classFile) {
+        StringBuilder className = new StringBuilder();
+        for (Path name : dir.relativize(classFile)) {
+            if (className.length() > 0) {
+                className.append('.');
+            }
+            className.append(name);
+        }
+        return className.substring(0, className.length() - ".class".length());
+    }
+
+    /**
+     * 公開情報を読み込み、被呼出クラスを読み込むリポジトリを設定する。
+     * 前回設定したクラスパスが登録したアーカイブは閉じる。
+     *
+     * @param config    設定ファイルが格納されているディレクトリ（{@code null}の場合はシステムプロパティの指定に従う）
+     * @param classPath 被呼出クラスを読み込むためのクラスパス（{@code null}可）
+     * @param inputs    解析対象のクラスディレクトリ
+     * @return 被呼出クラスを読み込むクラスパス。アーカイブのエントリを登録できる
+     */
+    static ArchiveClassPath initialize(String config, String classPath, List<String> inputs) {
+        if (config != null) {
+            System.setProperty("nablarch-findbugs-config", config);
+        }
+        if (classPath != null && System.getProperty("nablarch-findbugs-warm-start-classpath") == null) {
+            // 被呼出クラスのjarが更新された場合に、保存した判定結果を使用しないようにする。
+            System.setProperty("nablarch-findbugs-warm-start-classpath", classPath);
+        }
+        PublishedApisInfo.readConfigFiles();
+
+        List<String> paths = new ArrayList<>();
+        for (String input : inputs) {
+            if (new File(input).isDirectory()) {
+                paths.add(input);
+            }
+        }
+        if (classPath != null) {
+            paths.add(classPath);
+        }
+        paths.add(ClassPath.getClassPath());
+        ArchiveClassPath archiveClassPath = new ArchiveClassPath(String.join(File.pathSeparator, paths));
+        replaceClassPath(archiveClassPath);
+        // クラスパスの文字列毎に共有されるSyntheticRepository#getInstanceは、登録したエントリが異なっても再利用されるため使用しない。
+        Repository.setRepository(new MemorySensitiveClassPathRepository(archiveClassPath));
+        return archiveClassPath;
+    }
+
+    /**
+     * 前回設定したクラスパスを閉じ、設定したクラスパスを保持する。
+     *
+     * @param classPath 設定したクラスパス
+     */
+    private static synchronized void replaceClassPath(ArchiveClassPath classPath) {
+        if (currentClassPath != null) {
+            try {
+                currentClassPath.close();
+            } catch (IOException e) {
+                System.err.println("Couldn't close class path. " + e);
+            }
+        }
+        currentClassPath = classPath;
+    }
+
+    /**
+     * クラスを解析する。
+     * 入力のクラスは、クラスディレクトリがパッケージのルートでなくても被呼出クラスとして参照できるよう登録してから解析する。
+     *
+     * @param classes 解析対象のクラス
+     * @param shard   担当する分割
+     * @return 非公開APIの使用箇所のレポート
+     */
+    static ViolationReport analyzeClasses(List<JavaClass> classes, ShardSpec shard) {
+        ViolationReport report = new ViolationReport();
+        analyzeClasses(classes, shard, report);
+        return report;
+    }
+
+    /**
+     * クラスを解析し、検出した使用箇所を順次出力する。
+     * <p/>
+     * クラスは並列に解析する。使用箇所の出力先は呼出元のスレッドからのみ、入力のクラスの順に使用するため、
+     * スレッドセーフでなくてもよく、出力の順序は並列に解析しない場合と変わらない。
+     * 保持する使用箇所が一定量に収まるよう、一定数のクラス毎に解析と出力を繰り返す。
+     *
+     * @param classes 解析対象のクラス
+     * @param shard   担当する分割
+     * @param sink    使用箇所の出力先
+     */
+    static void analyzeClasses(List<JavaClass> classes, ShardSpec shard, ViolationSink sink) {
+        List<JavaClass> targets = new ArrayList<>(classes.size());
+        for (JavaClass javaClass : classes) {
+            Repository.addClass(javaClass);
+            WarmStartSnapshot.markApplicationClass(javaClass.getClassName());
+            if (shard.contains(javaClass.getClassName())) {
+                targets.add(javaClass);
+            }
+        }
+        for (int from = 0; from < targets.size(); from += ANALYSIS_BATCH_SIZE) {
+            List<List<Violation>> results = targets.subList(from, Math.min(from + ANALYSIS_BATCH_SIZE, targets.size()))
+                    .parallelStream()
+                    .map(javaClass -> {
+                        List<Violation> violations = new ArrayList<>();
+                        ClassFileAnalyzer.analyze(javaClass, violations::add);
+                        return violations;
+                    })
+                    .collect(Collectors.toList());
+            for (List<Violation> violations : results) {
+                for (Violation violation : violations) {
+                    sink.accept(violation);
+                }
+            }
+        }
+    }
+
+    /**
+     * 子プロセスで分割して解析し、結果を併合する。
+     *
+     * @param options オプション
+     * @return 終了コード
+     */
+    private static int fork(Options options) {
+        List<Process> processes = new ArrayList<>();
+        List<File> shardFiles = new ArrayList<>();
+        try {
+            for (int i = 0; i < options.forks; i++) {
+                File shardFile = new File(options.output.getPath() + ".shard" + i);
+                shardFiles.add(shardFile);
+                processes.add(new ProcessBuilder(childCommand(options, new ShardSpec(i, options.forks), shardFile))
+                        .inheritIO()
+                        .start());
+            }
+            for (int i = 0; i < processes.size(); i++) {
+                int status = processes.get(i).waitFor();
+                if (status != 0) {
+                    throw new RuntimeException("Shard analysis failed. Shard=[" + i + "/" + options.forks
+                            + "], ExitCode=[" + status + "]");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't start shard analysis process.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for shard analysis.", e);
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+
+        ViolationReport report = new ViolationReport();
+        for (File shardFile : shardFiles) {
+            report.read(shardFile);
+            try {
+                Files.deleteIfExists(shardFile.toPath());
+            } catch (IOException e) {
+                System.err.println("Couldn't delete shard file. Path=[" + shardFile + "] " + e);
+            }
+        }
+        report.write(options.output);
+        return report.getViolations().isEmpty() ? 0 : EXIT_VIOLATIONS;
+    }
+
+    /**
+     * 分割した解析を行う子プロセスのコマンドを作成する。
+     *
+     * @param options   オプション
+     * @param shard     子プロセスが担当する分割
+     * @param shardFile 子プロセスの出力先
+     * @return コマンド
+     */
+    private static List<String> childCommand(Options options, ShardSpec shard, File shardFile) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX)) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add(UnpublishedApiChecker.class.getName());
+        command.add("analyze");
+        command.add("--output");
+        command.add(shardFile.getPath());
+        command.add("--shard");
+        command.add(shard.toString());
+        if (options.config != null) {
+            command.add("--config");
+            command.add(options.config);
+        }
+        if (options.classPath != null) {
+            command.add("--classpath");
+            command.add(options.classPath);
+        }
+        if (options.baseline != null) {
+            command.add("--baseline");
+            command.add(options.baseline.getPath());
+        }
+        command.addAll(options.inputs);
+        return command;
+    }
+
+    /**
+     * 分割して解析したレポートファイルを併合する。
+     *
+     * @param options オプション
+     * @return 終了コード
+     */
+    private static int merge(Options options) {
+        ViolationReport report = new ViolationReport();
+        for (String input : options.inputs) {
+            report.read(new File(input));
+        }
+        report.write(options.output);
+        return report.getViolations().isEmpty() ? 0 : EXIT_VIOLATIONS;
+    }
+
+    /**
+     * 停止要求を受けるまで常駐し、解析要求を処理する。
+     *
+     * @param options オプション
+     * @return 終了コード
+     */
+    private static int daemon(Options options) {
+        try (CheckerDaemon daemon = new CheckerDaemon(options.port, options.config, options.classPath)) {
+            daemon.writePortFile(options.portFile);
+            System.err.println("Checker daemon is listening. Port=[" + daemon.getPort() + "]");
+            daemon.serve();
+            PublishedApisInfo.saveWarmStartSnapshot();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't start checker daemon. Port=[" + options.port + "]", e);
+        }
+        return 0;
+    }
+
+    /**
+     * 常駐しているデーモンに解析または停止を要求する。
+     *
+     * @param options オプション
+     * @return 終了コード
+     */
+    private static int client(Options options) {
+        int port = 0;
+        try {
+            port = Integer.parseInt(new String(Files.readAllBytes(options.portFile.toPath()), StandardCharsets.UTF_8).trim());
+            String token = CheckerClient.readToken(options.portFile);
+            if (options.shutdown) {
+                CheckerClient.shutdown(port, token);
+                return 0;
+            }
+            int count;
+            if (options.output == null) {
+                Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                count = CheckerClient.check(port, token, options.inputs, out);
+                out.flush();
+            } else {
+                try (Writer out = Files.newBufferedWriter(options.output.toPath(), StandardCharsets.UTF_8)) {
+                    count = CheckerClient.check(port, token, options.inputs, out);
+                }
+            }
+            return count == 0 ? 0 : EXIT_VIOLATIONS;
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't connect to checker daemon. Path=[" + options.portFile + "] Port=[" + port + "]", e);
+        }
+    }
+
+    /**
+     * ディレクトリ配下のクラスファイルを、パスの昇順で取得する。
+     * クラスファイルを指定した場合は、そのクラスファイルのみを返却する。
+     *
+     * @param dir ディレクトリまたはクラスファイル
+     * @return クラスファイル
+     */
+    static List<Path> listClassFiles(File dir) {
+        if (dir.isFile() && dir.getName().endsWith(".class")) {
+            return Collections.singletonList(dir.toPath());
+        }
+        if (!dir.isDirectory()) {
+            throw new RuntimeException("Class directory doesn't exist. Path=[" + dir + "]");
+        }
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            return files.filter(file -> file.toString().endsWith(".class"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't list class files. Path=[" + dir + "]", e);
+        }
+    }
+
+    /**
+     * クラスファイルを読み込む。
+     *
+     * @param classFile クラスファイル
+     * @return クラス情報
+     */
+    private static JavaClass parse(Path classFile) {
+        try {
+            return parse(Files.readAllBytes(classFile), classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read class file. Path=[" + classFile + "]", e);
+        }
+    }
+
+    /**
+     * 読み込み済みのクラスファイルの内容を解析する。
+     *
+     * @param bytes     クラスファイルの内容
+     * @param classFile クラスファイル
+     * @return クラス情報
+     */
+    static JavaClass parse(byte[] bytes, Path classFile) {
+        try {
+            return new ClassParser(new ByteArrayInputStream(bytes), classFile.toString()).parse();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read class file. Path=[" + classFile + "]", e);
+        }
+    }
+
+    /**
+     * コマンドライン引数。
+     */
+    private static final class Options {
+
+        /** コマンド。 */
+        private String command;
+
+        /** 出力先のファイル。 */
+        private File output;
+
+        /** 設定ファイルが格納されているディレクトリ。 */
+        private String config;
+
+        /** 被呼出クラスを読み込むためのクラスパス。 */
+        private String classPath;
+
+        /** 担当する分割。 */
+        private ShardSpec shard = ShardSpec.ALL;
+
+        /** 子プロセスの数。 */
+        private int forks;
+
+        /** 逐次出力する形式（{@code sarif}または{@code jsonl}）。レポートファイルの形式の場合は{@code null}。 */
+        private String format;
+
+        /** 記録済みの使用箇所を除外するためのベースラインファイル。 */
+        private File baseline;
+
+        /** デーモンのポート番号。 */
+        private int port;
+
+        /** デーモンのポート番号を記録するファイル。 */
+        private File portFile;
+
+        /** デーモンの停止を要求するか否か。 */
+        private boolean shutdown;
+
+        /** 入力（クラスディレクトリまたはレポートファイル）。 */
+        private final List<String> inputs = new ArrayList<>();
+
+        /**
+         * コマンドライン引数を解析する。
+         *
+         * @param args コマンドライン引数
+         * @return 解析結果
+         */
+        static Options parse(String[] args) {
+            if (args.length == 0 || !Arrays.asList("analyze", "baseline", "merge", "daemon", "client").contains(args[0])) {
+                throw new IllegalArgumentException("Unknown command.");
+            }
+            Options options = new Options();
+            options.command = args[0];
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("--")) {
+                    options.inputs.add(arg);
+                    continue;
+                }
+                if ("--shutdown".equals(arg)) {
+                    options.shutdown = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value. Option=[" + arg + "]");
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--output":
+                        options.output = new File(value);
+                        break;
+                    case "--config":
+                        options.config = value;
+                        break;
+                    case "--classpath":
+                        options.classPath = value;
+                        break;
+                    case "--shard":
+                        options.shard = ShardSpec.parse(value);
+                        break;
+                    case "--fork":
+                        options.forks = parseForks(value);
+                        break;
+                    case "--port":
+                        options.port = parsePort(value);
+                        break;
+                    case "--format":
+                        options.format = "text".equals(value) ? null : value;
+                        break;
+                    case "--baseline":
+                        options.baseline = new File(value);
+                        break;
+                    case "--port-file":
+                        options.portFile = new File(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option. Option=[" + arg + "]");
+                }
+            }
+            if ("daemon".equals(options.command) || "client".equals(options.command)) {
+                if (options.portFile == null) {
+                    throw new IllegalArgumentException("--port-file is required.");
+                }
+            }
+            if ("daemon".equals(options.command)) {
+                return options;
+            }
+            if ("client".equals(options.command)) {
+                if (!options.shutdown && options.inputs.isEmpty()) {
+                    throw new IllegalArgumentException("No input.");
+                }
+                return options;
+            }
+            if (options.output == null) {
+                throw new IllegalArgumentException("--output is required.");
+            }
+            if (options.inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input.");
+            }
+            if (options.forks > 0 && !options.shard.isAll()) {
+                throw new IllegalArgumentException("--shard and --fork can't be used together.");
+            }
+            if (options.forks > 0 && options.format != null) {
+                throw new IllegalArgumentException("--format and --fork can't be used together.");
+            }
+            return options;
+        }
+
+        /**
+         * ポート番号を解析する。
+         *
+         * @param value ポート番号
+         * @return ポート番号
+         */
+        private static int parsePort(String value) {
+            try {
+                int port = Integer.parseInt(value);
+                if (port >= 0 && port <= 65535) {
+                    return port;
+                }
+            } catch (NumberFormatException e) {
+                // 後続で不正な値として扱う
+            }
+            throw new IllegalArgumentException("Invalid port. Port=[" + value + "]");
+        }
+
+        /**
+         * 子プロセスの数を解析する。
+         *
+         * @param value 子プロセスの数
+         * @return 子プロセスの数
+         */
+        private static int parseForks(String value) {
+            try {
+                int forks = Integer.parseInt(value);
+                if (forks > 0) {
+                    return forks;
+                }
+            } catch (NumberFormatException e) {
+                // 後続で不正な値として扱う
+            }
+            throw new IllegalArgumentException("Invalid fork count. Fork=[" + value + "]");
+        }
+    }
+}
@@ -3,14 +3,19 @@ package nablarch.test.tool.findbugs;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ba.ClassContext;
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.CodeException;
-import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ExceptionTable;
+import org.apache.bcel.classfile.LineNumberTable;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import static org.apache.bcel.Const.ATHROW;
+import static org.apache.bcel.Const.CONSTANT_Class;
 import static org.apache.bcel.Const.INVOKEINTERFACE;
 import static org.apache.bcel.Const.INVOKESPECIAL;
 import static org.apache.bcel.Const.INVOKESTATIC;
@@ -31,6 +36,9 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
     /** FindBugsバグレポーター。 */
     private final BugReporter bugReporter;
 
+    /** 内部メトリクス。 */
+    private final CheckerMetrics metrics = CheckerMetrics.getInstance();
+
     /**
      * コンストラクタ。
      *
@@ -38,13 +46,16 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
      */
     public UsageOfUnpublishedMethodDetector(final BugReporter bugReporter) {
         this.bugReporter = bugReporter;
+        CheckerProfiler.startIfEnabled();
+        ViolationStream.startIfEnabled();
+        ClassPrefetcher.startIfEnabled();
     }
 
     /** ExceptionTable内容。 */
     private CodeException[] codeExceptions;
 
-    /** コンスタントプール内容。 */
-    private Constant[] constants;
+    /** コンスタントプール。 */
+    private ConstantPool constantPool;
 
     /** finally節情報一覧。 */
     private List<FinallyClause> finallyClauses;
@@ -55,6 +66,64 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
     /** JSRモードでコンパイルされているか否かを表す。 */
     private boolean jsrMode = false;
 
+    /** 解析中のメソッドのバイトコード。 */
+    private byte[] bytecode;
+
+    /** 解析中のクラスで公開可否を判定済みのメソッド参照のコンスタントプールインデックス。 */
+    private final BitSet resolvedMethodRefs = new BitSet();
+
+    /** 判定済みのメソッド参照のうち、公開されていないメソッド参照のコンスタントプールインデックス。 */
+    private final BitSet unpublishedMethodRefs = new BitSet();
+
+    /** 解析中のクラスのメソッド参照の判定結果のキー。 */
+    private ConstantPoolKeys constantPoolKeys;
+
+    /** 解析中のクラスに適用する呼出元の範囲。 */
+    private CallerScope callerScope = CallerScope.ALL;
+
+    /** 解析中のメソッドで解析したオペコード数。 */
+    private int opcodeCount;
+
+    /**
+     * クラス毎に行う処理。
+     *
+     * @param classContext クラス情報
+     */
+    @Override
+    public void visitClassContext(final ClassContext classContext) {
+        // 公開情報の初期化で前回の実行の情報を読み込むため、解析対象のクラスの記録より先に初期化する。
+        callerScope = PublishedApisInfo.getCallerScope();
+        WarmStartSnapshot.markApplicationClass(classContext.getJavaClass().getClassName());
+        // 範囲外のクラスはオペコードを走査しない。
+        if (!callerScope.includesClass(classContext.getJavaClass())) {
+            metrics.countOutOfScopeClass();
+            return;
+        }
+        metrics.countAnalyzedClass();
+        ClassPrefetcher prefetcher = ClassPrefetcher.active();
+        if (prefetcher != null) {
+            prefetcher.submit(classContext.getJavaClass());
+        }
+        // 判定済みのメソッド参照はクラスのコンスタントプール単位で管理する。
+        resolvedMethodRefs.clear();
+        unpublishedMethodRefs.clear();
+        constantPoolKeys = new ConstantPoolKeys(classContext.getJavaClass().getConstantPool(),
+                PublishedApisInfo.getVerdictCache());
+        CheckerProfiler profiler = CheckerProfiler.active();
+        if (profiler == null) {
+            super.visitClassContext(classContext);
+            return;
+        }
+        long start = System.nanoTime();
+        long allocatedAtStart = profiler.currentThreadAllocatedBytes();
+        try {
+            super.visitClassContext(classContext);
+        } finally {
+            profiler.recordCaller(classContext.getJavaClass().getClassName(),
+                    System.nanoTime() - start, profiler.currentThreadAllocatedBytes() - allocatedAtStart);
+        }
+    }
+
     /**
      * メソッド定義毎に行う処理。
      *
@@ -63,15 +132,24 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
     @Override
     public void visitCode(final Code code) {
 
+        if (!callerScope.includesMethod(getMethod())) {
+            metrics.countOutOfScopeMethod();
+            return;
+        }
+        metrics.countAnalyzedMethod();
+
+        constantPool = code.getConstantPool();
         checkUnpublishedExceptionAtThrows();
 
         jsrMode = false;
-        constants = code.getConstantPool().getConstantPool();
         finallyIndex = 0;
         codeExceptions = code.getExceptionTable();
+        bytecode = code.getCode();
         loadFinallyClauses();
 
+        opcodeCount = 0;
         super.visitCode(code);
+        metrics.countAnalyzedOpcodes(opcodeCount);
     }
 
     /**
@@ -79,17 +157,16 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
      */
     private void checkUnpublishedExceptionAtThrows() {
 
-        String methodSig = getMethod().toString();
-        int index = methodSig.lastIndexOf("throws");
-        if (index < 0) {
+        ExceptionTable throwsClause = getMethod().getExceptionTable();
+        if (throwsClause == null) {
             return;
         }
 
-        String[] throwsExceptions = methodSig.substring(index + "throws Exceptions:".length()).split(",");
-        for (String exName : throwsExceptions) {
-            exName = exName.trim();
-            if (PublishedApisInfo.isProhibited(exName)) {
-                doBugReport(exName);
+        // 例外クラスは内部形式のクラス名で判定し、使用禁止の場合のみ「.」区切りのクラス名を作成する。
+        for (int index : throwsClause.getExceptionIndexTable()) {
+            String internalName = constantPool.getConstantString(index, CONSTANT_Class);
+            if (PublishedApisInfo.isProhibitedException(internalName)) {
+                doBugReport(internalName.replace('/', '.'), Violation.Kind.THROWS, -1);
             }
         }
     }
@@ -115,10 +192,28 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
      */
     @Override
     public void sawOpcode(final int opecode) {
+        opcodeCount++;
         checkUnpublishedApiMethodCall(opecode);
         checkUnpublishedApiException(opecode);
     }
 
+    /**
+     * 解析終了時に行う処理。
+     * プロファイル結果、未使用の公開情報のレポート、メトリクスのサマリ、次回の実行のための判定結果のうち、
+     * 有効なものを出力し、使用箇所の逐次出力を終了する。
+     */
+    @Override
+    public void report() {
+        ClassPrefetcher.finish();
+        CheckerProfiler.finish();
+        ViolationStream.finish();
+        AllowlistUsageReport.writeIfEnabled();
+        PublishedApisInfo.saveWarmStartSnapshot();
+        if (CheckerMetrics.isSummaryEnabled()) {
+            metrics.printSummary(System.err);
+        }
+    }
+
     /**
      * catch指定された例外が公開されているか否かをチェックする。
      *
@@ -135,10 +230,9 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
                     continue;
                 }
 
-                int nameIndex = getCatchTypeIndex(codeException.getCatchType());
-                String exName = formatClassName(constants[nameIndex].toString()).replace('/', '.');
-                if (PublishedApisInfo.isProhibited(exName)) {
-                    doBugReport(exName);
+                String internalName = constantPool.getConstantString(codeException.getCatchType(), CONSTANT_Class);
+                if (PublishedApisInfo.isProhibitedException(internalName)) {
+                    doBugReport(internalName.replace('/', '.'), Violation.Kind.CATCH, codeException.getHandlerPC());
                 }
             }
         }
@@ -166,25 +260,27 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
         }
     }
 
-    /**
-     * ConstantPoolから取得したクラス情報をフルパスのクラス名に修正したストリングを返す。
-     *
-     * @param exName 呼び出しAPIクラス名
-     * @return ConstantPoolから取得したクラス情報をフルパスのクラス名に修正した文字列
-     */
-    private static String formatClassName(String exName) {
-
-        int beginIndex = exName.indexOf('\"') + 1;
-        int endIndex = exName.lastIndexOf('\"');
-        return exName.substring(beginIndex, endIndex).trim();
-    }
-
     /**
      * 非公開API使用の情報を保存する。
+     * ベースラインに記録済みの使用箇所は、{@link BugInstance}を生成せずに除外する。
+     * 使用箇所の逐次出力が有効な場合は、{@link BugReporter}に報告せずに出力する。
      *
      * @param usedUnpublishedApi 使用されている非公開API名
+     * @param kind               使用の種別
+     * @param pc                 使用箇所のプログラムカウンタ。特定できない場合は-1
      */
-    private void doBugReport(String usedUnpublishedApi) {
+    private void doBugReport(String usedUnpublishedApi, Violation.Kind kind, int pc) {
+        if (ViolationBaseline.configured().contains(getDottedClassName(), getMethodName(), getMethodSig(), usedUnpublishedApi)) {
+            metrics.countBaselineSuppression();
+            return;
+        }
+        ViolationSink sink = ViolationStream.active();
+        if (sink != null) {
+            LineNumberTable lines = pc < 0 ? null : getCode().getLineNumberTable();
+            int line = lines == null ? -1 : lines.getSourceLine(pc);
+            sink.accept(new Violation(getDottedClassName(), getMethodName(), getMethodSig(), line, usedUnpublishedApi, kind));
+            return;
+        }
         bugReporter.reportBug(new BugInstance(this, BUG_CODE, NORMAL_PRIORITY)
                 .addString(usedUnpublishedApi)
                 .addMethod(this)
@@ -211,24 +307,6 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
         return false;
     }
 
-    /**
-     * 指定したcatchTypeに該当する例外クラスの情報が書かれている、ConstantPool[]のインデックスを返す。
-     *
-     * @param catchType キャッチタイプ(ConstantPoolにおけるインデックス)
-     * @return 指定したcatchTypeに該当する例外クラスの情報が書かれている、ConstantPool[]のインデックス
-     */
-    private int getCatchTypeIndex(final int catchType) {
-
-        int index = -1;
-
-        String nameIndex = constants[catchType].toString();
-        int beginIndex = nameIndex.indexOf('=');
-        int endIndex = nameIndex.lastIndexOf(')');
-        index = Integer.parseInt((nameIndex.substring(beginIndex + 1, endIndex)).trim());
-
-        return index;
-    }
-
     /**
      * finally句チェック用クラス。
      */
@@ -280,6 +358,7 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
 
     /**
      * 非公開APIのメソッドコールを検出し、報告する。
+     * 同じクラス内で判定済みのメソッド参照は、コンスタントプールインデックスにより判定結果を再利用する。
      *
      * @param opecode オペコード
      */
@@ -289,16 +368,38 @@ public class UsageOfUnpublishedMethodDetector extends BytecodeScanningDetector {
             return;
         }
 
-        String calleeClassName = getDottedClassConstantOperand();
-        String calleeMethodName = getNameConstantOperand();
-        String calleeMethodSig = getSigConstantOperand();
+        // メソッド呼出命令のオペランドは、命令の直後2バイトのコンスタントプールインデックス
+        int pc = getPC();
+        int methodRef = ((bytecode[pc + 1] & 0xFF) << 8) | (bytecode[pc + 2] & 0xFF);
+        if (resolvedMethodRefs.get(methodRef)) {
+            metrics.countResolvedMethodRefReuse();
+            if (unpublishedMethodRefs.get(methodRef)) {
+                reportUnpublishedMethodCall();
+            }
+            return;
+        }
 
-        // 非公開メソッドであればバグを報告
-        if (!PublishedApisInfo.isPermitted(calleeClassName, calleeMethodName, calleeMethodSig)) {
-            doBugReport(PublishedApisInfo.getCalleeApi(calleeClassName, calleeMethodName, calleeMethodSig));
+        resolvedMethodRefs.set(methodRef);
+        // 判定済みのAPIは、コンスタントプールのエントリ毎に求めたシンボルIDのみで判定結果を参照する。
+        int verdict = PublishedApisInfo.getCachedVerdict(constantPoolKeys.getVerdictCache(),
+                constantPoolKeys.keyOf(methodRef));
+        boolean permitted = verdict == VerdictCache.UNKNOWN
+                ? PublishedApisInfo.isPermitted(getDottedClassConstantOperand(), getNameConstantOperand(), getSigConstantOperand())
+                : verdict == VerdictCache.PERMITTED;
+        if (!permitted) {
+            unpublishedMethodRefs.set(methodRef);
+            reportUnpublishedMethodCall();
         }
     }
 
+    /**
+     * 解析中のメソッド呼出を、非公開APIの使用として報告する。
+     */
+    private void reportUnpublishedMethodCall() {
+        doBugReport(PublishedApisInfo.getCalleeApi(getDottedClassConstantOperand(), getNameConstantOperand(),
+                getSigConstantOperand()), Violation.Kind.CALL, getPC());
+    }
+
     /**
      * 指定されたオペコード値がメソッドコール命令であれば{@code true}を返す。
      *
@@ -0,0 +1,148 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 呼び出されたAPIの公開可否の判定結果をキャッシュする。
+ * <p/>
+ * クラス名・メソッド名・シグネチャは{@link SymbolTable}にて{@code int}のIDに変換し、
+ * メソッド名とシグネチャの組をメンバIDに、クラスIDとメンバIDの組を{@code long}のキーにまとめて保持する。
+ * これにより、キャッシュ済みの判定結果の参照時には文字列の生成・連結が発生しない。
+ * <p/>
+ * 複数スレッドから使用できる。同じAPIを複数スレッドが同時に判定した場合は、いずれかの判定結果が保持される。
+ */
+final class VerdictCache {
+
+    /** 判定結果が未登録であることを表す。 */
+    static final int UNKNOWN = LongIntHashMap.NO_VALUE;
+
+    /** 使用不許可を表す判定結果。 */
+    static final int PROHIBITED = 0;
+
+    /** 使用許可を表す判定結果。 */
+    static final int PERMITTED = 1;
+
+    /** クラス名・メソッド名・シグネチャのシンボルテーブル。 */
+    private final SymbolTable symbols = new SymbolTable();
+
+    /** メソッド名IDとシグネチャIDの組からメンバIDへの対応。 */
+    private final LongIntHashMap members = new LongIntHashMap();
+
+    /** クラスIDとメンバIDの組から判定結果への対応。 */
+    private final LongIntHashMap verdicts = new LongIntHashMap();
+
+    /** 次に採番するメンバID。 */
+    private final AtomicInteger nextMemberId = new AtomicInteger();
+
+    /**
+     * 呼び出されたAPIを表すキーを取得する。
+     *
+     * @param calleeClassName  呼び出されたAPIのクラス名
+     * @param calleeMethodName 呼び出されたAPIのメソッド名
+     * @param calleeMethodSig  呼び出されたAPIのシグネチャ
+     * @return 呼び出されたAPIを表すキー
+     */
+    long keyOf(String calleeClassName, String calleeMethodName, String calleeMethodSig) {
+        return keyOf(symbols.intern(calleeClassName), symbols.intern(calleeMethodName), symbols.intern(calleeMethodSig));
+    }
+
+    /**
+     * シンボルIDから、呼び出されたAPIを表すキーを取得する。
+     * 文字列のシンボルIDを保持している場合は、文字列のハッシュ値を算出せずにキーを取得できる。
+     *
+     * @param classId      呼び出されたAPIのクラス名の{@link #symbolOf(String)}
+     * @param methodNameId 呼び出されたAPIのメソッド名の{@link #symbolOf(String)}
+     * @param methodSigId  呼び出されたAPIのシグネチャの{@link #symbolOf(String)}
+     * @return 呼び出されたAPIを表すキー
+     */
+    long keyOf(int classId, int methodNameId, int methodSigId) {
+        long memberKey = pack(methodNameId, methodSigId);
+        int memberId = members.get(memberKey);
+        if (memberId == LongIntHashMap.NO_VALUE) {
+            memberId = members.putIfAbsent(memberKey, nextMemberId.getAndIncrement());
+        }
+        return pack(classId, memberId);
+    }
+
+    /**
+     * クラス名・メソッド名・シグネチャのシンボルIDを取得する。
+     *
+     * @param symbol クラス名・メソッド名・シグネチャ
+     * @return シンボルID
+     */
+    int symbolOf(String symbol) {
+        return symbols.intern(symbol);
+    }
+
+    /**
+     * 判定結果を取得する。
+     *
+     * @param key {@link #keyOf(String, String, String)}で取得したキー
+     * @return 判定結果。未登録の場合は{@link #UNKNOWN}
+     */
+    int get(long key) {
+        return verdicts.get(key);
+    }
+
+    /**
+     * 判定結果を登録する。
+     *
+     * @param key       {@link #keyOf(String, String, String)}で取得したキー
+     * @param permitted 使用許可の場合、{@code true}
+     */
+    void put(long key, boolean permitted) {
+        verdicts.put(key, permitted ? PERMITTED : PROHIBITED);
+    }
+
+    /**
+     * 登録されているすべての判定結果を、呼び出されたAPIと共に処理する。
+     *
+     * @param visitor 呼び出されたAPIと判定結果を受け取る処理
+     */
+    void forEach(VerdictVisitor visitor) {
+        String[] names = symbols.toArray();
+        long[] memberKeys = new long[nextMemberId.get()];
+        members.forEach((memberKey, memberId) -> {
+            if (memberId < memberKeys.length) {
+                memberKeys[memberId] = memberKey;
+            }
+        });
+        verdicts.forEach((key, verdict) -> {
+            int classId = (int) (key >>> 32);
+            int memberId = (int) key;
+            if (classId >= names.length || memberId >= memberKeys.length) {
+                // 処理中に登録された判定結果は対象外とする。
+                return;
+            }
+            long memberKey = memberKeys[memberId];
+            visitor.visit(names[classId], names[(int) (memberKey >>> 32)], names[(int) memberKey], verdict == PERMITTED);
+        });
+    }
+
+    /**
+     * 2つのIDを1つの{@code long}にまとめる。
+     *
+     * @param high 上位32bitに格納するID
+     * @param low  下位32bitに格納するID
+     * @return まとめた値
+     */
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 呼び出されたAPIと判定結果を受け取る処理。
+     */
+    interface VerdictVisitor {
+
+        /**
+         * 呼び出されたAPIと判定結果を処理する。
+         *
+         * @param calleeClassName  呼び出されたAPIのクラス名
+         * @param calleeMethodName 呼び出されたAPIのメソッド名
+         * @param calleeMethodSig  呼び出されたAPIのシグネチャ
+         * @param permitted        使用許可の場合、{@code true}
+         */
+        void visit(String calleeClassName, String calleeMethodName, String calleeMethodSig, boolean permitted);
+    }
+}
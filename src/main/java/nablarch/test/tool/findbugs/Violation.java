@@ -0,0 +1,170 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.Comparator;
+
+/**
+ * 非公開APIの使用箇所。
+ * <p/>
+ * 使用元のクラス・メソッド・行番号と、使用された非公開API、使用の種別を保持する。
+ * レポートファイルには1件を1行のタブ区切りで出力し、解析の分割有無によらず同じ順序で並べられるよう全順序を定義する。
+ */
+final class Violation implements Comparable<Violation> {
+
+    /** 並び順。 */
+    private static final Comparator<Violation> ORDER = Comparator.comparing((Violation v) -> v.className)
+            .thenComparing(v -> v.methodName)
+            .thenComparing(v -> v.methodSig)
+            .thenComparingInt(v -> v.line)
+            .thenComparing(v -> v.api)
+            .thenComparing(v -> v.kind);
+
+    /** 使用元のクラス名。 */
+    private final String className;
+
+    /** 使用元のメソッド名。 */
+    private final String methodName;
+
+    /** 使用元のメソッドのシグネチャ。 */
+    private final String methodSig;
+
+    /** 使用箇所の行番号。不明な場合は-1。 */
+    private final int line;
+
+    /** 使用された非公開API。 */
+    private final String api;
+
+    /** 使用の種別。 */
+    private final Kind kind;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param className  使用元のクラス名
+     * @param methodName 使用元のメソッド名
+     * @param methodSig  使用元のメソッドのシグネチャ
+     * @param line       使用箇所の行番号。不明な場合は-1
+     * @param api        使用された非公開API
+     * @param kind       使用の種別
+     */
+    Violation(String className, String methodName, String methodSig, int line, String api, Kind kind) {
+        this.className = className;
+        this.methodName = methodName;
+        this.methodSig = methodSig;
+        this.line = line;
+        this.api = api;
+        this.kind = kind;
+    }
+
+    /**
+     * レポートファイルの1行から復元する。
+     *
+     * @param line レポートファイルの1行
+     * @return 非公開APIの使用箇所
+     */
+    static Violation parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 6) {
+            throw new IllegalArgumentException("Invalid violation record. Line=[" + line + "]");
+        }
+        return new Violation(fields[0], fields[1], fields[2], Integer.parseInt(fields[3]), fields[4],
+                Kind.valueOf(fields[5]));
+    }
+
+    /**
+     * レポートファイルの1行の形式に変換する。
+     *
+     * @return タブ区切りの文字列
+     */
+    String format() {
+        return className + "\t" + methodName + "\t" + methodSig + "\t" + line + "\t" + api + "\t" + kind;
+    }
+
+    /**
+     * 使用元のクラス名を取得する。
+     *
+     * @return 使用元のクラス名
+     */
+    String getClassName() {
+        return className;
+    }
+
+    /**
+     * 使用元のメソッド名を取得する。
+     *
+     * @return 使用元のメソッド名
+     */
+    String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * 使用元のメソッドのシグネチャを取得する。
+     *
+     * @return 使用元のメソッドのシグネチャ
+     */
+    String getMethodSig() {
+        return methodSig;
+    }
+
+    /**
+     * 使用箇所の行番号を取得する。
+     *
+     * @return 使用箇所の行番号。不明な場合は-1
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * 使用された非公開APIを取得する。
+     *
+     * @return 使用された非公開API
+     */
+    String getApi() {
+        return api;
+    }
+
+    /**
+     * 使用の種別を取得する。
+     *
+     * @return 使用の種別
+     */
+    Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public int compareTo(Violation other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Violation && compareTo((Violation) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return format().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    /**
+     * 非公開APIの使用の種別。
+     */
+    enum Kind {
+
+        /** メソッド・コンストラクタの呼出。 */
+        CALL,
+
+        /** catch節での例外の指定。 */
+        CATCH,
+
+        /** throws節での例外の指定。 */
+        THROWS
+    }
+}
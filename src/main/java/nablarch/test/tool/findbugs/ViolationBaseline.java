@@ -0,0 +1,237 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 既知の非公開APIの使用箇所（ベースライン）。
+ * <p/>
+ * 使用箇所を「使用元のクラス・メソッド・使用された非公開API」の64bitハッシュ値（フィンガープリント）として保持し、
+ * ベースラインに記録済みの使用箇所を報告対象から除外するために使用する。
+ * 行番号はフィンガープリントに含めないため、使用箇所の前後を編集しても記録済みの使用箇所として扱われる。
+ * <p/>
+ * ベースラインファイルは、ヘッダに続けてフィンガープリントを昇順に並べたバイナリファイルとし、1件あたり8バイトで記録する。
+ * 判定は昇順のフィンガープリントに対する二分探索で行い、文字列や{@code BugInstance}を生成しない。
+ * <p/>
+ * SpotBugsから実行する場合は、システムプロパティ{@code nablarch-findbugs-baseline}にベースラインファイルのパスを指定する。
+ */
+final class ViolationBaseline {
+
+    /** ベースラインファイルの識別子（"NUBL"）。 */
+    private static final int MAGIC = 0x4E55424C;
+
+    /** ベースラインファイルの形式のバージョン。 */
+    private static final int VERSION = 1;
+
+    /** FNV-1aのオフセット基底。 */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /** FNV-1aの素数。 */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** 要素間の区切りとしてハッシュ値に含める値。 */
+    private static final char SEPARATOR = '\u0000';
+
+    /** ベースラインが指定されていない場合のインスタンス。 */
+    static final ViolationBaseline EMPTY = new ViolationBaseline(new long[0]);
+
+    /** システムプロパティで指定されたベースライン。 */
+    private static volatile ViolationBaseline configured;
+
+    /** システムプロパティで指定されたベースラインファイルのパス。 */
+    private static String configuredPath;
+
+    /** 昇順に並べたフィンガープリント。 */
+    private final long[] fingerprints;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param fingerprints 昇順に並べた重複のないフィンガープリント
+     */
+    private ViolationBaseline(long[] fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * 使用箇所からベースラインを作成する。
+     *
+     * @param violations 使用箇所
+     * @return ベースライン
+     */
+    static ViolationBaseline of(Collection<Violation> violations) {
+        long[] values = new long[violations.size()];
+        int i = 0;
+        for (Violation violation : violations) {
+            values[i++] = fingerprint(violation.getClassName(), violation.getMethodName(),
+                    violation.getMethodSig(), violation.getApi());
+        }
+        return new ViolationBaseline(distinctSorted(values));
+    }
+
+    /**
+     * システムプロパティで指定されたベースラインを取得する。
+     * 指定されたパスが変わった場合は読み込み直す。
+     *
+     * @return ベースライン。指定されていない場合は{@link #EMPTY}
+     */
+    static ViolationBaseline configured() {
+        String path = System.getProperty("nablarch-findbugs-baseline");
+        ViolationBaseline baseline = configured;
+        if (baseline != null && same(path, configuredPath)) {
+            return baseline;
+        }
+        synchronized (ViolationBaseline.class) {
+            if (configured == null || !same(path, configuredPath)) {
+                configured = path == null || path.isEmpty() ? EMPTY : read(new File(path));
+                configuredPath = path;
+            }
+            return configured;
+        }
+    }
+
+    /**
+     * ベースラインファイルのパスが同一か否かを判定する。
+     *
+     * @param path1 パス
+     * @param path2 パス
+     * @return 同一の場合{@code true}
+     */
+    private static boolean same(String path1, String path2) {
+        return path1 == null ? path2 == null : path1.equals(path2);
+    }
+
+    /**
+     * ベースラインファイルを読み込む。
+     *
+     * @param file ベースラインファイル
+     * @return ベースライン
+     */
+    static ViolationBaseline read(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new RuntimeException("Invalid baseline file. Path=[" + file + "]");
+            }
+            long[] values = new long[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readLong();
+            }
+            return new ViolationBaseline(distinctSorted(values));
+        } catch (EOFException e) {
+            throw new RuntimeException("Invalid baseline file. Path=[" + file + "]", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read baseline file. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * ベースラインファイルに出力する。
+     *
+     * @param file 出力先ファイル
+     */
+    void write(File file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fingerprints.length);
+            for (long fingerprint : fingerprints) {
+                out.writeLong(fingerprint);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write baseline file. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * 使用箇所がベースラインに記録済みか否かを判定する。
+     *
+     * @param className  使用元のクラス名
+     * @param methodName 使用元のメソッド名
+     * @param methodSig  使用元のメソッドのシグネチャ
+     * @param api        使用された非公開API
+     * @return 記録済みの場合{@code true}
+     */
+    boolean contains(String className, String methodName, String methodSig, String api) {
+        return fingerprints.length != 0
+                && Arrays.binarySearch(fingerprints, fingerprint(className, methodName, methodSig, api)) >= 0;
+    }
+
+    /**
+     * 使用箇所がベースラインに記録済みか否かを判定する。
+     *
+     * @param violation 使用箇所
+     * @return 記録済みの場合{@code true}
+     */
+    boolean contains(Violation violation) {
+        return contains(violation.getClassName(), violation.getMethodName(), violation.getMethodSig(), violation.getApi());
+    }
+
+    /**
+     * 記録されている使用箇所の数を取得する。
+     *
+     * @return 使用箇所の数
+     */
+    int size() {
+        return fingerprints.length;
+    }
+
+    /**
+     * 使用箇所のフィンガープリントを算出する。
+     * 連結した文字列を生成せずに、各要素の文字を順にFNV-1aでハッシュする。
+     *
+     * @param className  使用元のクラス名
+     * @param methodName 使用元のメソッド名
+     * @param methodSig  使用元のメソッドのシグネチャ
+     * @param api        使用された非公開API
+     * @return フィンガープリント
+     */
+    static long fingerprint(String className, String methodName, String methodSig, String api) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, className);
+        hash = hash(hash, methodName);
+        hash = hash(hash, methodSig);
+        return hash(hash, api);
+    }
+
+    /**
+     * 文字列と区切りをハッシュ値に加える。
+     *
+     * @param hash  ハッシュ値
+     * @param value 文字列
+     * @return ハッシュ値
+     */
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return (hash ^ SEPARATOR) * FNV_PRIME;
+    }
+
+    /**
+     * 昇順に並べ、重複を除去する。
+     *
+     * @param values 値
+     * @return 昇順に並べた重複のない値
+     */
+    private static long[] distinctSorted(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+}
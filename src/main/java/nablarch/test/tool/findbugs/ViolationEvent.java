@@ -0,0 +1,78 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * {@link ViolationPublisher}が発行する、非公開APIの使用箇所。
+ */
+public final class ViolationEvent {
+
+    /** 使用箇所。 */
+    private final Violation violation;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param violation 使用箇所
+     */
+    ViolationEvent(Violation violation) {
+        this.violation = violation;
+    }
+
+    /**
+     * 使用元のクラス名を取得する。
+     *
+     * @return 使用元のクラス名
+     */
+    public String getClassName() {
+        return violation.getClassName();
+    }
+
+    /**
+     * 使用元のメソッド名を取得する。
+     *
+     * @return 使用元のメソッド名
+     */
+    public String getMethodName() {
+        return violation.getMethodName();
+    }
+
+    /**
+     * 使用元のメソッドのシグネチャを取得する。
+     *
+     * @return 使用元のメソッドのシグネチャ
+     */
+    public String getMethodSignature() {
+        return violation.getMethodSig();
+    }
+
+    /**
+     * 使用箇所の行番号を取得する。
+     *
+     * @return 使用箇所の行番号。不明な場合は-1
+     */
+    public int getLine() {
+        return violation.getLine();
+    }
+
+    /**
+     * 使用された非公開APIを取得する。
+     *
+     * @return 使用された非公開API
+     */
+    public String getApi() {
+        return violation.getApi();
+    }
+
+    /**
+     * 使用の種別を取得する。
+     *
+     * @return {@code CALL}（呼出）、{@code THROWS}（throws節）、{@code CATCH}（catch節）のいずれか
+     */
+    public String getKind() {
+        return violation.getKind().name();
+    }
+
+    @Override
+    public String toString() {
+        return violation.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * 検出した非公開APIの使用箇所を、背圧（back-pressure）を伴って逐次受け取るためのインタフェース。
+ * <p/>
+ * Java 8で動作するよう、{@code java.util.concurrent.Flow}と同じメソッド・規約のインタフェースを定義する。
+ * Java 9以降の{@code Flow.Subscriber}は、各メソッドを委譲するだけで{@link Subscriber}として使用できる。
+ */
+public final class ViolationFlow {
+
+    /**
+     * コンストラクタ。
+     */
+    private ViolationFlow() {
+    }
+
+    /**
+     * 要素の発行元。
+     *
+     * @param <T> 要素の型
+     */
+    public interface Publisher<T> {
+
+        /**
+         * 購読者を登録する。
+         * 登録できない場合は、{@link Subscriber#onSubscribe(Subscription)}の後に{@link Subscriber#onError(Throwable)}を呼び出す。
+         *
+         * @param subscriber 購読者
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * 要素の購読者。各メソッドは同時に呼び出されない。
+     *
+     * @param <T> 要素の型
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * 購読の開始時に呼び出される。{@link Subscription#request(long)}で要求するまで要素は渡されない。
+         *
+         * @param subscription 購読
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * 要求した要素を1件受け取る。
+         *
+         * @param item 要素
+         */
+        void onNext(T item);
+
+        /**
+         * 発行元でエラーが発生した場合に呼び出される。以後、呼び出されるメソッドはない。
+         *
+         * @param throwable エラー
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * すべての要素を渡し終えた場合に呼び出される。以後、呼び出されるメソッドはない。
+         */
+        void onComplete();
+    }
+
+    /**
+     * 発行元と購読者の間の購読。
+     */
+    public interface Subscription {
+
+        /**
+         * 要素を追加で要求する。0以下を指定した場合は{@link Subscriber#onError(Throwable)}が呼び出される。
+         *
+         * @param n 追加で要求する件数
+         */
+        void request(long n);
+
+        /**
+         * 購読を取り消す。以後、要素は渡されない。
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,296 @@
+package nablarch.test.tool.findbugs;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * 検出した非公開APIの使用箇所を、検出した順に購読者へ発行する。
+ * <p/>
+ * 他のツールに本チェッカーを組み込み、SpotBugsのレポートやファイルを介さずに使用箇所を受け取るためのAPIである。
+ * 購読者は1つのみ登録できる。購読者が要求した件数を超える使用箇所はバッファに保持し、
+ * バッファが一杯の場合は、購読者が要求するまで解析を待機させる。このため、使用箇所の件数によらず一定のメモリで動作する。
+ * <p/>
+ * 以下のいずれかの方法で解析し、解析の終了時に{@link ViolationFlow.Subscriber#onComplete()}を呼び出す。
+ * <ul>
+ * <li>{@link #analyze(String, String, String...)}：SpotBugsを使用せずにクラスディレクトリ・jarファイル・warファイルを解析する。</li>
+ * <li>{@link #attachToDetector()}：同じJVMで実行するSpotBugsの解析で検出した使用箇所を発行する。
+ * 使用箇所はSpotBugsのレポートには含まれない。</li>
+ * </ul>
+ * 購読者の登録は解析の開始前に行うこと。解析と同じスレッドで要求を行わない場合、購読者は別スレッドから要求すること。
+ */
+public final class ViolationPublisher implements ViolationFlow.Publisher<ViolationEvent> {
+
+    /** デフォルトのバッファの件数。 */
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /** バッファの件数。 */
+    private final int bufferSize;
+
+    /** 購読者に渡していない使用箇所。 */
+    private final Deque<ViolationEvent> buffer = new ArrayDeque<>();
+
+    /** 状態の更新を排他するためのロック。 */
+    private final Object lock = new Object();
+
+    /** 購読者が登録されたか否か。 */
+    private boolean subscribed;
+
+    /** 購読の開始を通知した購読者。通知前は{@code null}。 */
+    private ViolationFlow.Subscriber<? super ViolationEvent> subscriber;
+
+    /** 購読者が要求している件数。 */
+    private long demand;
+
+    /** 購読者へ通知中か否か。 */
+    private boolean emitting;
+
+    /** 購読が取り消されたか否か。 */
+    private boolean cancelled;
+
+    /** すべての使用箇所を発行し終えたか否か。 */
+    private boolean completed;
+
+    /** 購読者に通知するエラー。 */
+    private Throwable error;
+
+    /** 購読者に終了を通知したか否か。 */
+    private boolean terminated;
+
+    /**
+     * デフォルトのバッファの件数（256件）で作成する。
+     */
+    public ViolationPublisher() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * バッファの件数を指定して作成する。
+     *
+     * @param bufferSize バッファの件数
+     */
+    public ViolationPublisher(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive. BufferSize=[" + bufferSize + "]");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(ViolationFlow.Subscriber<? super ViolationEvent> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        boolean rejected;
+        synchronized (lock) {
+            rejected = subscribed;
+            subscribed = true;
+        }
+        if (rejected) {
+            subscriber.onSubscribe(new RejectedSubscription());
+            subscriber.onError(new IllegalStateException("ViolationPublisher allows only one subscriber."));
+            return;
+        }
+        // 購読開始の通知中に要求された使用箇所は、通知後に渡す。
+        subscriber.onSubscribe(new PublisherSubscription());
+        synchronized (lock) {
+            this.subscriber = subscriber;
+        }
+        drain();
+    }
+
+    /**
+     * SpotBugsを使用せずに、クラスディレクトリ配下またはjarファイル・warファイル内のクラスを解析する。
+     * 解析を終了すると、購読者に終了またはエラーを通知する。
+     *
+     * @param config    設定ファイルが格納されているディレクトリ（{@code null}の場合はシステムプロパティの指定に従う）
+     * @param classPath 被呼出クラスを読み込むためのクラスパス（{@code null}可）
+     * @param inputs    解析対象のクラスディレクトリ・jarファイル・warファイル
+     */
+    public void analyze(String config, String classPath, String... inputs) {
+        try {
+            UnpublishedApiChecker.analyzeClasses(UnpublishedApiChecker.readClasses(config, classPath, Arrays.asList(inputs)),
+                    ShardSpec.ALL, this::publish);
+        } catch (RuntimeException | Error e) {
+            fail(e);
+            throw e;
+        }
+        complete();
+    }
+
+    /**
+     * 同じJVMで実行するSpotBugsの解析で検出した使用箇所を発行する。
+     * SpotBugsの解析を終了すると、購読者に終了を通知する。
+     *
+     * @throws IllegalStateException 使用箇所の逐次出力が既に有効な場合
+     */
+    public void attachToDetector() {
+        ViolationStream.attach(new ViolationSink() {
+            @Override
+            public void accept(Violation violation) {
+                publish(violation);
+            }
+
+            @Override
+            public void close() {
+                complete();
+            }
+        });
+    }
+
+    /**
+     * 使用箇所を発行する。バッファが一杯の場合は、購読者が要求するか購読を取り消すまで待機する。
+     *
+     * @param violation 使用箇所
+     */
+    void publish(Violation violation) {
+        synchronized (lock) {
+            while (buffer.size() >= bufferSize && !cancelled && error == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for the subscriber's request.", e);
+                }
+            }
+            if (cancelled || error != null || completed) {
+                return;
+            }
+            buffer.add(new ViolationEvent(violation));
+        }
+        drain();
+    }
+
+    /**
+     * すべての使用箇所を発行し終えたことを通知する。バッファの使用箇所を渡し終えた後に通知する。
+     */
+    void complete() {
+        synchronized (lock) {
+            completed = true;
+        }
+        drain();
+    }
+
+    /**
+     * エラーを通知する。バッファの使用箇所は破棄する。
+     *
+     * @param throwable エラー
+     */
+    void fail(Throwable throwable) {
+        synchronized (lock) {
+            if (error == null && !completed) {
+                error = throwable;
+                buffer.clear();
+                lock.notifyAll();
+            }
+        }
+        drain();
+    }
+
+    /**
+     * 要求された件数の範囲で使用箇所を渡し、すべて渡し終えた場合は終了を通知する。
+     * 購読者の各メソッドが同時に呼び出されないよう、通知は1スレッドのみが行う。
+     */
+    private void drain() {
+        synchronized (lock) {
+            if (emitting) {
+                return;
+            }
+            emitting = true;
+        }
+        while (true) {
+            ViolationFlow.Subscriber<? super ViolationEvent> target;
+            ViolationEvent next = null;
+            Throwable failure;
+            synchronized (lock) {
+                target = subscriber;
+                failure = error;
+                if (target == null || cancelled || terminated) {
+                    emitting = false;
+                    return;
+                }
+                if (failure == null && demand > 0 && !buffer.isEmpty()) {
+                    next = buffer.poll();
+                    demand--;
+                    lock.notifyAll();
+                } else if (failure != null || completed && buffer.isEmpty()) {
+                    terminated = true;
+                } else {
+                    emitting = false;
+                    return;
+                }
+            }
+            try {
+                if (next != null) {
+                    target.onNext(next);
+                } else if (failure != null) {
+                    target.onError(failure);
+                } else {
+                    target.onComplete();
+                }
+            } catch (RuntimeException e) {
+                // 規約に反して購読者が例外を送出した場合は、購読を取り消したものとする。
+                // 例外は発行元（SpotBugsの解析スレッド等）に伝播させず、解析は継続する。
+                synchronized (lock) {
+                    cancel();
+                    emitting = false;
+                }
+                System.err.println("Subscriber threw an exception. Subscription was cancelled. " + e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 購読を取り消し、バッファの使用箇所を破棄する。待機中の解析は再開する。
+     */
+    private void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            buffer.clear();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 登録した購読者の購読。
+     */
+    private final class PublisherSubscription implements ViolationFlow.Subscription {
+
+        @Override
+        public void request(long n) {
+            synchronized (lock) {
+                if (cancelled || terminated) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Requested count must be positive. Count=[" + n + "]");
+                    buffer.clear();
+                    lock.notifyAll();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            ViolationPublisher.this.cancel();
+        }
+    }
+
+    /**
+     * 登録できなかった購読者の購読。何も行わない。
+     */
+    private static final class RejectedSubscription implements ViolationFlow.Subscription {
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * 非公開APIの使用箇所のレポート。
+ * <p/>
+ * 使用箇所は{@link Violation}の順序で重複なく保持するため、分割して解析した結果を併合したレポートは、
+ * 分割せずに解析したレポートと同一の内容となる。
+ */
+final class ViolationReport implements ViolationSink {
+
+    /** 非公開APIの使用箇所。 */
+    private final SortedSet<Violation> violations = new TreeSet<>();
+
+    @Override
+    public void accept(Violation violation) {
+        violations.add(violation);
+    }
+
+    /**
+     * 使用箇所を追加する。
+     *
+     * @param found 追加する使用箇所
+     */
+    void addAll(Collection<Violation> found) {
+        violations.addAll(found);
+    }
+
+    /**
+     * 使用箇所を取得する。
+     *
+     * @return 使用箇所
+     */
+    SortedSet<Violation> getViolations() {
+        return Collections.unmodifiableSortedSet(violations);
+    }
+
+    /**
+     * レポートファイルを読み込み、使用箇所を追加する。
+     *
+     * @param file レポートファイル
+     */
+    void read(File file) {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    violations.add(Violation.parse(line));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read violation report. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * レポートファイルに出力する。
+     *
+     * @param file 出力先のファイル
+     */
+    void write(File file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            write(writer);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write violation report. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * レポートを出力する。
+     *
+     * @param writer 出力先
+     * @throws IOException 出力に失敗した場合
+     */
+    void write(Writer writer) throws IOException {
+        for (Violation violation : violations) {
+            writer.write(violation.format());
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package nablarch.test.tool.findbugs;
+
+/**
+ * 検出した非公開APIの使用箇所の出力先。
+ * <p/>
+ * 使用箇所は検出した順に1件ずつ渡される。実装は使用箇所を保持せずに出力することで、
+ * 使用箇所の件数によらず一定のメモリで動作できる。
+ */
+interface ViolationSink extends AutoCloseable {
+
+    /**
+     * 使用箇所を出力する。
+     *
+     * @param violation 使用箇所
+     */
+    void accept(Violation violation);
+
+    /**
+     * 出力を終了する。
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,96 @@
+package nablarch.test.tool.findbugs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 検出した非公開APIの使用箇所を、SpotBugsの{@code BugReporter}を経由せずにファイルへ逐次出力する。
+ * <p/>
+ * システムプロパティ{@code nablarch-findbugs-stream-output}に出力先ファイルのパスを指定した場合のみ有効となる。
+ * 形式はシステムプロパティ{@code nablarch-findbugs-stream-format}に{@code sarif}または{@code jsonl}を指定する。
+ * 省略した場合は、出力先ファイルの拡張子が{@code .sarif}であればSARIF、それ以外はJSON Linesとする。
+ * <p/>
+ * 有効な場合、使用箇所は{@code BugInstance}として報告されないため、使用箇所の件数によらず一定のメモリで解析できる。
+ */
+final class ViolationStream {
+
+    /** 出力中の出力先。無効な場合は{@code null}。 */
+    private static volatile ViolationSink active;
+
+    /**
+     * コンストラクタ。
+     */
+    private ViolationStream() {
+    }
+
+    /**
+     * システムプロパティの設定に従って出力を開始する。既に出力中の場合や、無効な場合は何もしない。
+     */
+    static synchronized void startIfEnabled() {
+        String path = System.getProperty("nablarch-findbugs-stream-output");
+        if (active != null || path == null || path.isEmpty()) {
+            return;
+        }
+        active = open(new File(path), System.getProperty("nablarch-findbugs-stream-format"));
+    }
+
+    /**
+     * 指定した出力先への出力を開始する。{@link ViolationPublisher}から使用する。
+     *
+     * @param sink 出力先
+     * @throws IllegalStateException 既に出力中の場合
+     */
+    static synchronized void attach(ViolationSink sink) {
+        if (active != null) {
+            throw new IllegalStateException("Violation output is already active.");
+        }
+        active = sink;
+    }
+
+    /**
+     * 出力中の出力先を取得する。
+     *
+     * @return 出力先。無効な場合は{@code null}
+     */
+    static ViolationSink active() {
+        return active;
+    }
+
+    /**
+     * 出力を終了する。無効な場合は何もしない。
+     */
+    static synchronized void finish() {
+        ViolationSink sink = active;
+        if (sink == null) {
+            return;
+        }
+        active = null;
+        sink.close();
+    }
+
+    /**
+     * 出力先ファイルを開く。
+     *
+     * @param file   出力先ファイル
+     * @param format 形式（{@code sarif}または{@code jsonl}）。{@code null}の場合は拡張子から判定する
+     * @return 出力先
+     */
+    static ViolationSink open(File file, String format) {
+        if (format == null || format.isEmpty()) {
+            format = file.getName().endsWith(".sarif") ? "sarif" : "jsonl";
+        }
+        if (!"sarif".equals(format) && !"jsonl".equals(format)) {
+            throw new IllegalArgumentException("Unknown violation output format. Format=[" + format + "]");
+        }
+        Writer writer;
+        try {
+            writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't open violation output. Path=[" + file + "]", e);
+        }
+        return "sarif".equals(format) ? new SarifViolationSink(writer) : new JsonLinesViolationSink(writer);
+    }
+}
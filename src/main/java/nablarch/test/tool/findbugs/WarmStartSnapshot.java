@@ -0,0 +1,316 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 公開可否の判定結果とクラス情報のキャッシュを、実行終了時にファイルへ保存し、次回の実行開始時に読み込む。
+ * <p/>
+ * システムプロパティ{@code nablarch-findbugs-warm-start}に保存先ファイルのパスを指定した場合のみ有効となる。
+ * 保存内容は、設定ファイルの内容・JDKのバージョン・被呼出クラスのjarの内容から算出したキーと共に保存し、
+ * キーが一致する場合のみ読み込む。被呼出クラスのjarは、システムプロパティ{@code nablarch-findbugs-warm-start-classpath}に
+ * クラスパスの形式で指定する。指定しない場合はSpotBugsの補助クラスパスを使用し、
+ * SpotBugsの解析中でもない場合は、被呼出クラスの更新を検知できないため保存・読み込みを行わない。
+ * <p/>
+ * 判定結果と共に使用許可APIのエントリの使用回数を保存し、判定結果を読み込んだ場合は使用回数も引き継ぐ。
+ * これにより、読み込んだ判定結果のみで判定されたエントリが未使用と報告されないようにする。
+ * <p/>
+ * 解析対象のクラス（アプリケーションのクラス）は実行ごとに変更されるため、解析対象のクラスの情報と、
+ * 解析対象のクラスを被呼出クラスとする判定結果は保存しない。
+ */
+final class WarmStartSnapshot {
+
+    /** ファイルの識別子（"NUWS"）。 */
+    private static final int MAGIC = 0x4E555753;
+
+    /** ファイルの形式のバージョン。 */
+    private static final int VERSION = 2;
+
+    /** 解析対象のクラス名。 */
+    private static final Set<String> APPLICATION_CLASSES = ConcurrentHashMap.newKeySet();
+
+    /** 読み込み時に算出したキー。無効な場合は{@code null}。 */
+    private static volatile Long key;
+
+    /**
+     * コンストラクタ。
+     */
+    private WarmStartSnapshot() {
+    }
+
+    /**
+     * 有効な場合、保存した判定結果とクラス情報を読み込む。
+     * キーが一致しない場合や、保存先ファイルが存在しない場合は読み込まない。
+     *
+     * @param configFiles 設定ファイル
+     * @param config      判定結果の登録先の公開情報
+     */
+    static void loadIfEnabled(File[] configFiles, AllowlistSnapshot config) {
+        String path = System.getProperty("nablarch-findbugs-warm-start");
+        if (path == null || path.isEmpty()) {
+            key = null;
+            return;
+        }
+        String classPath = System.getProperty("nablarch-findbugs-warm-start-classpath");
+        if (classPath == null || classPath.isEmpty()) {
+            classPath = spotBugsAuxClassPath();
+        }
+        if (classPath == null) {
+            System.err.println("Warm-start snapshot is disabled because the class path of callee classes is unknown. "
+                    + "Specify nablarch-findbugs-warm-start-classpath. Path=[" + path + "]");
+            key = null;
+            return;
+        }
+        long current = computeKey(configFiles, classPath);
+        key = current;
+        File file = new File(path);
+        if (!file.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != current) {
+                return;
+            }
+            int summaryCount = in.readInt();
+            List<ClassSummary> summaries = new ArrayList<>(summaryCount);
+            for (int i = 0; i < summaryCount; i++) {
+                summaries.add(ClassSummary.read(in));
+            }
+            ClassRepository.preload(summaries);
+            VerdictCache verdictCache = config.getVerdictCache();
+            int verdictCount = in.readInt();
+            for (int i = 0; i < verdictCount; i++) {
+                verdictCache.put(verdictCache.keyOf(in.readUTF(), in.readUTF(), in.readUTF()), in.readBoolean());
+            }
+            Map<String, AllowlistEntry> entries = new HashMap<>();
+            for (AllowlistEntry entry : config.getEntries()) {
+                entries.put(entryId(entry.getConfigFile().getName(), entry.getLineNumber()), entry);
+            }
+            int hitCount = in.readInt();
+            for (int i = 0; i < hitCount; i++) {
+                AllowlistEntry entry = entries.get(entryId(in.readUTF(), in.readInt()));
+                long hits = in.readLong();
+                if (entry != null) {
+                    entry.addHits(hits);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read warm-start snapshot. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * 使用許可APIのエントリの識別子を作成する。
+     * 設定ファイルのディレクトリは実行ごとに異なる場合があるため、ファイル名と行番号から作成する。
+     *
+     * @param configFileName 設定ファイル名
+     * @param lineNumber     行番号
+     * @return エントリの識別子
+     */
+    private static String entryId(String configFileName, int lineNumber) {
+        return configFileName + ":" + lineNumber;
+    }
+
+    /**
+     * 実行中のSpotBugsの解析の補助クラスパスを取得する。
+     *
+     * @return クラスパス文字列。SpotBugsの解析中でない場合は{@code null}
+     */
+    private static String spotBugsAuxClassPath() {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (analysisCache == null) {
+            return null;
+        }
+        List<String> entries = new ArrayList<>();
+        Iterator<? extends ICodeBase> codeBases = analysisCache.getClassPath().auxCodeBaseIterator();
+        while (codeBases.hasNext()) {
+            String pathName = codeBases.next().getPathName();
+            if (pathName != null) {
+                entries.add(pathName);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * 解析対象のクラスを記録する。記録したクラスの情報と判定結果は保存しない。
+     * 保存した情報の読み込みより前に解析されたクラスも保存しないよう、有効か否かによらず記録する。
+     *
+     * @param className 解析対象のクラス名
+     */
+    static void markApplicationClass(String className) {
+        APPLICATION_CLASSES.add(className);
+    }
+
+    /**
+     * 記録した解析対象のクラスを破棄する。
+     */
+    static void clearApplicationClasses() {
+        APPLICATION_CLASSES.clear();
+    }
+
+    /**
+     * 有効な場合、判定結果とクラス情報を保存する。
+     *
+     * @param config 保存する判定結果を保持する公開情報
+     */
+    static void saveIfEnabled(AllowlistSnapshot config) {
+        Long current = key;
+        String path = System.getProperty("nablarch-findbugs-warm-start");
+        if (current == null || path == null || path.isEmpty()) {
+            return;
+        }
+        File file = new File(path);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(current);
+            List<ClassSummary> summaries = new ArrayList<>();
+            for (ClassSummary summary : ClassRepository.cachedSummaries()) {
+                if (!APPLICATION_CLASSES.contains(summary.getClassName())) {
+                    summaries.add(summary);
+                }
+            }
+            out.writeInt(summaries.size());
+            for (ClassSummary summary : summaries) {
+                summary.write(out);
+            }
+            // 判定結果の件数を先に出力するため、判定結果は一旦メモリ上に出力する。
+            ByteArrayOutputStream verdictBytes = new ByteArrayOutputStream();
+            DataOutputStream verdictOut = new DataOutputStream(verdictBytes);
+            int[] verdictCount = new int[1];
+            config.getVerdictCache().forEach((calleeClassName, calleeMethodName, calleeMethodSig, permitted) -> {
+                if (calleeClassName == null || calleeMethodName == null || calleeMethodSig == null
+                        || APPLICATION_CLASSES.contains(calleeClassName)) {
+                    return;
+                }
+                try {
+                    verdictOut.writeUTF(calleeClassName);
+                    verdictOut.writeUTF(calleeMethodName);
+                    verdictOut.writeUTF(calleeMethodSig);
+                    verdictOut.writeBoolean(permitted);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                verdictCount[0]++;
+            });
+            out.writeInt(verdictCount[0]);
+            verdictBytes.writeTo(out);
+            List<AllowlistEntry> usedEntries = new ArrayList<>();
+            for (AllowlistEntry entry : config.getEntries()) {
+                if (entry.getHits() > 0) {
+                    usedEntries.add(entry);
+                }
+            }
+            out.writeInt(usedEntries.size());
+            for (AllowlistEntry entry : usedEntries) {
+                out.writeUTF(entry.getConfigFile().getName());
+                out.writeInt(entry.getLineNumber());
+                out.writeLong(entry.getHits());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't write warm-start snapshot. Path=[" + file + "]", e);
+        }
+    }
+
+    /**
+     * 保存内容のキーを算出する。
+     * 設定ファイルの内容、JDKのバージョン、被呼出クラスのjarの内容のCRC32から算出する。
+     * 被呼出クラスのクラスパスにディレクトリを含む場合は、ディレクトリ配下のファイルのパス・サイズ・更新日時を使用する。
+     *
+     * @param configFiles 設定ファイル
+     * @param classPath   被呼出クラスのクラスパス（{@code null}可）
+     * @return キー
+     */
+    static long computeKey(File[] configFiles, String classPath) {
+        CRC32 crc = new CRC32();
+        File[] sorted = configFiles.clone();
+        Arrays.sort(sorted, Comparator.comparing(File::getName));
+        for (File configFile : sorted) {
+            update(crc, configFile);
+        }
+        long configHash = crc.getValue();
+
+        crc.reset();
+        String jdkVersion = System.getProperty("java.vendor") + "/" + System.getProperty("java.version");
+        crc.update(jdkVersion.getBytes(StandardCharsets.UTF_8));
+        if (classPath != null && !classPath.isEmpty()) {
+            for (String element : classPath.split(File.pathSeparator)) {
+                File entry = new File(element);
+                crc.update(element.getBytes(StandardCharsets.UTF_8));
+                if (entry.isFile()) {
+                    update(crc, entry);
+                } else if (entry.isDirectory()) {
+                    updateDirectory(crc, entry);
+                }
+            }
+        }
+        return configHash << 32 | crc.getValue();
+    }
+
+    /**
+     * ディレクトリ配下のファイルの相対パス・サイズ・更新日時を、相対パスの順にCRC32に加える。
+     * クラスファイルの内容は読み込まずに、再コンパイル等による更新を検知する。
+     *
+     * @param crc       CRC32
+     * @param directory ディレクトリ
+     */
+    private static void updateDirectory(CRC32 crc, File directory) {
+        Path root = directory.toPath();
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read directory for warm-start snapshot key. Path=[" + directory + "]", e);
+        }
+        for (Path file : files) {
+            File entry = file.toFile();
+            String stat = root.relativize(file) + "/" + entry.length() + "/" + entry.lastModified();
+            crc.update(stat.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * ファイルの内容をCRC32に加える。
+     *
+     * @param crc  CRC32
+     * @param file ファイル
+     */
+    private static void update(CRC32 crc, File file) {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read file for warm-start snapshot key. Path=[" + file + "]", e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.BugCollectionBugReporter;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.asm.FBClassReader;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.classfile.analysis.ClassInfo;
+import edu.umd.cs.findbugs.classfile.engine.ClassParserUsingASM;
+import edu.umd.cs.findbugs.log.Profiler;
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.ClassPath;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 呼出箇所毎に実行される処理のメモリ割り当て量のテスト。
+ * <p/>
+ * 判定済みのAPIの判定と呼出箇所のチェックでメモリを割り当てないこと、
+ * メソッド毎のメモリ割り当て量が一定量以内であることを確認する。
+ */
+public class AllocationBudgetTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String PACKAGE = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java";
+
+    /** 測定時の実行回数。 */
+    private static final int ITERATIONS = 10000;
+
+    /** 検出器で走査する場合の測定時の実行回数。 */
+    private static final int DETECTOR_ITERATIONS = 1000;
+
+    /** 解析したメソッド毎のメモリ割り当て量の上限（バイト）。 */
+    private static final long BYTES_PER_METHOD_BUDGET = 256;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(AllocationMeter.isSupported());
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    @After
+    public void tearDown() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * 判定済みのAPIの判定では、メモリを割り当てないこと。
+     */
+    @Test
+    public void testWarmVerdictAllocatesNothing() {
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny");
+        PublishedApisInfo.readConfigFiles();
+
+        assertEquals(0, AllocationMeter.bytesPerOperation(ITERATIONS,
+                () -> PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V")));
+        assertEquals(0, AllocationMeter.bytesPerOperation(ITERATIONS,
+                () -> PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V")));
+        assertEquals(0, AllocationMeter.bytesPerOperation(ITERATIONS,
+                () -> PublishedApisInfo.isPermitted(PACKAGE + ".superclass.Sub", "superMethod", "()V")));
+        assertEquals(0, AllocationMeter.bytesPerOperation(ITERATIONS,
+                () -> PublishedApisInfo.isPermitted("java.lang.Object", "hashCode", "()I")));
+        assertEquals(0, AllocationMeter.bytesPerOperation(ITERATIONS,
+                () -> PublishedApisInfo.isPermitted("[Ljava.lang.String;", "clone", "()Ljava/lang/Object;")));
+        assertEquals(0, AllocationMeter.bytesPerOperation(ITERATIONS,
+                () -> PublishedApisInfo.isProhibitedException("java/lang/Thread$State")));
+    }
+
+    /**
+     * 呼出箇所のチェックではメモリを割り当てず、解析したメソッド毎のメモリ割り当て量が上限以内であること。
+     * 呼出箇所の数のみが異なる2つのクラスの解析時の割り当て量の差が、呼出箇所の数の差（バイト）未満であることで確認する。
+     * 2回の測定は別々に行うため測定値が揺らぐが、呼出箇所毎に1つでもオブジェクトを割り当てれば超える差を許容する。
+     */
+    @Test
+    public void testCallSiteCheckAllocatesNothing() throws Exception {
+        JavaClass few = generateCaller("few", 10);
+        JavaClass many = generateCaller("many", 200);
+        ViolationSink sink = violation -> {
+            throw new AssertionError("unexpected violation. " + violation);
+        };
+
+        long fewBytes = AllocationMeter.bytesPerOperation(ITERATIONS, () -> ClassFileAnalyzer.analyze(few, sink));
+        long manyBytes = AllocationMeter.bytesPerOperation(ITERATIONS, () -> ClassFileAnalyzer.analyze(many, sink));
+        assertTrue("allocated " + fewBytes + " bytes for 10 call sites, " + manyBytes + " bytes for 200 call sites",
+                Math.abs(manyBytes - fewBytes) < 200 - 10);
+
+        int methods = few.getMethods().length;
+        assertTrue("allocated " + fewBytes + " bytes for " + methods + " methods",
+                fewBytes <= BYTES_PER_METHOD_BUDGET * methods);
+    }
+
+    /**
+     * 検出器による呼出箇所のチェック（{@code checkUnpublishedApiMethodCall}）ではメモリを割り当てず、
+     * 解析したメソッド毎のメモリ割り当て量が上限以内であること。
+     * SpotBugsのバイトコードの走査自体の割り当て量は、何も検出しない検出器で同じクラスを走査した割り当て量を差し引いて除く。
+     * 呼出箇所の数のみが異なる2つのクラスの、検出器による割り当て量の差が呼出箇所の数の差（バイト）未満であることで確認する。
+     * 2回の測定の差し引きにより測定値が揺らぐため、呼出箇所毎に1つでもオブジェクトを割り当てれば超える差を許容する。
+     */
+    @Test
+    public void testDetectorCallSiteCheckAllocatesNothing() throws Exception {
+        JavaClass few = generateCaller("few", 10);
+        JavaClass many = generateCaller("many", 1000);
+        installAnalysisCache(few, many);
+        try {
+            BugReporter bugReporter = new BugCollectionBugReporter(new Project());
+            UsageOfUnpublishedMethodDetector detector = new UsageOfUnpublishedMethodDetector(bugReporter);
+            BytecodeScanningDetector scanner = new BytecodeScanningDetector() {
+            };
+            ClassContext fewContext = new ClassContext(few, null);
+            ClassContext manyContext = new ClassContext(many, null);
+
+            long fewBytes = AllocationMeter.bytesPerOperation(DETECTOR_ITERATIONS, () -> detector.visitClassContext(fewContext))
+                    - AllocationMeter.bytesPerOperation(DETECTOR_ITERATIONS, () -> scanner.visitClassContext(fewContext));
+            long manyBytes = AllocationMeter.bytesPerOperation(DETECTOR_ITERATIONS, () -> detector.visitClassContext(manyContext))
+                    - AllocationMeter.bytesPerOperation(DETECTOR_ITERATIONS, () -> scanner.visitClassContext(manyContext));
+            assertTrue("allocated " + fewBytes + " bytes for 10 call sites, " + manyBytes + " bytes for 1000 call sites",
+                    Math.abs(manyBytes - fewBytes) < 1000 - 10);
+            assertEquals(0, bugReporter.getBugCollection().getCollection().size());
+
+            int methods = few.getMethods().length;
+            assertTrue("allocated " + fewBytes + " bytes for " + methods + " methods",
+                    fewBytes <= BYTES_PER_METHOD_BUDGET * methods);
+        } finally {
+            Global.removeAnalysisCacheForCurrentThread();
+        }
+    }
+
+    /**
+     * SpotBugsの解析を行わずに検出器で走査するため、走査に必要なクラスの情報のみを返す解析結果のキャッシュを設定する。
+     */
+    private static void installAnalysisCache(JavaClass... classes) {
+        Map<ClassDescriptor, ClassData> classData = new HashMap<>();
+        for (JavaClass javaClass : classes) {
+            ClassDescriptor descriptor = DescriptorFactory.createClassDescriptor(javaClass);
+            classData.put(descriptor, new ClassData(descriptor, null, javaClass.getBytes()));
+        }
+        Map<ClassDescriptor, ClassInfo> classInfos = new HashMap<>();
+        Profiler profiler = new Profiler();
+        Global.setAnalysisCacheForCurrentThread((IAnalysisCache) Proxy.newProxyInstance(
+                IAnalysisCache.class.getClassLoader(), new Class<?>[] {IAnalysisCache.class}, (proxy, method, args) -> {
+                    if ("getProfiler".equals(method.getName())) {
+                        return profiler;
+                    }
+                    if (!"getClassAnalysis".equals(method.getName())) {
+                        return null;
+                    }
+                    ClassData data = classData.get(args[1]);
+                    if (args[0] == ClassData.class) {
+                        return data;
+                    }
+                    if (args[0] == FBClassReader.class) {
+                        return new FBClassReader(data.getData());
+                    }
+                    ClassInfo classInfo = classInfos.get(args[1]);
+                    if (classInfo == null) {
+                        ClassInfo.Builder builder = new ClassInfo.Builder();
+                        new ClassParserUsingASM(new FBClassReader(data.getData()), data.getClassDescriptor(), null)
+                                .parse(builder);
+                        classInfo = builder.build();
+                        classInfos.put(data.getClassDescriptor(), classInfo);
+                    }
+                    return classInfo;
+                }));
+    }
+
+    /**
+     * 呼出元クラスを1つ生成し、すべての呼出を許可する設定を読み込んで、生成したクラスを返却する。
+     */
+    private JavaClass generateCaller(String name, int callSites) throws Exception {
+        File root = temp.newFolder(name);
+        new SyntheticCorpus(1, callSites, 3, 2, 0).generate(root);
+        File config = SyntheticCorpus.configDir(root);
+        Files.write(new File(config, "synthetic.config").toPath(),
+                "java.lang.Object\nsynthetic\n".getBytes(StandardCharsets.UTF_8));
+        System.setProperty(CONFIG_FILE_PATH, config.getPath());
+        PublishedApisInfo.readConfigFiles();
+        Repository.setRepository(SyntheticRepository.getInstance(new ClassPath(
+                SyntheticCorpus.apiDir(root) + File.pathSeparator + ClassPath.getClassPath())));
+        return UnpublishedApiChecker.parse(Files.readAllBytes(Paths.get(SyntheticCorpus.callerDir(root).getPath(),
+                "synthetic", "caller", "Caller0.class")), Paths.get("Caller0.class"));
+    }
+}
@@ -0,0 +1,74 @@
+package nablarch.test.tool.findbugs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 処理1回あたりのメモリ割り当て量を測定する。
+ * <p/>
+ * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes}により現在のスレッドの割り当て量を測定する。
+ * 測定値からは、何も行わない処理を同じ回数実行した場合の割り当て量（測定自体の割り当て量）を差し引く。
+ */
+final class AllocationMeter {
+
+    /** スレッド毎のメモリ割り当て量を取得するMXBean。使用できない場合は{@code null}。 */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+    /**
+     * コンストラクタ。
+     */
+    private AllocationMeter() {
+    }
+
+    /**
+     * 割り当て量を測定できるか否かを判定する。
+     *
+     * @return 測定できる場合は{@code true}
+     */
+    static boolean isSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * 処理を指定回数実行し、1回あたりのメモリ割り当て量を測定する。
+     * 処理は測定前に同じ回数実行し、キャッシュやクラスの初期化による割り当てを測定値に含めない。
+     *
+     * @param iterations 実行回数
+     * @param operation  処理
+     * @return 1回あたりのメモリ割り当て量（バイト）
+     */
+    static long bytesPerOperation(int iterations, Runnable operation) {
+        Runnable empty = () -> { };
+        repeat(iterations, operation);
+        repeat(iterations, empty);
+        long overhead = allocatedBytes(iterations, empty);
+        long allocated = allocatedBytes(iterations, operation);
+        return Math.max(0, allocated - overhead) / iterations;
+    }
+
+    private static long allocatedBytes(int iterations, Runnable operation) {
+        long threadId = Thread.currentThread().getId();
+        long start = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+        repeat(iterations, operation);
+        return THREAD_BEAN.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    private static void repeat(int iterations, Runnable operation) {
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+}
@@ -0,0 +1,65 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link AllowlistUsageReport}のテスト。
+ */
+public class AllowlistUsageReportTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String CONFIG_DIR = "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/usage";
+
+    @Before
+    public void setUp() {
+        // 先に実行されたSpotBugsの解析で差し替えられたリポジトリを、クラスパスから読み込むリポジトリに戻す。
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, CONFIG_DIR);
+        PublishedApisInfo.readConfigFiles();
+    }
+
+    /**
+     * 判定に使用されなかったエントリと、重複したエントリが出力されること。
+     * 空行はエントリとして扱わないこと。
+     */
+    @Test
+    public void testUnusedAndDuplicateEntries() throws Exception {
+        assertTrue(PublishedApisInfo.isPermitted(
+                "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.TestClass", "testMethod", "()V"));
+        assertTrue(PublishedApisInfo.isPermitted(
+                "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.superclass.Super", "superMethod", "()V"));
+
+        AllowlistUsageReport report = PublishedApisInfo.getUsageReport();
+        StringWriter writer = new StringWriter();
+        report.write(writer);
+
+        String configFile = new File(CONFIG_DIR, "usage.config").getPath();
+        assertEquals("# unused entries: 2 / 5\n"
+                + configFile + ":2\tnablarch.test.tool.findbugs.data.publishedapi.settings.data.java.TestClass.testMethod2()\n"
+                + configFile + ":5\tnablarch.test.tool.findbugs.data.publishedapi.settings.data.java.interfaze\n"
+                + "# duplicate entries: 1 / 5\n"
+                + configFile + ":6\tnablarch.test.tool.findbugs.data.publishedapi.settings.data.java.TestClass.testMethod()\n",
+                sortUnused(writer.toString()));
+    }
+
+    /**
+     * 未使用エントリの出力順は設定の保持順に依存するため、行番号順に並べ替える。
+     */
+    private static String sortUnused(String report) {
+        String[] sections = report.split("(?=# duplicate)");
+        String[] unused = sections[0].split("\n");
+        Arrays.sort(unused, 1, unused.length);
+        return String.join("\n", unused) + "\n" + sections[1];
+    }
+}
@@ -0,0 +1,116 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ApiDecisionTree}のテスト。
+ */
+public class ApiDecisionTreeTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String PACKAGE = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java";
+
+    /**
+     * 経路上で最も詳細なエントリが選択されること。
+     */
+    @Test
+    public void testMostSpecificWins() {
+        ApiDecisionTree tree = new ApiDecisionTree();
+        AllowlistEntry pkg = entry("nablarch.core");
+        AllowlistEntry subPkg = entry("!nablarch.core.db");
+        AllowlistEntry clazz = entry("nablarch.core.db.Statement");
+        AllowlistEntry member = entry("!nablarch.core.db.Statement.close()");
+        assertNull(tree.addPackageOrClass("nablarch.core", pkg));
+        assertNull(tree.addPackageOrClass("nablarch.core.db", subPkg));
+        assertNull(tree.addPackageOrClass("nablarch.core.db.Statement", clazz));
+        assertNull(tree.addMember("nablarch.core.db.Statement.close()", member));
+
+        assertSame(pkg, tree.decideMember("nablarch.core.util.StringUtil.isNullOrEmpty(java.lang.String)"));
+        assertSame(subPkg, tree.decideMember("nablarch.core.db.Connection.commit()"));
+        assertSame(clazz, tree.decideMember("nablarch.core.db.Statement.execute()"));
+        assertSame(member, tree.decideMember("nablarch.core.db.Statement.close()"));
+        assertNull(tree.decideMember("nablarch.fw.Handler.handle(java.lang.Object)"));
+
+        assertSame(pkg, tree.decidePackageOrClass("nablarch.core.util.StringUtil"));
+        assertSame(subPkg, tree.decidePackageOrClass("nablarch.core.db.Connection"));
+        assertSame(clazz, tree.decidePackageOrClass("nablarch.core.db.Statement"));
+        assertNull(tree.decidePackageOrClass("nablarch"));
+        assertEquals(4, tree.getEntries().size());
+    }
+
+    /**
+     * ブルームフィルタを構築しても判定結果が変わらず、合致しないメソッドの参照が省略されること。
+     */
+    @Test
+    public void testMemberFilter() {
+        ApiDecisionTree tree = new ApiDecisionTree();
+        AllowlistEntry clazz = entry("nablarch.core.db.Statement");
+        AllowlistEntry member = entry("!nablarch.core.db.Statement.close()");
+        tree.addPackageOrClass("nablarch.core.db.Statement", clazz);
+        tree.addMember("nablarch.core.db.Statement.close()", member);
+        tree.buildMemberFilter();
+        CheckerMetrics.getInstance().reset();
+
+        assertSame(member, tree.decideMember("nablarch.core.db.Statement.close()"));
+        for (int i = 0; i < 100; i++) {
+            assertSame(clazz, tree.decideMember("nablarch.core.db.Statement.execute" + i + "()"));
+        }
+        assertTrue(CheckerMetrics.getInstance().getMemberFilterRejectCount() > 90);
+        assertTrue(CheckerMetrics.getInstance().getMemberFilterFalsePositiveRate() < 0.1);
+    }
+
+    /**
+     * 同じ対象への指定は使用禁止の指定が優先され、判定に使用されないエントリが返却されること。
+     */
+    @Test
+    public void testDenyWinsTie() {
+        ApiDecisionTree tree = new ApiDecisionTree();
+        AllowlistEntry allow = entry("nablarch.core.db.Statement.close()");
+        AllowlistEntry deny = entry("!nablarch.core.db.Statement.close()");
+        AllowlistEntry allowAgain = entry("nablarch.core.db.Statement.close()");
+        assertNull(tree.addMember("nablarch.core.db.Statement.close()", allow));
+        assertSame(allow, tree.addMember("nablarch.core.db.Statement.close()", deny));
+        assertSame(allowAgain, tree.addMember("nablarch.core.db.Statement.close()", allowAgain));
+        assertSame(deny, tree.decideMember("nablarch.core.db.Statement.close()"));
+    }
+
+    /**
+     * 使用禁止の指定を含む設定ファイルで判定できること。
+     * ワイルドカードを含む指定も詳細度に従って判定されること。
+     */
+    @Test
+    public void testReadDenyConfig() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny");
+        PublishedApisInfo.readConfigFiles();
+
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod3", "()V"));
+
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".superclass.Super", "superMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".superclass.Super", "superOnlyMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".superclass.Sub", "superMethod", "()V"));
+        assertTrue(PublishedApisInfo.isProhibited(PACKAGE + ".superclass.Sub"));
+
+        assertFalse(PublishedApisInfo.isProhibited(PACKAGE + ".enumz.TestEnum"));
+        assertTrue(PublishedApisInfo.isProhibited(PACKAGE + ".enumz.TestImpleEnum"));
+
+        assertEquals(1, PublishedApisInfo.getUsageReport().getDuplicateEntries().size());
+    }
+
+    private static AllowlistEntry entry(String rule) {
+        return new AllowlistEntry(rule, new File("test.config"), 1);
+    }
+}
@@ -0,0 +1,113 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.ClassPath;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link PublishedApisInfo#isPermitted(CallSiteBatch)}と、{@link ClassFileAnalyzer}からの一括判定のテスト。
+ */
+public class CallSiteBatchTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String PACKAGE = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny");
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * 呼出先クラスが混在していても、追加順に並んだ判定結果が返却され、1件ずつの判定結果と一致すること。
+     */
+    @Test
+    public void testVerdictsAlignedWithInput() {
+        CallSiteBatch batch = new CallSiteBatch();
+        for (int i = 0; i < 10; i++) {
+            batch.add(PACKAGE + ".TestClass", "testMethod", "()V");
+            batch.add(PACKAGE + ".superclass.Sub", "subOnlyMethod", "()V");
+            batch.add(PACKAGE + ".TestClass", "testMethod2", "()V");
+            batch.add(PACKAGE + ".superclass.Super", "superMethod", "()V");
+            batch.add("[Ljava.lang.String;", "clone", "()Ljava/lang/Object;");
+        }
+
+        boolean[] verdicts = PublishedApisInfo.isPermitted(batch);
+
+        assertEquals(batch.size(), verdicts.length);
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals("index " + i, i % 5 == 0 || i % 5 == 3, verdicts[i]);
+            assertEquals(PublishedApisInfo.isPermitted(batch.getClassName(i), batch.getMethodName(i),
+                    batch.getMethodSig(i)), verdicts[i]);
+        }
+    }
+
+    /**
+     * 同じクラスの階層を辿る判定では、クラス情報の取得が一括判定につき1度となること。
+     */
+    @Test
+    public void testHierarchyLookedUpOncePerBatch() {
+        CallSiteBatch batch = new CallSiteBatch();
+        batch.add(PACKAGE + ".superclass.Sub", "superOnlyMethod", "()V");
+        batch.add(PACKAGE + ".superclass.Sub", "hashCode", "()I");
+        batch.add(PACKAGE + ".superclass.Sub", "toString", "()Ljava/lang/String;");
+
+        assertArrayEquals(new boolean[] {false, false, false}, PublishedApisInfo.isPermitted(batch));
+        // Sub・Superのクラス情報をそれぞれ1度だけ取得する。
+        assertEquals(2, CheckerMetrics.getInstance().getClassLookupCount());
+        assertEquals(3, CheckerMetrics.getInstance().getCacheMissCount());
+    }
+
+    /**
+     * クラスファイルの解析では、判定済みでないメソッド参照がクラス毎にまとめて判定され、
+     * 呼出先クラスの継承階層がクラスの解析につき1度だけ解決されること。
+     */
+    @Test
+    public void testClassFileAnalyzerResolvesHierarchyOncePerClass() throws Exception {
+        int depth = 3;
+        SyntheticCorpus corpus = new SyntheticCorpus(1, 12, depth, 0, 0);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        System.setProperty(CONFIG_FILE_PATH, SyntheticCorpus.configDir(root).getPath());
+        PublishedApisInfo.readConfigFiles();
+        Repository.setRepository(SyntheticRepository.getInstance(new ClassPath(
+                SyntheticCorpus.apiDir(root) + File.pathSeparator + ClassPath.getClassPath())));
+        JavaClass caller = UnpublishedApiChecker.parse(Files.readAllBytes(Paths.get(SyntheticCorpus.callerDir(root).getPath(),
+                "synthetic", "caller", "Caller0.class")), Paths.get("Caller0.class"));
+        CheckerMetrics.getInstance().reset();
+
+        assertEquals(corpus.expectedViolations(), ClassFileAnalyzer.analyze(caller).size());
+        // 呼出先の末端のクラスから最上位のクラスまで、それぞれ1度だけ取得する。
+        assertEquals(depth, CheckerMetrics.getInstance().getClassLookupCount());
+
+        // 2回目の解析では、キャッシュした判定結果のみを使用する。
+        CheckerMetrics.getInstance().reset();
+        assertEquals(corpus.expectedViolations(), ClassFileAnalyzer.analyze(caller).size());
+        assertEquals(0, CheckerMetrics.getInstance().getClassLookupCount());
+        assertEquals(0, CheckerMetrics.getInstance().getCacheMissCount());
+    }
+}
@@ -0,0 +1,149 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CallerScope}のテスト。
+ */
+public class CallerScopeTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String CALLER_EXCLUDE = "nablarch-findbugs-caller-exclude";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(CALLER_EXCLUDE);
+        // 以降のテストのため、範囲の指定がない状態で読み込み直す。
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny");
+        PublishedApisInfo.readConfigFiles();
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * パッケージ・クラスの指定により、範囲内のクラスが判定されること。除外の指定が優先されること。
+     */
+    @Test
+    public void testPackagePatterns() throws Exception {
+        JavaClass inner = Repository.lookupClass(Bridge.class);
+        JavaClass outer = Repository.lookupClass(CallerScopeTest.class);
+
+        CallerScope scope = new CallerScope("nablarch.test.tool, com.example", "nablarch.test.tool.findbugs.CallerScopeTest.Bridge",
+                false, false, false);
+        assertTrue(scope.includesClass(outer));
+        assertFalse(scope.includesClass(inner));
+
+        assertFalse(new CallerScope("nablarch.test.tools", null, false, false, false).includesClass(outer));
+        assertTrue(new CallerScope("nablarch.**.findbugs", null, false, false, false).includesClass(outer));
+        assertFalse(new CallerScope(null, "nablarch.*.tool", false, false, false).includesClass(outer));
+        assertSame(CallerScope.ALL, CallerScope.fromSystemProperties());
+    }
+
+    /**
+     * コンパイラが生成したメソッド・ブリッジメソッド・Generatedアノテーションが付与されたメソッドを範囲外にできること。
+     */
+    @Test
+    public void testMethodSwitches() throws Exception {
+        Method lambda = findMethod(Repository.lookupClass(CallerScopeTest.class), "lambda$");
+        Method bridge = findMethod(Repository.lookupClass(Bridge.class), "get", "()Ljava/lang/Object;");
+        Method generated = findMethod(Repository.lookupClass(Bridge.class), "generated");
+        Method plain = findMethod(Repository.lookupClass(Bridge.class), "get", "()Ljava/lang/String;");
+
+        CallerScope skipSynthetic = new CallerScope(null, null, true, false, false);
+        assertFalse(skipSynthetic.includesMethod(lambda));
+        assertFalse(skipSynthetic.includesMethod(bridge));
+        assertTrue(skipSynthetic.includesMethod(plain));
+
+        CallerScope skipBridge = new CallerScope(null, null, false, true, false);
+        assertTrue(skipBridge.includesMethod(lambda));
+        assertFalse(skipBridge.includesMethod(bridge));
+
+        CallerScope skipGenerated = new CallerScope(null, null, false, false, true);
+        assertFalse(skipGenerated.includesMethod(generated));
+        assertTrue(skipGenerated.includesMethod(plain));
+        assertTrue(CallerScope.ALL.includesMethod(generated));
+    }
+
+    /**
+     * 範囲外のクラスは解析されないこと。
+     */
+    @Test
+    public void testOutOfScopeClassesAreNotAnalyzed() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(2, 4, 2, 1, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        File output = new File(temp.getRoot(), "report.txt");
+        String[] args = {"analyze", "--config", SyntheticCorpus.configDir(root).getPath(),
+                "--classpath", SyntheticCorpus.apiDir(root).getPath(), "--output", output.getPath(),
+                SyntheticCorpus.callerDir(root).getPath()};
+
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(args));
+        System.setProperty(CALLER_EXCLUDE, SyntheticCorpus.CALLER_PACKAGE + ".Caller0");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(args));
+        System.setProperty(CALLER_EXCLUDE, SyntheticCorpus.CALLER_PACKAGE);
+        assertEquals(0, UnpublishedApiChecker.run(args));
+        assertEquals(0, output.length());
+    }
+
+    private static Method findMethod(JavaClass javaClass, String namePrefix) {
+        return findMethod(javaClass, namePrefix, null);
+    }
+
+    private static Method findMethod(JavaClass javaClass, String namePrefix, String signature) {
+        for (Method method : javaClass.getMethods()) {
+            if (method.getName().startsWith(namePrefix) && (signature == null || signature.equals(method.getSignature()))) {
+                return method;
+            }
+        }
+        throw new AssertionError("method not found. " + namePrefix);
+    }
+
+    /** ラムダ式の本体となるメソッドを生成させるためのフィールド。 */
+    private final Supplier<String> lambda = () -> "lambda";
+
+    /** Generatedアノテーション。 */
+    @Retention(RetentionPolicy.CLASS)
+    private @interface Generated {
+    }
+
+    /**
+     * ブリッジメソッドを持つクラス。
+     */
+    private static final class Bridge implements Supplier<String> {
+
+        @Override
+        public String get() {
+            return "bridge";
+        }
+
+        @Generated
+        void generated() {
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CheckerDaemon}と{@link CheckerClient}のテスト。
+ */
+public class CheckerDaemonTest {
+
+    private static final String CLASS_DIR = "target/test-classes/nablarch/test/tool/findbugs/data/methodcall";
+
+    private static final String CONFIG_DIR = "src/test/java/nablarch/test/tool/findbugs/data/methodcall/settings";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private CheckerDaemon daemon;
+
+    private Thread server;
+
+    @Before
+    public void setUp() throws IOException {
+        daemon = new CheckerDaemon(0, CONFIG_DIR, null);
+        server = new Thread(daemon::serve);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        daemon.close();
+        server.join(10000);
+        // 以降のテストのため、クラスパスから読み込むリポジトリに戻す。
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * デーモン経由の解析結果が、コマンドラインで解析したレポートと一致すること。
+     * 繰り返し要求しても同じ結果となること。
+     */
+    @Test
+    public void testCheckMatchesAnalyze() throws IOException {
+        File expected = temp.newFile("expected.txt");
+        UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", expected.getPath(), CLASS_DIR});
+        String expectedReport = new String(Files.readAllBytes(expected.toPath()), StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 2; i++) {
+            StringWriter out = new StringWriter();
+            int count = CheckerClient.check(daemon.getPort(), daemon.getToken(), Collections.singletonList(CLASS_DIR), out);
+            assertEquals(expectedReport, out.toString());
+            assertEquals(expectedReport.split("\n").length, count);
+        }
+    }
+
+    /**
+     * クラスファイルを個別に指定して解析できること。
+     */
+    @Test
+    public void testCheckClassFile() throws IOException {
+        StringWriter out = new StringWriter();
+        int count = CheckerClient.check(daemon.getPort(), daemon.getToken(),
+                Collections.singletonList(CLASS_DIR + "/Caller.class"), out);
+
+        assertTrue(count > 0);
+        for (String line : out.toString().split("\n")) {
+            assertTrue(line.startsWith("nablarch.test.tool.findbugs.data.methodcall.Caller\t"));
+        }
+    }
+
+    /**
+     * 解析に失敗した場合、クライアントに例外が送出され、以降の要求も処理できること。
+     */
+    @Test
+    public void testError() throws IOException {
+        try {
+            CheckerClient.check(daemon.getPort(), daemon.getToken(), Collections.singletonList("notExist"), new StringWriter());
+            throw new AssertionError("expected exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), containsString("Class directory doesn't exist."));
+        }
+        assertTrue(CheckerClient.check(daemon.getPort(), daemon.getToken(), Collections.singletonList(CLASS_DIR), new StringWriter()) > 0);
+    }
+
+    /**
+     * 初めて解析するクラスが被呼出クラスとしてキャッシュされていた場合は、キャッシュが破棄されること。
+     */
+    @Test
+    public void testEvictClassCachedAsCallee() throws IOException {
+        String className = "nablarch.test.tool.findbugs.data.methodcall.Caller";
+        File classFile = new File(CLASS_DIR, "Caller.class");
+        ClassSummary stale = new ClassSummary(UnpublishedApiChecker.parse(Files.readAllBytes(classFile.toPath()),
+                classFile.toPath()));
+        try {
+            assertTrue(ClassRepository.publish(stale));
+
+            daemon.check(Collections.singletonList(classFile.getPath()));
+
+            assertNotSame(stale, ClassRepository.cached(className));
+        } finally {
+            ClassRepository.evict(className);
+        }
+    }
+
+    /**
+     * トークンが一致しない要求は処理されず、デーモンは停止しないこと。
+     */
+    @Test
+    public void testInvalidTokenRejected() throws Exception {
+        try {
+            CheckerClient.shutdown(daemon.getPort(), "invalid");
+            throw new AssertionError("expected exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), containsString("Invalid token."));
+        }
+        try {
+            CheckerClient.check(daemon.getPort(), "", Collections.singletonList(CLASS_DIR), new StringWriter());
+            throw new AssertionError("expected exception");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage(), containsString("Invalid token."));
+        }
+        assertTrue(server.isAlive());
+        assertTrue(CheckerClient.check(daemon.getPort(), daemon.getToken(), Collections.singletonList(CLASS_DIR),
+                new StringWriter()) > 0);
+    }
+
+    /**
+     * ポート番号を記録するファイルの隣に、所有者のみが読み書きできるトークンのファイルが出力され、
+     * コマンドラインのクライアントがそのトークンで要求できること。
+     */
+    @Test
+    public void testPortFile() throws Exception {
+        File portFile = new File(temp.getRoot(), "daemon.port");
+        daemon.writePortFile(portFile);
+
+        File tokenFile = CheckerDaemon.tokenFile(portFile);
+        assertEquals(daemon.getToken(), CheckerClient.readToken(portFile));
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+        }
+        File output = new File(temp.getRoot(), "client.txt");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "client", "--port-file", portFile.getPath(), "--output", output.getPath(), CLASS_DIR}));
+        assertTrue(output.length() > 0);
+    }
+
+    /**
+     * 設定ファイルが変更された場合、次の要求の解析の前に設定ファイルが読み込み直されること。
+     */
+    @Test
+    public void testReloadChangedConfig() throws Exception {
+        File configDir = temp.newFolder("config");
+        for (File configFile : new File(CONFIG_DIR).listFiles()) {
+            Files.copy(configFile.toPath(), new File(configDir, configFile.getName()).toPath());
+        }
+        CheckerDaemon reloading = new CheckerDaemon(0, configDir.getPath(), null);
+        try {
+            List<String> inputs = Collections.singletonList(CLASS_DIR);
+            int before = reloading.check(inputs).getViolations().size();
+            assertTrue(before > 0);
+
+            Files.write(new File(configDir, "all.config").toPath(),
+                    ("nablarch.test.tool.findbugs.data\n" + "java.io\n").getBytes(StandardCharsets.UTF_8));
+            assertEquals(0, reloading.check(inputs).getViolations().size());
+        } finally {
+            reloading.close();
+            System.setProperty("nablarch-findbugs-config", CONFIG_DIR);
+            PublishedApisInfo.readConfigFiles();
+        }
+    }
+
+    /**
+     * 停止要求によりデーモンが停止すること。
+     */
+    @Test
+    public void testShutdown() throws Exception {
+        CheckerClient.shutdown(daemon.getPort(), daemon.getToken());
+        server.join(10000);
+        assertFalse(server.isAlive());
+    }
+}
@@ -0,0 +1,130 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CheckerMetrics}のテスト。
+ */
+public class CheckerMetricsTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String TEST_CLASS = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.TestClass";
+
+    @Before
+    public void setUp() {
+        // 先に実行されたSpotBugsの解析で差し替えられたリポジトリを、クラスパスから読み込むリポジトリに戻す。
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/onesetting1record");
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+    }
+
+    /**
+     * 公開可否判定の呼出回数とキャッシュのヒット・ミスが記録されること。
+     */
+    @Test
+    public void testCountPermittedChecks() {
+        PublishedApisInfo.isPermitted(TEST_CLASS, "testMethod", "()V");
+        PublishedApisInfo.isPermitted(TEST_CLASS, "testMethod", "()V");
+        PublishedApisInfo.isPermitted(TEST_CLASS, "testMethod2", "()V");
+
+        CheckerMetrics metrics = CheckerMetrics.getInstance();
+        assertEquals(3, metrics.getPermittedCheckCount());
+        assertEquals(1, metrics.getCacheHitCount());
+        assertEquals(2, metrics.getCacheMissCount());
+        assertTrue(metrics.getClassLookupCount() >= 2);
+        assertTrue(metrics.getAverageHierarchyDepth() >= 1.0);
+        assertTrue(metrics.getConfigLoadNanos() > 0);
+    }
+
+    /**
+     * java.lang.Objectや配列に対する呼出は、クラス情報を読み込まずに判定されること。
+     */
+    @Test
+    public void testObjectMembersWithoutClassLookup() {
+        PublishedApisInfo.isPermitted("[Ljava.lang.String;", "clone", "()Ljava/lang/Object;");
+        PublishedApisInfo.isPermitted("[I", "length", "()I");
+        PublishedApisInfo.isPermitted("java.lang.Object", "hashCode", "()I");
+
+        assertEquals(0, CheckerMetrics.getInstance().getClassLookupCount());
+        assertEquals(3, CheckerMetrics.getInstance().getCacheMissCount());
+    }
+
+    /**
+     * java.lang.Objectのメソッドは、解析対象のJDKのクラス情報に定義されているprivateでないメソッドと一致すること。
+     */
+    @Test
+    public void testObjectMembersFromTargetJdk() throws Exception {
+        AllowlistSnapshot snapshot = new AllowlistSnapshot(new ApiDecisionTree(), new GlobRuleSet(),
+                Collections.<AllowlistEntry>emptyList(), Collections.<AllowlistEntry>emptyList());
+        for (Method method : Repository.lookupClass("java.lang.Object").getMethods()) {
+            String signature = method.getSignature();
+            String methodSig = signature.substring(0, signature.indexOf(')') + 1);
+            boolean expected = !method.isPrivate() && !"<clinit>".equals(method.getName());
+            assertEquals(method.getName() + methodSig, expected, snapshot.isObjectMember(method.getName(), methodSig));
+        }
+        assertTrue(snapshot.isObjectMember("wait", "(JI)"));
+        assertFalse(snapshot.isObjectMember("wait", "(I)"));
+    }
+
+    /**
+     * JMX経由でメトリクスを参照できること。
+     */
+    @Test
+    public void testMBean() throws Exception {
+        PublishedApisInfo.isProhibited("java.io.IOException");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(CheckerMetrics.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+        assertEquals(1L, server.getAttribute(name, "ProhibitedCheckCount"));
+    }
+
+    /**
+     * 例外クラスの判定結果は内部形式のクラス名をキーにキャッシュされ、「.」区切りのクラス名による判定と一致すること。
+     */
+    @Test
+    public void testExceptionVerdictCache() {
+        for (String className : new String[] {"java.io.IOException", "java.lang.Thread$State", TEST_CLASS}) {
+            String internalName = className.replace('.', '/');
+            boolean expected = PublishedApisInfo.isProhibited(className);
+            assertEquals(expected, PublishedApisInfo.isProhibitedException(internalName));
+            assertEquals(expected, PublishedApisInfo.isProhibitedException(internalName));
+        }
+
+        assertEquals(9, CheckerMetrics.getInstance().getProhibitedCheckCount());
+        assertEquals(3, CheckerMetrics.getInstance().getProhibitedCacheHitCount());
+    }
+
+    /**
+     * サマリが出力されること。
+     */
+    @Test
+    public void testPrintSummary() {
+        PublishedApisInfo.isPermitted(TEST_CLASS, "testMethod", "()V");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CheckerMetrics.getInstance().printSummary(new PrintStream(out, true));
+
+        assertThat(out.toString(), containsString("isPermitted calls      : 1"));
+        assertThat(out.toString(), containsString("cache hit/miss         : 0/1"));
+    }
+}
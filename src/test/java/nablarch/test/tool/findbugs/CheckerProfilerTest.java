@@ -0,0 +1,85 @@
+package nablarch.test.tool.findbugs;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CheckerProfiler}のテスト。
+ */
+public class CheckerProfilerTest {
+
+    @After
+    public void tearDown() {
+        CheckerProfiler.finish();
+        System.clearProperty("nablarch-findbugs-profile");
+    }
+
+    /**
+     * 呼出元・呼出先が処理時間の降順に上位N件出力され、パッケージ毎にも集計されること。
+     */
+    @Test
+    public void testWriteJson() throws Exception {
+        CheckerProfiler profiler = new CheckerProfiler(new File("unused.json"), 2);
+        profiler.recordCaller("app.a.Fast", 10, 100);
+        profiler.recordCaller("app.a.Slow", 300, 200);
+        profiler.recordCaller("app.b.Middle", 200, 300);
+        profiler.recordCallee("java.lang.String", 5);
+        profiler.recordCallee("java.lang.String", 5);
+        profiler.recordCallee("nablarch.core.db.Statement", 50);
+
+        StringWriter writer = new StringWriter();
+        profiler.writeJson(writer);
+        String json = writer.toString();
+
+        assertThat(json, containsString("\"analyzedClasses\": 3"));
+        assertThat(json, containsString("\"slowestCallers\": [\n"
+                + "    {\"class\": \"app.a.Slow\", \"nanos\": 300, \"count\": 1, \"allocatedBytes\": 200},\n"
+                + "    {\"class\": \"app.b.Middle\", \"nanos\": 200, \"count\": 1, \"allocatedBytes\": 300}\n"
+                + "  ]"));
+        assertThat(json, containsString("{\"package\": \"app.a\", \"nanos\": 310, \"count\": 2, \"allocatedBytes\": 300}"));
+        assertThat(json, containsString("{\"class\": \"java.lang.String\", \"nanos\": 10, \"count\": 2}"));
+        assertThat(json, containsString("\"slowestCalleePackages\": [\n"
+                + "    {\"package\": \"nablarch.core.db\", \"nanos\": 50, \"count\": 1},\n"
+                + "    {\"package\": \"java.lang\", \"nanos\": 10, \"count\": 2}\n"
+                + "  ]"));
+    }
+
+    /**
+     * システムプロパティが指定された場合のみプロファイルが有効となり、終了時にファイルが出力されること。
+     */
+    @Test
+    public void testStartAndFinish() throws Exception {
+        File output = new File("target/profile/checker-profile.json");
+        Files.deleteIfExists(output.toPath());
+
+        CheckerProfiler.startIfEnabled();
+        assertNull(CheckerProfiler.active());
+
+        System.setProperty("nablarch-findbugs-profile", output.getPath());
+        CheckerProfiler.startIfEnabled();
+        assertNotNull(CheckerProfiler.active());
+        CheckerProfiler.active().recordCaller("app.Caller", 1, 0);
+        // detectorが複数生成されても、集計中のプロファイラを引き継ぐこと。
+        CheckerProfiler profiler = CheckerProfiler.active();
+        CheckerProfiler.startIfEnabled();
+        assertSame(profiler, CheckerProfiler.active());
+        CheckerProfiler.finish();
+
+        assertNull(CheckerProfiler.active());
+        assertTrue(output.exists());
+        assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8),
+                containsString("\"class\": \"app.Caller\""));
+    }
+}
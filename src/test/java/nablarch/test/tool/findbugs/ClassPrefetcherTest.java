@@ -0,0 +1,159 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import edu.umd.cs.findbugs.test.AnalysisRunner;
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.ClassPath;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ClassPrefetcher}のテスト。
+ */
+public class ClassPrefetcherTest {
+
+    private static final String PREFETCH = "nablarch-findbugs-prefetch";
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    /** 被呼出クラスの継承階層の深さ。 */
+    private static final int DEPTH = 4;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        ClassPrefetcher.finish();
+        System.clearProperty(PREFETCH);
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * 無効な場合は開始されないこと。
+     */
+    @Test
+    public void testDisabled() {
+        ClassPrefetcher.startIfEnabled(new ClassPath(ClassPath.getClassPath()));
+        assertNull(ClassPrefetcher.active());
+    }
+
+    /**
+     * SpotBugsの解析中でない場合は、有効でも開始されないこと。
+     */
+    @Test
+    public void testOutsideSpotBugs() {
+        System.setProperty(PREFETCH, "true");
+        ClassPrefetcher.startIfEnabled();
+        assertNull(ClassPrefetcher.active());
+    }
+
+    /**
+     * コンスタントプールに記載された呼出先クラスと、そのスーパークラスがバックグラウンドで読み込まれること。
+     */
+    @Test
+    public void testPrefetchCalleeHierarchy() throws Exception {
+        File root = temp.newFolder("corpus");
+        new SyntheticCorpus(1, 4, DEPTH, 0, 0).generate(root);
+        Repository.setRepository(SyntheticRepository.getInstance(new ClassPath(
+                SyntheticCorpus.apiDir(root) + File.pathSeparator + ClassPath.getClassPath())));
+        JavaClass caller = UnpublishedApiChecker.parse(Files.readAllBytes(Paths.get(SyntheticCorpus.callerDir(root).getPath(),
+                "synthetic", "caller", "Caller0.class")), Paths.get("Caller0.class"));
+        for (int level = 0; level < DEPTH; level++) {
+            assertFalse(ClassRepository.isCached(apiClassName(level)));
+        }
+        CheckerMetrics.getInstance().reset();
+
+        System.setProperty(PREFETCH, "true");
+        ClassPrefetcher.startIfEnabled(new ClassPath(
+                SyntheticCorpus.apiDir(root) + File.pathSeparator + ClassPath.getClassPath()));
+        ClassPrefetcher prefetcher = ClassPrefetcher.active();
+        assertNotNull(prefetcher);
+        prefetcher.submit(caller);
+
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (CheckerMetrics.getInstance().getPrefetchedClassCount() < DEPTH && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int level = 0; level < DEPTH; level++) {
+            assertTrue(apiClassName(level), ClassRepository.isCached(apiClassName(level)));
+        }
+        assertEquals(DEPTH, CheckerMetrics.getInstance().getPrefetchedClassCount());
+        // 先読みはBCELのリポジトリを使用しない。
+        assertNull(Repository.getRepository().findClass(apiClassName(0)));
+
+        ClassPrefetcher.finish();
+        assertNull(ClassPrefetcher.active());
+    }
+
+    /**
+     * SpotBugsの解析で有効にしても、検出結果が変わらないこと。
+     */
+    @Test
+    public void testPrefetchInSpotBugs() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(2, 4, DEPTH, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        System.setProperty(CONFIG_FILE_PATH, SyntheticCorpus.configDir(root).getPath());
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+        System.setProperty(PREFETCH, "true");
+
+        AnalysisRunner runner = new AnalysisRunner();
+        runner.addAuxClasspathEntry(SyntheticCorpus.apiDir(root).toPath());
+        int bugs = runner.run(engine -> {
+            UserPreferences preferences = engine.getUserPreferences();
+            preferences.enableAllDetectors(false);
+            preferences.enableDetector(DetectorFactoryCollection.instance()
+                    .getFactory(UsageOfUnpublishedMethodDetector.class.getSimpleName()), true);
+        }, SyntheticCorpus.callerDir(root).toPath()).getBugCollection().getCollection().size();
+
+        assertEquals(corpus.expectedViolations(), bugs);
+        assertNull(ClassPrefetcher.active());
+    }
+
+    /**
+     * 先読みのクラスパスが、SpotBugsの解析対象・補助クラスパス・システムクラスパスの順に作成されること。
+     */
+    @Test
+    public void testToClassPath() throws Exception {
+        File root = temp.newFolder("corpus");
+        new SyntheticCorpus(1, 1, 1, 0, 0).generate(root);
+        IClassFactory factory = ClassFactory.instance();
+        try (IClassPath spotBugsClassPath = factory.createClassPath()) {
+            ICodeBase aux = factory.createFilesystemCodeBaseLocator(SyntheticCorpus.apiDir(root).getPath()).openCodeBase();
+            aux.setApplicationCodeBase(false);
+            spotBugsClassPath.addCodeBase(aux);
+            ICodeBase app = factory.createFilesystemCodeBaseLocator(SyntheticCorpus.callerDir(root).getPath()).openCodeBase();
+            app.setApplicationCodeBase(true);
+            spotBugsClassPath.addCodeBase(app);
+
+            assertEquals(SyntheticCorpus.callerDir(root).getPath() + File.pathSeparator
+                            + SyntheticCorpus.apiDir(root).getPath() + File.pathSeparator + ClassPath.getClassPath(),
+                    ClassPrefetcher.toClassPath(spotBugsClassPath));
+        }
+    }
+
+    private static String apiClassName(int level) {
+        return SyntheticCorpus.API_PACKAGE + ".Api" + level;
+    }
+}
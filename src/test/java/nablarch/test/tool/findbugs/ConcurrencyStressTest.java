@@ -0,0 +1,211 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * {@link PublishedApisInfo}と{@link ClassFileAnalyzer}を複数スレッドから同時に使用した場合のテスト。
+ */
+public class ConcurrencyStressTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String FIXTURE_ROOT = "src/test/java";
+
+    private static final String FIXTURE_DIR = FIXTURE_ROOT + "/nablarch/test/tool/findbugs/data/publishedapi/settings/data/java";
+
+    private static final String ANALYZER_CONFIG_DIR = "src/test/java/nablarch/test/tool/findbugs/data/methodcall/settings";
+
+    private static final String ANALYZER_FIXTURE_DIR = "target/test-classes/nablarch/test/tool/findbugs/data/methodcall";
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 20;
+
+    @Before
+    public void setUp() {
+        // 先に実行されたSpotBugsの解析で差し替えられたリポジトリを、クラスパスから読み込むリポジトリに戻す。
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny");
+        PublishedApisInfo.readConfigFiles();
+    }
+
+    /**
+     * テストデータのクラスとメソッドのすべての組み合わせを複数スレッドで同時に判定し、
+     * 単一スレッドで判定した結果と一致すること。判定中に設定を再読み込みしても結果が変わらないこと。
+     */
+    @Test
+    public void testParallelVerdictsMatchSequential() throws Exception {
+        List<String[]> calls = fixtureCalls();
+        List<String> classNames = calls.stream().map(call -> call[0]).distinct().collect(Collectors.toList());
+        String expected = verdicts(calls, classNames);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            CountDownLatch startGate = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final long seed = t;
+                results.add(executor.submit(() -> {
+                    startGate.await();
+                    String result = null;
+                    for (int round = 0; round < ROUNDS; round++) {
+                        List<String[]> shuffled = new ArrayList<>(calls);
+                        Collections.shuffle(shuffled, new Random(seed * ROUNDS + round));
+                        String actual = verdicts(shuffled, classNames);
+                        if (result != null && !result.equals(actual)) {
+                            return actual;
+                        }
+                        result = actual;
+                    }
+                    return result;
+                }));
+            }
+            Future<?> reloader = executor.submit((Callable<Void>) () -> {
+                startGate.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    PublishedApisInfo.readConfigFiles();
+                }
+                return null;
+            });
+
+            startGate.countDown();
+            reloader.get();
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * テストデータのクラスファイルを複数スレッドで同時に解析し、単一スレッドで解析した使用箇所と一致すること。
+     * 判定結果のキャッシュが空の状態から、同じ被呼出クラスの判定が競合するよう解析する。
+     */
+    @Test
+    public void testParallelAnalysisMatchesSequential() throws Exception {
+        List<JavaClass> classes = UnpublishedApiChecker.readClasses(ANALYZER_CONFIG_DIR, null,
+                Collections.singletonList(ANALYZER_FIXTURE_DIR));
+        try {
+            // 解析対象のクラスを被呼出クラスとして参照できるよう登録する。
+            UnpublishedApiChecker.analyzeClasses(classes, ShardSpec.ALL);
+            PublishedApisInfo.readConfigFiles();
+            List<Violation> sequential = new ArrayList<>();
+            for (JavaClass javaClass : classes) {
+                sequential.addAll(ClassFileAnalyzer.analyze(javaClass));
+            }
+            String expected = violations(sequential);
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                for (int round = 0; round < ROUNDS; round++) {
+                    PublishedApisInfo.readConfigFiles();
+                    CountDownLatch startGate = new CountDownLatch(1);
+                    List<Future<String>> results = new ArrayList<>();
+                    for (int t = 0; t < THREADS; t++) {
+                        final long seed = (long) round * THREADS + t;
+                        results.add(executor.submit(() -> {
+                            List<JavaClass> shuffled = new ArrayList<>(classes);
+                            Collections.shuffle(shuffled, new Random(seed));
+                            startGate.await();
+                            List<Violation> actual = new ArrayList<>();
+                            for (JavaClass javaClass : shuffled) {
+                                actual.addAll(ClassFileAnalyzer.analyze(javaClass));
+                            }
+                            return violations(actual);
+                        }));
+                    }
+                    startGate.countDown();
+                    for (Future<String> result : results) {
+                        assertEquals(expected, result.get());
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            Repository.setRepository(SyntheticRepository.getInstance());
+        }
+    }
+
+    /**
+     * 使用箇所を、解析の順序によらない文字列に変換する。
+     */
+    private static String violations(List<Violation> violations) {
+        assertFalse(violations.isEmpty());
+        return violations.stream().map(Violation::toString).sorted().collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * 判定結果を、呼出の順序によらない文字列に変換する。
+     */
+    private static String verdicts(List<String[]> calls, List<String> classNames) {
+        Set<String> lines = new TreeSet<>();
+        for (String[] call : calls) {
+            lines.add(String.join(" ", call) + " " + PublishedApisInfo.isPermitted(call[0], call[1], call[2]));
+        }
+        for (String className : classNames) {
+            lines.add(className + " " + PublishedApisInfo.isProhibited(className));
+        }
+        return String.join("\n", lines);
+    }
+
+    /**
+     * テストデータのすべてのクラスに対して、いずれかのテストデータが定義しているすべてのメソッドを呼び出す組み合わせを作成する。
+     */
+    private static List<String[]> fixtureCalls() throws IOException, ClassNotFoundException {
+        List<String> classNames;
+        try (Stream<Path> files = Files.walk(Paths.get(FIXTURE_DIR))) {
+            classNames = files.map(Path::toString)
+                    .filter(file -> file.endsWith(".java"))
+                    .map(file -> file.substring(FIXTURE_ROOT.length() + 1, file.length() - ".java".length())
+                            .replace('/', '.').replace('\\', '.'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        Set<String> members = new LinkedHashSet<>();
+        members.add("toString ()Ljava/lang/String;");
+        members.add("hashCode ()I");
+        for (String className : classNames) {
+            JavaClass javaClass = Repository.lookupClass(className);
+            for (Method method : javaClass.getMethods()) {
+                members.add(method.getName() + " " + method.getSignature());
+            }
+        }
+        List<String[]> calls = new ArrayList<>();
+        for (String className : classNames) {
+            for (String member : members) {
+                String[] nameAndSig = member.split(" ");
+                calls.add(new String[] {className, nameAndSig[0], nameAndSig[1]});
+            }
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,36 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * {@link ConstantPoolKeys}のテスト。
+ */
+public class ConstantPoolKeysTest {
+
+    /**
+     * メソッド参照から求めたキーが、文字列から求めたキーと一致すること。
+     * クラス名・シグネチャを共有するメソッド参照でも、メソッド名が異なればキーが異なること。
+     */
+    @Test
+    public void testKeyOf() {
+        ConstantPoolGen cpg = new ConstantPoolGen();
+        int first = cpg.addMethodref("java/util/ArrayList", "clear", "()V");
+        int second = cpg.addMethodref("java/util/ArrayList", "trimToSize", "()V");
+        int third = cpg.addInterfaceMethodref("java/util/List", "clear", "()V");
+        ConstantPool constantPool = cpg.getConstantPool();
+        VerdictCache verdictCache = new VerdictCache();
+        ConstantPoolKeys keys = new ConstantPoolKeys(constantPool, verdictCache);
+
+        assertEquals(verdictCache.keyOf("java.util.ArrayList", "clear", "()V"), keys.keyOf(first));
+        assertEquals(verdictCache.keyOf("java.util.ArrayList", "trimToSize", "()V"), keys.keyOf(second));
+        assertEquals(verdictCache.keyOf("java.util.List", "clear", "()V"), keys.keyOf(third));
+        assertEquals(keys.keyOf(first), keys.keyOf(first));
+        assertNotEquals(keys.keyOf(first), keys.keyOf(second));
+        assertNotEquals(keys.keyOf(first), keys.keyOf(third));
+    }
+}
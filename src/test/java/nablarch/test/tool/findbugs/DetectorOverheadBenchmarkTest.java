@@ -0,0 +1,186 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.BugCollection;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.Version;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import edu.umd.cs.findbugs.test.AnalysisRunner;
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SpotBugsによる解析に対する{@link UsageOfUnpublishedMethodDetector}の追加コストを測定する。
+ * <p/>
+ * 固定の合成コーパスに対して、SpotBugs標準のdetectorのみの解析と、本detectorを加えた解析を交互に繰り返し、
+ * 経過時間・CPU時間・GC時間の中央値と、その差分を{@code target/perf/overhead-result.properties}に出力する。
+ * 測定はシステムプロパティ{@code nablarch-findbugs-perf}に{@code true}を指定した場合のみ実行する（{@code perf}プロファイル）。
+ */
+public class DetectorOverheadBenchmarkTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    /** 測定結果の出力先。 */
+    private static final File RESULT = new File("target/perf/overhead-result.properties");
+
+    /** 測定前に実行する回数。 */
+    private static final int WARMUP_ROUNDS = 2;
+
+    /** 測定値の種類（経過時間・CPU時間・GC時間）。 */
+    private static final String[] METRICS = {"wall", "cpu", "gc"};
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    @After
+    public void tearDown() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * 本detectorの有無による経過時間・CPU時間・GC時間の差分を測定する。
+     * <p/>
+     * 測定回数はシステムプロパティ{@code nablarch-findbugs-perf-rounds}（デフォルト10）で指定する。
+     * 実行順序による偏りを避けるため、本detectorの有無を測定回毎に入れ替えて実行する。
+     */
+    @Test
+    public void testOverhead() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("nablarch-findbugs-perf"));
+
+        SyntheticCorpus corpus = new SyntheticCorpus(100, 20, 5, 4, 20000);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        System.setProperty(CONFIG_FILE_PATH, SyntheticCorpus.configDir(root).getPath());
+        PublishedApisInfo.readConfigFiles();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            measure(root, false);
+            measure(root, true);
+        }
+        int rounds = Integer.getInteger("nablarch-findbugs-perf-rounds", 10);
+        long[][] without = new long[METRICS.length][rounds];
+        long[][] with = new long[METRICS.length][rounds];
+        for (int round = 0; round < rounds; round++) {
+            boolean pluginFirst = round % 2 == 1;
+            record(with, without, round, root, pluginFirst);
+            record(with, without, round, root, !pluginFirst);
+        }
+
+        Properties result = new Properties();
+        result.setProperty("spotbugs.version", Version.VERSION_STRING);
+        result.setProperty("classes", String.valueOf(corpus.getClasses()));
+        result.setProperty("rounds", String.valueOf(rounds));
+        StringBuilder summary = new StringBuilder("[nablarch-findbugs-perf] SpotBugs " + Version.VERSION_STRING);
+        for (int m = 0; m < METRICS.length; m++) {
+            long base = median(without[m]);
+            long plugin = median(with[m]);
+            result.setProperty(METRICS[m] + ".withoutPlugin.medianMillis", String.valueOf(base));
+            result.setProperty(METRICS[m] + ".withPlugin.medianMillis", String.valueOf(plugin));
+            result.setProperty(METRICS[m] + ".withoutPlugin.madMillis", String.valueOf(medianAbsoluteDeviation(without[m])));
+            result.setProperty(METRICS[m] + ".withPlugin.madMillis", String.valueOf(medianAbsoluteDeviation(with[m])));
+            result.setProperty(METRICS[m] + ".deltaMillis", String.valueOf(plugin - base));
+            summary.append(String.format(" %s=%+dms(%d->%d)", METRICS[m], plugin - base, base, plugin));
+        }
+        Files.createDirectories(RESULT.getAbsoluteFile().getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(RESULT.toPath())) {
+            result.store(out, "nablarch-unpublished-api-checker detector overhead benchmark");
+        }
+        System.err.println(summary);
+    }
+
+    /**
+     * 1回分の測定値を記録する。
+     */
+    private static void record(long[][] with, long[][] without, int round, File root, boolean plugin) {
+        long[] sample = measure(root, plugin);
+        long[][] target = plugin ? with : without;
+        for (int m = 0; m < METRICS.length; m++) {
+            target[m][round] = sample[m];
+        }
+    }
+
+    /**
+     * 呼出元クラスを解析し、経過時間・CPU時間・GC時間（ミリ秒）を測定する。
+     * 本detectorの有無によらず、SpotBugs標準のdetectorの設定は同一とする。
+     */
+    private static long[] measure(File root, boolean plugin) {
+        System.gc();
+        long gcStart = gcMillis();
+        long cpuStart = processCpuNanos();
+        long wallStart = System.nanoTime();
+
+        AnalysisRunner runner = new AnalysisRunner();
+        runner.addAuxClasspathEntry(SyntheticCorpus.apiDir(root).toPath());
+        BugCollection bugs = runner.run(engine -> {
+            DetectorFactoryCollection factories = DetectorFactoryCollection.instance();
+            UserPreferences preferences = engine.getUserPreferences();
+            // PublishedApisInfoTestと同様に、SpotBugs 4.8.3で例外が発生するMethodReturnCheckは無効にする。
+            preferences.enableDetector(factories.getFactory("MethodReturnCheck"), false);
+            preferences.enableDetector(factories.getFactory(UsageOfUnpublishedMethodDetector.class.getSimpleName()), plugin);
+        }, SyntheticCorpus.callerDir(root).toPath()).getBugCollection();
+
+        long[] sample = {
+                (System.nanoTime() - wallStart) / 1_000_000,
+                (processCpuNanos() - cpuStart) / 1_000_000,
+                gcMillis() - gcStart};
+        long violations = StreamSupport.stream(bugs.spliterator(), false)
+                .filter(bug -> UsageOfUnpublishedMethodDetector.BUG_CODE.equals(bug.getType()))
+                .count();
+        assertEquals(plugin, violations > 0);
+        return sample;
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static long medianAbsoluteDeviation(long[] values) {
+        long median = median(values);
+        long[] deviations = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            deviations[i] = Math.abs(values[i] - median);
+        }
+        return median(deviations);
+    }
+}
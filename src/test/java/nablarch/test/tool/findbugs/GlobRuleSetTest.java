@@ -0,0 +1,105 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link GlobRuleSet}のテスト。
+ */
+public class GlobRuleSetTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    /**
+     * 「*」がパッケージ・クラス・メソッド名の一部に合致し、「.」を跨がないこと。
+     * 「(..)」が任意のパラメータに合致すること。
+     */
+    @Test
+    public void testMatchMember() {
+        GlobRuleSet rules = new GlobRuleSet();
+        AllowlistEntry entry = entry("nablarch.core.db.statement.*Statement.get*(..)");
+        rules.add("nablarch.core.db.statement.*Statement.get*(..)", entry);
+
+        assertSame(entry, rules.matchMember("nablarch.core.db.statement.SqlPStatement.getString(java.lang.String)"));
+        assertSame(entry, rules.matchMember("nablarch.core.db.statement.Statement.get()"));
+        assertSame(entry, rules.matchMember("nablarch.core.db.statement.SqlStatement.getInteger(int,long[])"));
+        assertNull(rules.matchMember("nablarch.core.db.statement.sub.SqlStatement.get()"));
+        assertNull(rules.matchMember("nablarch.core.db.statement.SqlStatement.setString(int)"));
+        assertNull(rules.matchMember("nablarch.core.db.statement.SqlStatement.get"));
+    }
+
+    /**
+     * パッケージ・クラス指定の設定が「.」区切りの前方一致で合致すること。
+     * 「**」が任意の階層に合致すること。
+     */
+    @Test
+    public void testMatchPackageOrClass() {
+        GlobRuleSet rules = new GlobRuleSet();
+        AllowlistEntry util = entry("nablarch.core.**.*Util");
+        AllowlistEntry pkg = entry("nablarch.fw.*.action");
+        rules.add("nablarch.core.**.*Util", util);
+        rules.add("nablarch.fw.*.action", pkg);
+
+        assertSame(util, rules.matchPackageOrClass("nablarch.core.util.StringUtil"));
+        assertSame(util, rules.matchPackageOrClass("nablarch.core.a.b.c.DateUtil.format(java.lang.String)"));
+        assertNull(rules.matchPackageOrClass("nablarch.core.util.StringUtilImpl"));
+        assertSame(pkg, rules.matchPackageOrClass("nablarch.fw.web.action.HttpAction"));
+        assertSame(pkg, rules.matchPackageOrClass("nablarch.fw.web.action"));
+        assertNull(rules.matchPackageOrClass("nablarch.fw.web.actions.HttpAction"));
+        assertNull(rules.matchPackageOrClass("nablarch.fw.web.sub.action.HttpAction"));
+        assertNull(rules.matchMember("nablarch.fw.web.action.HttpAction"));
+    }
+
+    /**
+     * 多数の設定を登録しても、それぞれの設定で正しく照合できること。
+     */
+    @Test
+    public void testManyRules() {
+        GlobRuleSet rules = new GlobRuleSet();
+        for (int i = 0; i < 500; i++) {
+            rules.add("app.pkg" + i + ".*Service.find*(..)", entry("rule" + i));
+        }
+        for (int i = 0; i < 500; i++) {
+            assertNotNull(rules.matchMember("app.pkg" + i + ".UserService.findById(long)"));
+            assertNull(rules.matchMember("app.pkg" + i + ".UserService.deleteById(long)"));
+        }
+    }
+
+    /**
+     * ワイルドカードを含む設定を判定できること。
+     */
+    @Test
+    public void testReadGlobConfig() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/glob");
+        PublishedApisInfo.readConfigFiles();
+
+        String testClass = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.TestClass";
+        assertTrue(PublishedApisInfo.isPermitted(testClass, "testMethod", "()V"));
+        assertTrue(PublishedApisInfo.isPermitted(testClass, "testMethod3", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(testClass, "<init>", "()V"));
+        assertTrue(PublishedApisInfo.isPermitted(testClass + "$OK", "<init>", "()V"));
+        assertTrue(PublishedApisInfo.isPermitted(testClass + "$OK", "<init>", "([Ljava/lang/String;)V"));
+        assertFalse(PublishedApisInfo.isPermitted(testClass + "$OK", "isHoge", "()Z"));
+
+        assertTrue(PublishedApisInfo.isPermitted(
+                "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.enumz.TestEnum", "values", "()V"));
+        assertFalse(PublishedApisInfo.isProhibited(
+                "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.enumz.TestEnum"));
+        assertTrue(PublishedApisInfo.isProhibited(
+                "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java.enumz.TestImpleEnum"));
+    }
+
+    private static AllowlistEntry entry(String rule) {
+        return new AllowlistEntry(rule, new File("test.config"), 1);
+    }
+}
@@ -0,0 +1,19 @@
+package nablarch.test.tool.findbugs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link JsonStrings}のテスト。
+ */
+public class JsonStringsTest {
+
+    /**
+     * JSONの文字列がエスケープされること。
+     */
+    @Test
+    public void testEscape() {
+        assertEquals("a\\\"b\\\\c\\n\\u0001", JsonStrings.escape("a\"b\\c\n\u0001"));
+    }
+}
@@ -0,0 +1,56 @@
+package nablarch.test.tool.findbugs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link LongIntHashMap}のテスト。
+ */
+public class LongIntHashMapTest {
+
+    /**
+     * 登録した値が取得でき、未登録のキーは{@link LongIntHashMap#NO_VALUE}となること。
+     */
+    @Test
+    public void testPutAndGet() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(1L, 10);
+        map.put(-1L, 20);
+        map.put(1L << 32, 30);
+
+        assertEquals(10, map.get(1L));
+        assertEquals(20, map.get(-1L));
+        assertEquals(30, map.get(1L << 32));
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(2L));
+        assertEquals(3, map.size());
+    }
+
+    /**
+     * 同じキーで登録した場合、値が上書きされること。
+     */
+    @Test
+    public void testOverwrite() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(5L, 1);
+        map.put(5L, 0);
+
+        assertEquals(0, map.get(5L));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * 初期容量を超えて登録しても、すべての値が取得できること。
+     */
+    @Test
+    public void testRehash() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < 10000; i++) {
+            map.put(((long) i << 32) | i, i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, map.get(((long) i << 32) | i));
+        }
+        assertEquals(10000, map.size());
+    }
+}
@@ -0,0 +1,139 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link MappedAllowlistIndex}のテスト。
+ */
+public class MappedAllowlistIndexTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String INDEX_FILE_PATH = "nablarch-findbugs-index-file";
+
+    private static final String DENY_CONFIG_DIR = "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny";
+
+    private static final String PACKAGE = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty(INDEX_FILE_PATH);
+        System.setProperty(CONFIG_FILE_PATH, DENY_CONFIG_DIR);
+        PublishedApisInfo.readConfigFiles();
+    }
+
+    /**
+     * インデックスファイルから、木構造と同じエントリが判定されること。
+     */
+    @Test
+    public void testSameDecisionsAsTree() throws Exception {
+        ApiDecisionTree tree = new ApiDecisionTree();
+        tree.addPackageOrClass("nablarch.core", entry("nablarch.core", 1));
+        tree.addPackageOrClass("nablarch.core.db", entry("!nablarch.core.db", 2));
+        tree.addPackageOrClass("nablarch.core.db.Statement", entry("nablarch.core.db.Statement", 3));
+        tree.addMember("nablarch.core.db.Statement.close()", entry("!nablarch.core.db.Statement.close()", 4));
+        File file = temp.newFile("index.bin");
+        MappedAllowlistIndex.write(file, 1L, tree, Collections.singletonList(entry("!nablarch.core.**.*Util", 6)),
+                Collections.singletonList(entry("nablarch.core", 5)));
+
+        assertNull(MappedAllowlistIndex.open(file, 2L));
+        MappedAllowlistIndex index = MappedAllowlistIndex.open(file, 1L);
+        for (String api : new String[] {
+                "nablarch.core.util.StringUtil.isNullOrEmpty(java.lang.String)",
+                "nablarch.core.db.Connection.commit()",
+                "nablarch.core.db.Statement.execute()",
+                "nablarch.core.db.Statement.close()",
+                "nablarch.fw.Handler.handle(java.lang.Object)"}) {
+            assertEquals(api, rule(tree.decideMember(api)), rule(index.decideMember(api)));
+        }
+        for (String name : new String[] {"nablarch.core.util.StringUtil", "nablarch.core.db", "nablarch", "nablarch.cor"}) {
+            assertEquals(name, rule(tree.decidePackageOrClass(name)), rule(index.decidePackageOrClass(name)));
+        }
+        assertEquals(4, index.getEntries().size());
+        assertEquals("test.config:5", index.getDuplicateEntries().get(0).getLocation());
+        List<String> globRules = new ArrayList<>();
+        index.forEachGlobRule((pattern, entry) -> globRules.add(pattern + " " + entry.getLocation()));
+        assertEquals(Collections.singletonList("nablarch.core.**.*Util test.config:6"), globRules);
+    }
+
+    /**
+     * インデックスファイルを指定した場合、作成したインデックスファイルを次回以降の読み込みで使用し、
+     * 設定ファイルから読み込んだ場合と同じ判定結果となること。
+     */
+    @Test
+    public void testReadConfigThroughIndex() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+        System.setProperty(CONFIG_FILE_PATH, DENY_CONFIG_DIR);
+        File indexFile = new File(temp.getRoot(), "allowlist.idx");
+        System.setProperty(INDEX_FILE_PATH, indexFile.getPath());
+
+        PublishedApisInfo.readConfigFiles();
+        assertTrue(indexFile.isFile());
+        long modified = indexFile.lastModified();
+        PublishedApisInfo.readConfigFiles();
+        assertEquals(modified, indexFile.lastModified());
+
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod3", "()V"));
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".superclass.Super", "superMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".superclass.Sub", "superMethod", "()V"));
+        assertTrue(PublishedApisInfo.isProhibited(PACKAGE + ".superclass.Sub"));
+        assertTrue(PublishedApisInfo.isProhibited(PACKAGE + ".enumz.TestImpleEnum"));
+        assertEquals(1, PublishedApisInfo.getUsageReport().getDuplicateEntries().size());
+    }
+
+    /**
+     * インデックスファイルが有効な場合、ワイルドカードを含む公開情報もインデックスファイルから読み込まれ、
+     * 設定ファイルは読み込まれないこと。
+     */
+    @Test
+    public void testGlobRulesReadFromIndex() throws Exception {
+        Repository.setRepository(SyntheticRepository.getInstance());
+        File configDir = temp.newFolder("config");
+        File configFile = new File(configDir, "deny.config");
+        Files.copy(new File(DENY_CONFIG_DIR, "deny.config").toPath(), configFile.toPath());
+        System.setProperty(CONFIG_FILE_PATH, configDir.getPath());
+        System.setProperty(INDEX_FILE_PATH, new File(temp.getRoot(), "allowlist.idx").getPath());
+        PublishedApisInfo.readConfigFiles();
+        assertTrue(PublishedApisInfo.isProhibited(PACKAGE + ".enumz.TestImpleEnum"));
+
+        // フィンガープリントが変わらないよう、サイズと更新日時を保ったままワイルドカードの指定を書き換える。
+        long modified = configFile.lastModified();
+        String content = new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8);
+        Files.write(configFile.toPath(), content.replace("*Imple*", "*Other*").getBytes(StandardCharsets.UTF_8));
+        assertTrue(configFile.setLastModified(modified));
+        PublishedApisInfo.readConfigFiles();
+
+        assertTrue(PublishedApisInfo.isProhibited(PACKAGE + ".enumz.TestImpleEnum"));
+        assertEquals(1, PublishedApisInfo.getUsageReport().getDuplicateEntries().size());
+    }
+
+    private static AllowlistEntry entry(String rule, int line) {
+        return new AllowlistEntry(rule, new File("test.config"), line);
+    }
+
+    private static String rule(AllowlistEntry entry) {
+        return entry == null ? null : entry.getRule();
+    }
+}
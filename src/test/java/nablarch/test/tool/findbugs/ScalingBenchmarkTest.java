@@ -0,0 +1,235 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.BugCollection;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import edu.umd.cs.findbugs.test.AnalysisRunner;
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 合成コーパスに対して{@link UsageOfUnpublishedMethodDetector}を実行し、処理性能を測定する。
+ * <p/>
+ * 性能測定はシステムプロパティ{@code nablarch-findbugs-perf}に{@code true}を指定した場合のみ実行する（{@code perf}プロファイル）。
+ * 測定結果（クラス/秒、ヒープ使用量のピーク）は{@code target/perf/scaling-result.properties}に出力し、
+ * 保存済みのベースラインと比較して、スループットが閾値を超えて低下した場合はテストを失敗させる。
+ * <p/>
+ * クラス/秒は測定環境の性能に依存するため、同じコーパスのクラスファイルをBCELで読み込む較正用の処理のクラス/秒に対する比
+ * （相対スループット）をベースラインと比較する。
+ */
+public class ScalingBenchmarkTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    /** ベースラインファイル。 */
+    private static final File BASELINE = new File("src/test/java/nablarch/test/tool/findbugs/data/perf/scaling-baseline.properties");
+
+    /** 測定結果の出力先。 */
+    private static final File RESULT = new File("target/perf/scaling-result.properties");
+
+    /** 測定前に実行する回数。 */
+    private static final int WARMUP_RUNS = 2;
+
+    /** 測定する回数。最も速い回の結果を使用する。 */
+    private static final int MEASURED_RUNS = 3;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    @After
+    public void tearDown() {
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * 生成したコーパスの非公開APIの使用箇所が、想定した数だけ検出されること。
+     */
+    @Test
+    public void testGeneratedCorpus() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 50);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+
+        assertEquals(corpus.expectedViolations(), countViolations(runDetector(root)));
+    }
+
+    /**
+     * 大規模な合成コーパスに対するスループットとヒープ使用量のピークを測定し、ベースラインと比較する。
+     * <p/>
+     * コーパスの規模は以下のシステムプロパティで変更できる。
+     * <ul>
+     * <li>{@code nablarch-findbugs-perf-classes}：呼出元クラス数（デフォルト2000）</li>
+     * <li>{@code nablarch-findbugs-perf-call-sites}：メソッド毎の呼出箇所数（デフォルト20）</li>
+     * <li>{@code nablarch-findbugs-perf-depth}：被呼出クラスの継承階層の深さ（デフォルト5）</li>
+     * <li>{@code nablarch-findbugs-perf-finally}：メソッド毎のfinally節の数（デフォルト4）</li>
+     * <li>{@code nablarch-findbugs-perf-config-entries}：設定ファイルの行数（デフォルト20000）</li>
+     * </ul>
+     * スループットの低下の許容率はシステムプロパティ{@code nablarch-findbugs-perf-threshold}（デフォルト0.2）で指定する。
+     * {@code nablarch-findbugs-perf-update-baseline}に{@code true}を指定した場合は、測定結果の相対スループットをベースラインとして保存する。
+     * ベースラインが存在しない場合は比較しない。
+     */
+    @Test
+    public void testThroughputAgainstBaseline() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("nablarch-findbugs-perf"));
+
+        SyntheticCorpus corpus = new SyntheticCorpus(
+                Integer.getInteger("nablarch-findbugs-perf-classes", 2000),
+                Integer.getInteger("nablarch-findbugs-perf-call-sites", 20),
+                Integer.getInteger("nablarch-findbugs-perf-depth", 5),
+                Integer.getInteger("nablarch-findbugs-perf-finally", 4),
+                Integer.getInteger("nablarch-findbugs-perf-config-entries", 20000));
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runDetector(root);
+        }
+        double calibrationClassesPerSecond = calibrate(root);
+        double classesPerSecond = 0;
+        long peakHeap = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            System.gc();
+            resetPeakHeap();
+            long start = System.nanoTime();
+            BugCollection bugs = runDetector(root);
+            long elapsed = System.nanoTime() - start;
+            assertEquals(corpus.expectedViolations(), countViolations(bugs));
+            classesPerSecond = Math.max(classesPerSecond, corpus.getClasses() * 1e9 / elapsed);
+            peakHeap = Math.max(peakHeap, peakHeap());
+        }
+
+        double relativeThroughput = classesPerSecond / calibrationClassesPerSecond;
+
+        Properties result = new Properties();
+        result.setProperty("classesPerSecond", String.format("%.1f", classesPerSecond));
+        result.setProperty("calibrationClassesPerSecond", String.format("%.1f", calibrationClassesPerSecond));
+        result.setProperty("relativeThroughput", String.format("%.5f", relativeThroughput));
+        result.setProperty("peakHeapBytes", String.valueOf(peakHeap));
+        store(result, RESULT);
+        System.err.printf("[nablarch-findbugs-perf] classes/sec=%.1f calibration=%.1f relative=%.5f peakHeap=%dMB%n",
+                classesPerSecond, calibrationClassesPerSecond, relativeThroughput, peakHeap >> 20);
+
+        if (Boolean.getBoolean("nablarch-findbugs-perf-update-baseline")) {
+            Properties baseline = new Properties();
+            baseline.setProperty("relativeThroughput", result.getProperty("relativeThroughput"));
+            store(baseline, BASELINE);
+            return;
+        }
+        // ベースラインが存在しない場合は比較しない。ベースラインの作成は明示的に指定した場合のみ行う。
+        Assume.assumeTrue("baseline doesn't exist. Path=[" + BASELINE + "]", BASELINE.isFile());
+        Properties baseline = load(BASELINE);
+        double expected = Double.parseDouble(baseline.getProperty("relativeThroughput"));
+        double threshold = Double.parseDouble(System.getProperty("nablarch-findbugs-perf-threshold", "0.2"));
+        assertTrue(String.format("throughput regressed. baseline=[%.5f] actual=[%.5f] threshold=[%s]",
+                        expected, relativeThroughput, threshold),
+                relativeThroughput >= expected * (1 - threshold));
+    }
+
+    /**
+     * 較正用の処理として、コーパスのすべてのクラスファイルをBCELで読み込み、クラス/秒を測定する。
+     * 本detectorの処理を含まないため、測定環境の性能のみに依存する。
+     *
+     * @return 最も速い回のクラス/秒
+     */
+    private static double calibrate(File root) throws IOException {
+        List<Path> classFiles = new ArrayList<>();
+        classFiles.addAll(UnpublishedApiChecker.listClassFiles(SyntheticCorpus.callerDir(root)));
+        classFiles.addAll(UnpublishedApiChecker.listClassFiles(SyntheticCorpus.apiDir(root)));
+        double classesPerSecond = 0;
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            for (Path classFile : classFiles) {
+                new ClassParser(classFile.toString()).parse();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP_RUNS) {
+                classesPerSecond = Math.max(classesPerSecond, classFiles.size() * 1e9 / elapsed);
+            }
+        }
+        return classesPerSecond;
+    }
+
+    /**
+     * 本detector以外のdetectorを無効にして、呼出元クラスを解析する。
+     */
+    private static BugCollection runDetector(File root) {
+        System.setProperty(CONFIG_FILE_PATH, SyntheticCorpus.configDir(root).getPath());
+        PublishedApisInfo.readConfigFiles();
+        AnalysisRunner runner = new AnalysisRunner();
+        runner.addAuxClasspathEntry(SyntheticCorpus.apiDir(root).toPath());
+        return runner.run(engine -> {
+            UserPreferences preferences = engine.getUserPreferences();
+            preferences.enableAllDetectors(false);
+            preferences.enableDetector(DetectorFactoryCollection.instance()
+                    .getFactory(UsageOfUnpublishedMethodDetector.class.getSimpleName()), true);
+        }, SyntheticCorpus.callerDir(root).toPath()).getBugCollection();
+    }
+
+    private static long countViolations(BugCollection bugs) {
+        return StreamSupport.stream(bugs.spliterator(), false)
+                .filter(bug -> UsageOfUnpublishedMethodDetector.BUG_CODE.equals(bug.getType()))
+                .count();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void store(Properties properties, File file) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            properties.store(out, "nablarch-unpublished-api-checker scaling benchmark");
+        }
+    }
+}
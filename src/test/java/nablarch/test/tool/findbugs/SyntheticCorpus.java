@@ -0,0 +1,279 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.InstructionConst;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 性能測定用の合成コーパスを生成する。
+ * <p/>
+ * 被呼出クラスとして継承階層の深さ{@code depth}のクラス階層を、解析対象のクラスとして{@code classes}個の呼出元クラスを生成する。
+ * 呼出元クラスの各メソッドは、継承階層の末端のクラスのインスタンスに対して{@code callSites}箇所の呼出を行い、
+ * そのうち{@code finallyBlocks}箇所の呼出をtry-finally節で囲む。
+ * 呼出は各階層のクラスで定義された公開メソッドと非公開メソッドを交互に使用する。
+ * <p/>
+ * 設定ファイルには{@code java.lang.Object}、各階層のコンストラクタと公開メソッドに加えて、合計が{@code configEntries}行となるよう、
+ * 判定に使用されないエントリを出力する。
+ */
+final class SyntheticCorpus {
+
+    /** 被呼出クラスのパッケージ。 */
+    static final String API_PACKAGE = "synthetic.api";
+
+    /** 呼出元クラスのパッケージ。 */
+    static final String CALLER_PACKAGE = "synthetic.caller";
+
+    /** 呼出元クラス毎のメソッド数。 */
+    static final int METHODS_PER_CLASS = 4;
+
+    /** 呼出元クラス数。 */
+    private final int classes;
+
+    /** メソッド毎の呼出箇所数。 */
+    private final int callSites;
+
+    /** 被呼出クラスの継承階層の深さ。 */
+    private final int depth;
+
+    /** メソッド毎のfinally節の数。 */
+    private final int finallyBlocks;
+
+    /** 設定ファイルの行数。 */
+    private final int configEntries;
+
+    /**
+     * コンストラクタ。
+     *
+     * @param classes       呼出元クラス数
+     * @param callSites     メソッド毎の呼出箇所数
+     * @param depth         被呼出クラスの継承階層の深さ
+     * @param finallyBlocks メソッド毎のfinally節の数（{@code callSites}以下）
+     * @param configEntries 設定ファイルの行数
+     */
+    SyntheticCorpus(int classes, int callSites, int depth, int finallyBlocks, int configEntries) {
+        if (classes < 1 || callSites < 1 || depth < 1 || finallyBlocks < 0 || finallyBlocks > callSites) {
+            throw new IllegalArgumentException("Invalid corpus shape. classes=[" + classes + "], callSites=[" + callSites
+                    + "], depth=[" + depth + "], finallyBlocks=[" + finallyBlocks + "]");
+        }
+        this.classes = classes;
+        this.callSites = callSites;
+        this.depth = depth;
+        this.finallyBlocks = finallyBlocks;
+        this.configEntries = configEntries;
+    }
+
+    /**
+     * コーパスを生成する。
+     * {@code root}配下に、被呼出クラスを{@code api}、呼出元クラスを{@code caller}、設定ファイルを{@code config}ディレクトリに出力する。
+     *
+     * @param root 出力先ディレクトリ
+     * @throws IOException 出力に失敗した場合
+     */
+    void generate(File root) throws IOException {
+        for (int level = 0; level < depth; level++) {
+            apiClass(level).getJavaClass().dump(classFile(apiDir(root), API_PACKAGE, apiClassName(level)));
+        }
+        for (int i = 0; i < classes; i++) {
+            callerClass(i).getJavaClass().dump(classFile(callerDir(root), CALLER_PACKAGE, "Caller" + i));
+        }
+        writeConfig(configDir(root));
+    }
+
+    /**
+     * 被呼出クラスの出力先ディレクトリを取得する。
+     *
+     * @param root 出力先ディレクトリ
+     * @return 被呼出クラスの出力先ディレクトリ
+     */
+    static File apiDir(File root) {
+        return new File(root, "api");
+    }
+
+    /**
+     * 呼出元クラスの出力先ディレクトリを取得する。
+     *
+     * @param root 出力先ディレクトリ
+     * @return 呼出元クラスの出力先ディレクトリ
+     */
+    static File callerDir(File root) {
+        return new File(root, "caller");
+    }
+
+    /**
+     * 設定ファイルの出力先ディレクトリを取得する。
+     *
+     * @param root 出力先ディレクトリ
+     * @return 設定ファイルの出力先ディレクトリ
+     */
+    static File configDir(File root) {
+        return new File(root, "config");
+    }
+
+    /**
+     * 呼出元クラス数を取得する。
+     *
+     * @return 呼出元クラス数
+     */
+    int getClasses() {
+        return classes;
+    }
+
+    /**
+     * 生成したコーパスで検出される非公開APIの使用箇所の数を取得する。
+     * finally節内の呼出は、コンパイラが複製した箇所を含めて1箇所として数える。
+     *
+     * @return 非公開APIの使用箇所の数
+     */
+    int expectedViolations() {
+        int unpublishedPerMethod = 0;
+        for (int site = 0; site < callSites; site++) {
+            if (site % 2 == 1) {
+                unpublishedPerMethod++;
+            }
+        }
+        return classes * METHODS_PER_CLASS * unpublishedPerMethod;
+    }
+
+    /**
+     * 継承階層の{@code level}番目の被呼出クラスを生成する。
+     * 各クラスは公開メソッド{@code publishedN}と非公開メソッド{@code internalN}を持つ。
+     */
+    private static ClassGen apiClass(int level) {
+        String superClass = level == 0 ? "java.lang.Object" : API_PACKAGE + "." + apiClassName(level - 1);
+        ClassGen cg = new ClassGen(API_PACKAGE + "." + apiClassName(level), superClass, apiClassName(level) + ".java",
+                Const.ACC_PUBLIC | Const.ACC_SUPER, null);
+        cg.addEmptyConstructor(Const.ACC_PUBLIC);
+        for (String name : new String[] {"published" + level, "internal" + level}) {
+            InstructionList il = new InstructionList();
+            il.append(InstructionConst.RETURN);
+            MethodGen mg = new MethodGen(Const.ACC_PUBLIC, Type.VOID, Type.NO_ARGS, null, name,
+                    cg.getClassName(), il, cg.getConstantPool());
+            mg.setMaxStack();
+            mg.setMaxLocals();
+            cg.addMethod(mg.getMethod());
+        }
+        return cg;
+    }
+
+    /**
+     * 呼出元クラスを生成する。
+     */
+    private ClassGen callerClass(int index) {
+        ClassGen cg = new ClassGen(CALLER_PACKAGE + ".Caller" + index, "java.lang.Object", "Caller" + index + ".java",
+                Const.ACC_PUBLIC | Const.ACC_SUPER, null);
+        cg.addEmptyConstructor(Const.ACC_PUBLIC);
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            cg.addMethod(callerMethod(cg, "method" + m).getMethod());
+        }
+        return cg;
+    }
+
+    /**
+     * 呼出元メソッドを生成する。
+     * 先頭の{@code finallyBlocks}箇所の呼出は、{@code try { 呼出 } finally { 呼出 }}の形でコンパイルされた命令列とする。
+     */
+    private MethodGen callerMethod(ClassGen cg, String name) {
+        ConstantPoolGen cp = cg.getConstantPool();
+        InstructionFactory factory = new InstructionFactory(cg, cp);
+        ObjectType leaf = new ObjectType(API_PACKAGE + "." + apiClassName(depth - 1));
+        InstructionList il = new InstructionList();
+        MethodGen mg = new MethodGen(Const.ACC_PUBLIC, Type.VOID, Type.NO_ARGS, null, name, cg.getClassName(), il, cp);
+
+        il.append(factory.createNew(leaf));
+        il.append(InstructionConst.DUP);
+        il.append(factory.createInvoke(leaf.getClassName(), Const.CONSTRUCTOR_NAME, Type.VOID, Type.NO_ARGS, Const.INVOKESPECIAL));
+        il.append(InstructionFactory.createStore(leaf, 1));
+        for (int site = 0; site < callSites; site++) {
+            if (site < finallyBlocks) {
+                appendTryFinally(il, mg, factory, leaf, site);
+            } else {
+                appendCall(il, factory, leaf, site);
+            }
+        }
+        il.append(InstructionConst.RETURN);
+        mg.setMaxStack();
+        mg.setMaxLocals();
+        return mg;
+    }
+
+    /**
+     * {@code try { 呼出 } finally { 後処理 }}をjavacと同様に、finally節を正常終了時と例外発生時の2箇所に複製してコンパイルした命令列を追加する。
+     * 後処理は継承階層の最上位の公開メソッドの呼出とする。
+     */
+    private void appendTryFinally(InstructionList il, MethodGen mg, InstructionFactory factory, ObjectType leaf, int site) {
+        InstructionHandle tryStart = appendCall(il, factory, leaf, site);
+        InstructionHandle tryEnd = il.getEnd();
+        appendCleanup(il, factory, leaf);
+        GOTO skipHandler = new GOTO(null);
+        il.append(skipHandler);
+        InstructionHandle handler = il.append(InstructionFactory.createStore(Type.THROWABLE, 2));
+        appendCleanup(il, factory, leaf);
+        il.append(InstructionFactory.createLoad(Type.THROWABLE, 2));
+        il.append(InstructionConst.ATHROW);
+        skipHandler.setTarget(il.append(InstructionConst.NOP));
+        mg.addExceptionHandler(tryStart, tryEnd, handler, null);
+    }
+
+    /**
+     * finally節の後処理の呼出を追加する。
+     */
+    private static void appendCleanup(InstructionList il, InstructionFactory factory, ObjectType leaf) {
+        il.append(InstructionFactory.createLoad(leaf, 1));
+        il.append(factory.createInvoke(leaf.getClassName(), "published0", Type.VOID, Type.NO_ARGS, Const.INVOKEVIRTUAL));
+    }
+
+    /**
+     * 呼出箇所を追加する。偶数番目は公開メソッド、奇数番目は非公開メソッドを呼び出す。
+     * 呼び出すメソッドを定義する階層は呼出箇所毎に順に変える。
+     */
+    private InstructionHandle appendCall(InstructionList il, InstructionFactory factory, ObjectType leaf, int site) {
+        int level = (site / 2) % depth;
+        String method = (site % 2 == 0 ? "published" : "internal") + level;
+        InstructionHandle start = il.append(InstructionFactory.createLoad(leaf, 1));
+        il.append(factory.createInvoke(leaf.getClassName(), method, Type.VOID, Type.NO_ARGS, Const.INVOKEVIRTUAL));
+        return start;
+    }
+
+    /**
+     * 設定ファイルを出力する。
+     */
+    private void writeConfig(File dir) throws IOException {
+        Files.createDirectories(dir.toPath());
+        try (Writer writer = Files.newBufferedWriter(new File(dir, "synthetic.config").toPath(), StandardCharsets.UTF_8)) {
+            writer.write("java.lang.Object\n");
+            int written = 1;
+            for (int level = 0; level < depth; level++, written += 2) {
+                String className = API_PACKAGE + "." + apiClassName(level);
+                writer.write(className + "." + apiClassName(level) + "()\n");
+                writer.write(className + ".published" + level + "()\n");
+            }
+            for (int i = 0; written < configEntries; i++, written++) {
+                writer.write("synthetic.unused.p" + (i % 97) + ".Type" + i + ".method" + (i % 13) + "(java.lang.String)\n");
+            }
+        }
+    }
+
+    private static String apiClassName(int level) {
+        return "Api" + level;
+    }
+
+    private static String classFile(File dir, String packageName, String simpleName) throws IOException {
+        File file = new File(dir, packageName.replace('.', File.separatorChar) + File.separator + simpleName + ".class");
+        Files.createDirectories(file.getParentFile().toPath());
+        return file.getPath();
+    }
+}
@@ -0,0 +1,345 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link UnpublishedApiChecker}のテスト。
+ */
+public class UnpublishedApiCheckerTest {
+
+    private static final String FIXTURE = "nablarch/test/tool/findbugs/data/methodcall";
+
+    private static final String CONFIG_DIR = "src/test/java/nablarch/test/tool/findbugs/data/methodcall/settings";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File classDir;
+
+    @Before
+    public void setUp() throws IOException {
+        classDir = temp.newFolder("classes");
+        copyTree(Paths.get("target/test-classes", FIXTURE), classDir.toPath().resolve(FIXTURE));
+    }
+
+    @After
+    public void tearDown() {
+        // 以降のテストのため、クラスパスから読み込むリポジトリに戻す。
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * 非公開APIの使用箇所が、使用元のクラス・メソッドと共に出力されること。
+     */
+    @Test
+    public void testAnalyze() throws IOException {
+        File output = new File(temp.getRoot(), "all.txt");
+        int status = UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", output.getPath(), classDir.getPath()});
+
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, status);
+        String report = read(output);
+        assertThat(report, containsString("nablarch.test.tool.findbugs.data.methodcall.Caller\t"));
+        assertThat(report, containsString("nablarch.test.tool.findbugs.data.methodcall.methods.UnpublishedMethods"));
+    }
+
+    /**
+     * 分割して解析した結果を併合したレポートが、分割せずに解析したレポートと一致すること。
+     */
+    @Test
+    public void testShardAndMerge() throws IOException {
+        File unsharded = new File(temp.getRoot(), "all.txt");
+        UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", unsharded.getPath(), classDir.getPath()});
+
+        List<String> mergeArgs = new ArrayList<>();
+        mergeArgs.add("merge");
+        mergeArgs.add("--output");
+        File merged = new File(temp.getRoot(), "merged.txt");
+        mergeArgs.add(merged.getPath());
+        int nonEmptyShards = 0;
+        for (int i = 0; i < 3; i++) {
+            File shard = new File(temp.getRoot(), "shard" + i + ".txt");
+            assertEquals(0, UnpublishedApiChecker.run(new String[] {
+                    "analyze", "--config", CONFIG_DIR, "--shard", i + "/3", "--output", shard.getPath(),
+                    classDir.getPath()}));
+            if (shard.length() > 0) {
+                nonEmptyShards++;
+            }
+            mergeArgs.add(shard.getPath());
+        }
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(mergeArgs.toArray(new String[0])));
+
+        assertFalse(read(unsharded).isEmpty());
+        assertEquals(read(unsharded), read(merged));
+        assertEquals(true, nonEmptyShards > 1);
+    }
+
+    /**
+     * 子プロセスで分割して解析したレポートが、分割せずに解析したレポートと一致すること。
+     */
+    @Test
+    public void testFork() throws IOException {
+        File unsharded = new File(temp.getRoot(), "all.txt");
+        UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", unsharded.getPath(), classDir.getPath()});
+
+        File forked = new File(temp.getRoot(), "forked.txt");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--fork", "2", "--output", forked.getPath(), classDir.getPath()}));
+
+        assertEquals(read(unsharded), read(forked));
+        assertFalse(new File(forked.getPath() + ".shard0").exists());
+    }
+
+    /**
+     * ベースラインに記録した使用箇所が、行番号が変わっても除外されること。
+     */
+    @Test
+    public void testBaseline() throws IOException {
+        File all = new File(temp.getRoot(), "all.txt");
+        UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", all.getPath(), classDir.getPath()});
+        File baselineFile = new File(temp.getRoot(), "baseline.bin");
+        assertEquals(0, UnpublishedApiChecker.run(new String[] {
+                "baseline", "--config", CONFIG_DIR, "--output", baselineFile.getPath(), classDir.getPath()}));
+
+        File output = new File(temp.getRoot(), "new.txt");
+        assertEquals(0, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--baseline", baselineFile.getPath(), "--output", output.getPath(),
+                classDir.getPath()}));
+        assertEquals("", read(output));
+
+        ViolationBaseline baseline = ViolationBaseline.read(baselineFile);
+        Violation recorded = Violation.parse(read(all).split("\n")[0]);
+        assertEquals(true, baseline.contains(new Violation(recorded.getClassName(), recorded.getMethodName(),
+                recorded.getMethodSig(), recorded.getLine() + 10, recorded.getApi(), recorded.getKind())));
+        assertFalse(baseline.contains(new Violation(recorded.getClassName(), recorded.getMethodName() + "2",
+                recorded.getMethodSig(), recorded.getLine(), recorded.getApi(), recorded.getKind())));
+    }
+
+    /**
+     * jarファイルを展開せずに解析し、クラスディレクトリを解析した場合と同じレポートとなること。
+     * Multi-Release jarの場合、実行中のJavaのバージョン以下で最も新しいバージョンのエントリが使用されること。
+     */
+    @Test
+    public void testAnalyzeJar() throws IOException {
+        File expected = new File(temp.getRoot(), "dir.txt");
+        UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", expected.getPath(), classDir.getPath()});
+
+        Map<String, byte[]> entries = classEntries(classDir.toPath(), "");
+        String caller = FIXTURE + "/Caller.class";
+        entries.put("META-INF/versions/9/" + caller, entries.get(caller));
+        entries.put(caller, new byte[] {0, 1, 2});
+        entries.put("META-INF/versions/99/" + caller, new byte[] {0, 1, 2});
+        File jar = new File(temp.getRoot(), "app.jar");
+        writeArchive(jar, true, entries);
+
+        File output = new File(temp.getRoot(), "jar.txt");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", output.getPath(), jar.getPath()}));
+        assertEquals(read(expected), read(output));
+    }
+
+    /**
+     * warファイルを展開せずに解析し、WEB-INF/lib配下のjarファイルのクラスが被呼出クラスとして使用されること。
+     * 被呼出クラスとして使用されないライブラリのクラスは読み込まれないこと。
+     */
+    @Test
+    public void testAnalyzeWar() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        File libJar = new File(temp.getRoot(), "api.jar");
+        Map<String, byte[]> libEntries = classEntries(SyntheticCorpus.apiDir(root).toPath(), "");
+        libEntries.put("unused/Broken.class", new byte[] {0, 1, 2});
+        writeArchive(libJar, false, libEntries);
+        Map<String, byte[]> entries = classEntries(SyntheticCorpus.callerDir(root).toPath(), "WEB-INF/classes/");
+        entries.put("WEB-INF/lib/api.jar", Files.readAllBytes(libJar.toPath()));
+        File war = new File(temp.getRoot(), "app.war");
+        writeArchive(war, false, entries);
+
+        File output = new File(temp.getRoot(), "war.txt");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", SyntheticCorpus.configDir(root).getPath(), "--output", output.getPath(),
+                war.getPath()}));
+        String report = read(output);
+        assertEquals(corpus.expectedViolations(), report.split("\n").length);
+        assertFalse(report.contains(SyntheticCorpus.API_PACKAGE + ".Api0\t"));
+    }
+
+    /**
+     * warファイルのWEB-INF/lib配下のjarファイルは、JDK・クラスパスにないクラスが要求された場合のみ、
+     * 展開せずに読み込まれること。
+     */
+    @Test
+    public void testWarLibrariesReadOnlyForMissingClasses() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        File libJar = new File(temp.getRoot(), "api.jar");
+        writeArchive(libJar, false, classEntries(SyntheticCorpus.apiDir(root).toPath(), ""));
+        Map<String, byte[]> entries = new TreeMap<>();
+        entries.put("WEB-INF/lib/api.jar", Files.readAllBytes(libJar.toPath()));
+        // 先頭のエントリの圧縮データを、不正なブロック種別に書き換える。
+        byte[] broken = Files.readAllBytes(libJar.toPath());
+        broken[30 + (broken[26] & 0xFF | (broken[27] & 0xFF) << 8) + (broken[28] & 0xFF | (broken[29] & 0xFF) << 8)] = (byte) 0xFF;
+        entries.put("WEB-INF/lib/broken.jar", broken);
+        File war = new File(temp.getRoot(), "app.war");
+        writeArchive(war, false, entries);
+
+        try (ArchiveClassPath classPath = new ArchiveClassPath(org.apache.bcel.util.ClassPath.getClassPath())) {
+            ArchiveClassReader.read(war, ShardSpec.ALL, classPath);
+            // 読み込めないライブラリがあっても、JDKのクラスはライブラリを読み込まずに取得できる。
+            assertNotNull(classPath.getClassFile("java.lang.Object", ".class"));
+            try {
+                classPath.getClassFile(SyntheticCorpus.API_PACKAGE + ".Api0", ".class");
+                fail();
+            } catch (IOException e) {
+                assertThat(e.getMessage(), containsString("broken.jar"));
+            }
+        }
+        entries.remove("WEB-INF/lib/broken.jar");
+        writeArchive(war, false, entries);
+        try (ArchiveClassPath classPath = new ArchiveClassPath(org.apache.bcel.util.ClassPath.getClassPath())) {
+            ArchiveClassReader.read(war, ShardSpec.ALL, classPath);
+            assertEquals(war + "!/WEB-INF/lib/api.jar!/" + SyntheticCorpus.API_PACKAGE.replace('.', '/') + "/Api0.class",
+                    classPath.getClassFile(SyntheticCorpus.API_PACKAGE + ".Api0", ".class").getPath());
+        }
+    }
+
+    /**
+     * 分割して解析する場合、担当しないパッケージのクラスファイルは読み込まれないこと。
+     * クラスディレクトリ・jarファイルのいずれも、読み込めないクラスファイルがあっても解析が成功すること。
+     */
+    @Test
+    public void testShardSkipsOtherPackages() throws IOException {
+        String broken = "broken/Broken.class";
+        int other = 0;
+        while (new ShardSpec(other, 3).contains("broken.Broken")) {
+            other++;
+        }
+        File unsharded = new File(temp.getRoot(), "all.txt");
+        UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--shard", other + "/3", "--output", unsharded.getPath(),
+                classDir.getPath()});
+        Map<String, byte[]> entries = classEntries(classDir.toPath(), "");
+        entries.put(broken, new byte[] {0, 1, 2});
+        File jar = new File(temp.getRoot(), "app.jar");
+        writeArchive(jar, false, entries);
+        Files.createDirectories(classDir.toPath().resolve("broken"));
+        Files.write(classDir.toPath().resolve(broken), new byte[] {0, 1, 2});
+
+        File dirOutput = new File(temp.getRoot(), "dir.txt");
+        assertEquals(0, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--shard", other + "/3", "--output", dirOutput.getPath(),
+                classDir.getPath()}));
+        File jarOutput = new File(temp.getRoot(), "jar.txt");
+        assertEquals(0, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--shard", other + "/3", "--output", jarOutput.getPath(),
+                jar.getPath()}));
+        assertEquals(read(unsharded), read(dirOutput));
+        assertEquals(read(unsharded), read(jarOutput));
+    }
+
+    /**
+     * 分割数に1を指定した場合は分割しない場合と同じく扱われ、使用箇所を検出した場合は終了コードで通知されること。
+     */
+    @Test
+    public void testSingleShardIsNotSharded() throws IOException {
+        File unsharded = new File(temp.getRoot(), "all.txt");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--output", unsharded.getPath(), classDir.getPath()}));
+        File single = new File(temp.getRoot(), "single.txt");
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--shard", "0/1", "--output", single.getPath(), classDir.getPath()}));
+        assertEquals(read(unsharded), read(single));
+        assertSame(ShardSpec.ALL, ShardSpec.parse("0/1"));
+    }
+
+    /**
+     * 分割の指定が不正な場合、引数不正の終了コードとなること。
+     */
+    @Test
+    public void testInvalidShard() {
+        assertEquals(UnpublishedApiChecker.EXIT_USAGE, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--shard", "3/3", "--output", "out.txt", classDir.getPath()}));
+        assertEquals(UnpublishedApiChecker.EXIT_USAGE, UnpublishedApiChecker.run(new String[] {"unknown"}));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, byte[]> classEntries(Path root, String prefix) throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    entries.put(prefix + root.relativize(file).toString().replace(File.separatorChar, '/'),
+                            Files.readAllBytes(file));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void writeArchive(File file, boolean multiRelease, Map<String, byte[]> entries) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (multiRelease) {
+            manifest.getMainAttributes().put(new Attributes.Name("Multi-Release"), "true");
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file.toPath()), manifest)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new JarEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void copyTree(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path target = to.resolve(from.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(file, target);
+                }
+            }
+        }
+    }
+}
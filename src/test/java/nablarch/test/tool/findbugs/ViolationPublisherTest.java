@@ -0,0 +1,221 @@
+package nablarch.test.tool.findbugs;
+
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.config.UserPreferences;
+import edu.umd.cs.findbugs.test.AnalysisRunner;
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ViolationPublisher}のテスト。
+ */
+public class ViolationPublisherTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        ViolationStream.finish();
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * SpotBugsを使用しない解析で、要求に応じて使用箇所が1件ずつ渡され、最後に終了が通知されること。
+     */
+    @Test
+    public void testAnalyze() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        ViolationPublisher publisher = new ViolationPublisher(1);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        publisher.analyze(SyntheticCorpus.configDir(root).getPath(), SyntheticCorpus.apiDir(root).getPath(),
+                SyntheticCorpus.callerDir(root).getPath());
+
+        assertEquals(corpus.expectedViolations(), subscriber.events.size());
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        ViolationEvent event = subscriber.events.get(0);
+        assertTrue(event.getClassName().startsWith(SyntheticCorpus.CALLER_PACKAGE));
+        assertTrue(event.getApi().startsWith(SyntheticCorpus.API_PACKAGE));
+        assertEquals("CALL", event.getKind());
+    }
+
+    /**
+     * バッファが一杯の場合は、購読者が要求するまで解析が待機すること。
+     */
+    @Test
+    public void testBackPressure() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        ViolationPublisher publisher = new ViolationPublisher(2);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        Thread analysis = new Thread(() -> publisher.analyze(SyntheticCorpus.configDir(root).getPath(),
+                SyntheticCorpus.apiDir(root).getPath(), SyntheticCorpus.callerDir(root).getPath()));
+        analysis.start();
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (analysis.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, analysis.getState());
+        assertEquals(0, subscriber.events.size());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        analysis.join(10_000);
+
+        assertEquals(corpus.expectedViolations(), subscriber.events.size());
+        assertTrue(subscriber.completed);
+    }
+
+    /**
+     * SpotBugsの解析で検出した使用箇所が、SpotBugsのレポートに含まれずに渡されること。
+     */
+    @Test
+    public void testAttachToDetector() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        System.setProperty(CONFIG_FILE_PATH, SyntheticCorpus.configDir(root).getPath());
+        PublishedApisInfo.readConfigFiles();
+        ViolationPublisher publisher = new ViolationPublisher();
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        publisher.attachToDetector();
+
+        AnalysisRunner runner = new AnalysisRunner();
+        runner.addAuxClasspathEntry(SyntheticCorpus.apiDir(root).toPath());
+        int bugs = runner.run(engine -> {
+            UserPreferences preferences = engine.getUserPreferences();
+            preferences.enableAllDetectors(false);
+            preferences.enableDetector(DetectorFactoryCollection.instance()
+                    .getFactory(UsageOfUnpublishedMethodDetector.class.getSimpleName()), true);
+        }, SyntheticCorpus.callerDir(root).toPath()).getBugCollection().getCollection().size();
+
+        assertEquals(0, bugs);
+        assertEquals(corpus.expectedViolations(), subscriber.events.size());
+        assertTrue(subscriber.completed);
+    }
+
+    /**
+     * 購読者が例外を送出した場合は購読が取り消され、解析は継続して完了すること。
+     */
+    @Test
+    public void testThrowingSubscriberIsCancelled() throws Exception {
+        SyntheticCorpus corpus = new SyntheticCorpus(3, 6, 3, 2, 10);
+        File root = temp.newFolder("corpus");
+        corpus.generate(root);
+        ViolationPublisher publisher = new ViolationPublisher(1);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(ViolationEvent item) {
+                super.onNext(item);
+                throw new IllegalStateException("broken consumer");
+            }
+        };
+        publisher.subscribe(subscriber);
+
+        publisher.analyze(SyntheticCorpus.configDir(root).getPath(), SyntheticCorpus.apiDir(root).getPath(),
+                SyntheticCorpus.callerDir(root).getPath());
+
+        assertEquals(1, subscriber.events.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    /**
+     * 2つ目の購読者の登録と、0件の要求はエラーが通知されること。
+     */
+    @Test
+    public void testProtocolErrors() {
+        ViolationPublisher publisher = new ViolationPublisher();
+        RecordingSubscriber first = new RecordingSubscriber(0);
+        RecordingSubscriber second = new RecordingSubscriber(0);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+        assertNull(first.error);
+
+        first.subscription.request(0);
+        assertTrue(first.error instanceof IllegalArgumentException);
+
+        try {
+            new ViolationPublisher(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Buffer size must be positive. BufferSize=[0]", e.getMessage());
+        }
+    }
+
+    /**
+     * 使用箇所を記録する購読者。
+     */
+    private static class RecordingSubscriber implements ViolationFlow.Subscriber<ViolationEvent> {
+
+        private final long batch;
+
+        private final List<ViolationEvent> events = new ArrayList<>();
+
+        private volatile ViolationFlow.Subscription subscription;
+
+        private volatile boolean completed;
+
+        private volatile Throwable error;
+
+        /**
+         * @param batch 購読開始時と使用箇所を受け取る毎に要求する件数（0の場合は要求しない）
+         */
+        RecordingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(ViolationFlow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(ViolationEvent item) {
+            synchronized (events) {
+                events.add(item);
+            }
+            if (batch > 0 && batch < Long.MAX_VALUE) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
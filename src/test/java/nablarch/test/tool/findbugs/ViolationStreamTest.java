@@ -0,0 +1,117 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link ViolationStream}と、使用箇所の逐次出力のテスト。
+ */
+public class ViolationStreamTest {
+
+    private static final String CLASS_DIR = "target/test-classes/nablarch/test/tool/findbugs/data/methodcall";
+
+    private static final String CONFIG_DIR = "src/test/java/nablarch/test/tool/findbugs/data/methodcall/settings";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty("nablarch-findbugs-stream-output");
+        ViolationStream.finish();
+        // 以降のテストのため、クラスパスから読み込むリポジトリに戻す。
+        Repository.setRepository(SyntheticRepository.getInstance());
+    }
+
+    /**
+     * JSON Lines形式で1件1行に出力されること。
+     */
+    @Test
+    public void testJsonLines() {
+        StringWriter writer = new StringWriter();
+        try (ViolationSink sink = new JsonLinesViolationSink(writer)) {
+            sink.accept(new Violation("app.Caller", "run", "()V", 12, "app.Hidden.call(java.lang.String)", Violation.Kind.CALL));
+            sink.accept(new Violation("app.Caller", "run", "()V", -1, "app.HiddenException", Violation.Kind.THROWS));
+        }
+        assertEquals("{\"kind\":\"call\",\"class\":\"app.Caller\",\"method\":\"run\",\"signature\":\"()V\",\"line\":12,"
+                        + "\"api\":\"app.Hidden.call(java.lang.String)\"}\n"
+                        + "{\"kind\":\"throws\",\"class\":\"app.Caller\",\"method\":\"run\",\"signature\":\"()V\",\"line\":-1,"
+                        + "\"api\":\"app.HiddenException\"}\n",
+                writer.toString());
+    }
+
+    /**
+     * SARIF形式で出力されること。行番号が不明な場合はregionを出力しないこと。
+     */
+    @Test
+    public void testSarif() {
+        StringWriter writer = new StringWriter();
+        try (ViolationSink sink = new SarifViolationSink(writer)) {
+            sink.accept(new Violation("app.Caller$Inner", "run", "()V", 12, "app.Hidden.call()", Violation.Kind.CALL));
+            sink.accept(new Violation("app.Caller", "run", "()V", -1, "app.HiddenException", Violation.Kind.CATCH));
+        }
+        String sarif = writer.toString();
+        assertThat(sarif, startsWith("{\"version\":\"2.1.0\""));
+        assertThat(sarif, containsString("{\"ruleId\":\"UPU_UNPUBLISHED_API_USAGE\",\"level\":\"warning\","
+                + "\"message\":{\"text\":\"app.Hidden.call()\"},"
+                + "\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":\"app/Caller.java\"},"
+                + "\"region\":{\"startLine\":12}},"
+                + "\"logicalLocations\":[{\"fullyQualifiedName\":\"app.Caller$Inner.run\",\"kind\":\"function\"}]}],"
+                + "\"properties\":{\"kind\":\"call\",\"callerClass\":\"app.Caller$Inner\",\"callerMethod\":\"run\","
+                + "\"callerSignature\":\"()V\",\"api\":\"app.Hidden.call()\"}},\n"));
+        assertThat(sarif, containsString("{\"uri\":\"app/Caller.java\"}},"));
+        assertThat(sarif, endsWith("\n]}]}\n"));
+    }
+
+    /**
+     * システムプロパティが指定された場合のみ出力が有効となること。
+     */
+    @Test
+    public void testStartIfEnabled() {
+        ViolationStream.startIfEnabled();
+        assertNull(ViolationStream.active());
+
+        System.setProperty("nablarch-findbugs-stream-output", new File(temp.getRoot(), "out.sarif").getPath());
+        ViolationStream.startIfEnabled();
+        assertNotNull(ViolationStream.active());
+        assertEquals(SarifViolationSink.class, ViolationStream.active().getClass());
+    }
+
+    /**
+     * コマンドラインツールでJSON Lines形式を指定した場合、レポートファイルと同じ使用箇所が出力されること。
+     * 逐次出力では重複を除かないため、重複を除いた件数で比較する。
+     */
+    @Test
+    public void testStandaloneJsonLines() throws Exception {
+        File text = temp.newFile("report.txt");
+        File jsonl = temp.newFile("report.jsonl");
+        UnpublishedApiChecker.run(new String[] {"analyze", "--config", CONFIG_DIR, "--output", text.getPath(), CLASS_DIR});
+        assertEquals(UnpublishedApiChecker.EXIT_VIOLATIONS, UnpublishedApiChecker.run(new String[] {
+                "analyze", "--config", CONFIG_DIR, "--format", "jsonl", "--output", jsonl.getPath(), CLASS_DIR}));
+
+        List<String> expected = Files.readAllLines(text.toPath(), StandardCharsets.UTF_8);
+        List<String> actual = Files.readAllLines(jsonl.toPath(), StandardCharsets.UTF_8);
+        assertEquals(expected.size(), new HashSet<>(actual).size());
+        assertThat(String.join("\n", actual), containsString("\"kind\":\"catch\""));
+        assertThat(String.join("\n", actual), containsString("\"kind\":\"call\""));
+    }
+}
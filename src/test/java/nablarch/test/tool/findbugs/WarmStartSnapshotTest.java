@@ -0,0 +1,180 @@
+package nablarch.test.tool.findbugs;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.util.SyntheticRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link WarmStartSnapshot}のテスト。
+ */
+public class WarmStartSnapshotTest {
+
+    private static final String CONFIG_FILE_PATH = "nablarch-findbugs-config";
+
+    private static final String WARM_START = "nablarch-findbugs-warm-start";
+
+    private static final String WARM_START_CLASSPATH = "nablarch-findbugs-warm-start-classpath";
+
+    private static final String PACKAGE = "nablarch.test.tool.findbugs.data.publishedapi.settings.data.java";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File snapshotFile;
+
+    private File calleeClassDir;
+
+    @Before
+    public void setUp() throws Exception {
+        Repository.setRepository(SyntheticRepository.getInstance());
+        WarmStartSnapshot.clearApplicationClasses();
+        System.setProperty(CONFIG_FILE_PATH, "src/test/java/nablarch/test/tool/findbugs/data/publishedapi/settings/configread/deny");
+        snapshotFile = new File(temp.getRoot(), "warm-start.bin");
+        System.setProperty(WARM_START, snapshotFile.getPath());
+        calleeClassDir = temp.newFolder("callee");
+        System.setProperty(WARM_START_CLASSPATH, calleeClassDir.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(WARM_START);
+        System.clearProperty(WARM_START_CLASSPATH);
+        WarmStartSnapshot.clearApplicationClasses();
+        PublishedApisInfo.readConfigFiles();
+    }
+
+    /**
+     * 保存した判定結果が次回の読み込み時に復元され、最初の判定からキャッシュが使用されること。
+     */
+    @Test
+    public void testRestoreVerdicts() {
+        PublishedApisInfo.readConfigFiles();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V"));
+        PublishedApisInfo.saveWarmStartSnapshot();
+        assertTrue(snapshotFile.isFile());
+
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V"));
+        assertEquals(2, CheckerMetrics.getInstance().getCacheHitCount());
+        assertEquals(0, CheckerMetrics.getInstance().getCacheMissCount());
+    }
+
+    /**
+     * 読み込んだ判定結果のみで判定されたエントリが、未使用として報告されないこと。
+     */
+    @Test
+    public void testRestoreHitCounts() {
+        PublishedApisInfo.readConfigFiles();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V"));
+        List<String> unusedBeforeSave = unusedLocations();
+        PublishedApisInfo.saveWarmStartSnapshot();
+
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertFalse(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod2", "()V"));
+        assertEquals(0, CheckerMetrics.getInstance().getCacheMissCount());
+        assertEquals(unusedBeforeSave, unusedLocations());
+        assertFalse(unusedLocations().stream().anyMatch(location -> location.endsWith("deny.config:1")));
+    }
+
+    /**
+     * 保存した情報の読み込みより前に解析されたクラスの情報が、保存されないこと。
+     */
+    @Test
+    public void testApplicationClassMarkedBeforeLoadIsNotSaved() throws Exception {
+        String className = PACKAGE + ".TestClass";
+        System.clearProperty(WARM_START);
+        PublishedApisInfo.readConfigFiles();
+        WarmStartSnapshot.markApplicationClass(className);
+        System.setProperty(WARM_START, snapshotFile.getPath());
+        PublishedApisInfo.readConfigFiles();
+        ClassRepository.lookup(className);
+        assertTrue(PublishedApisInfo.isPermitted(className, "testMethod", "()V"));
+        PublishedApisInfo.saveWarmStartSnapshot();
+        assertTrue(snapshotFile.isFile());
+
+        ClassRepository.evict(className);
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+        assertNull(ClassRepository.cached(className));
+        assertTrue(PublishedApisInfo.isPermitted(className, "testMethod", "()V"));
+        assertEquals(0, CheckerMetrics.getInstance().getCacheHitCount());
+    }
+
+    private static List<String> unusedLocations() {
+        List<String> locations = new ArrayList<>();
+        for (AllowlistEntry entry : PublishedApisInfo.getUsageReport().getUnusedEntries()) {
+            locations.add(entry.getLocation());
+        }
+        return locations;
+    }
+
+    /**
+     * 被呼出クラスのクラスパスが異なる場合、保存した判定結果は使用されないこと。
+     */
+    @Test
+    public void testKeyMismatch() {
+        PublishedApisInfo.readConfigFiles();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        PublishedApisInfo.saveWarmStartSnapshot();
+
+        System.setProperty(WARM_START_CLASSPATH, "target/test-classes");
+        PublishedApisInfo.readConfigFiles();
+        CheckerMetrics.getInstance().reset();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        assertEquals(0, CheckerMetrics.getInstance().getCacheHitCount());
+    }
+
+    /**
+     * 被呼出クラスのクラスパスが不明な場合は、保存も読み込みも行われないこと。
+     */
+    @Test
+    public void testDisabledWithoutClassPath() {
+        System.clearProperty(WARM_START_CLASSPATH);
+        PublishedApisInfo.readConfigFiles();
+        assertTrue(PublishedApisInfo.isPermitted(PACKAGE + ".TestClass", "testMethod", "()V"));
+        PublishedApisInfo.saveWarmStartSnapshot();
+        assertFalse(snapshotFile.exists());
+    }
+
+    /**
+     * クラスパスのディレクトリ配下のクラスファイルが更新された場合、キーが変わること。
+     */
+    @Test
+    public void testDirectoryContentChangesKey() throws Exception {
+        File[] configFiles = new File(System.getProperty(CONFIG_FILE_PATH)).listFiles();
+        File classFile = new File(calleeClassDir, "pkg/Callee.class");
+        assertTrue(classFile.getParentFile().mkdirs());
+        Files.write(classFile.toPath(), new byte[] {1, 2, 3});
+        assertTrue(classFile.setLastModified(1_000_000_000_000L));
+        long before = WarmStartSnapshot.computeKey(configFiles, calleeClassDir.getPath());
+        assertEquals(before, WarmStartSnapshot.computeKey(configFiles, calleeClassDir.getPath()));
+
+        Files.write(classFile.toPath(), new byte[] {1, 2, 4});
+        assertTrue(classFile.setLastModified(1_000_000_001_000L));
+        assertNotEquals(before, WarmStartSnapshot.computeKey(configFiles, calleeClassDir.getPath()));
+
+        assertTrue(new File(calleeClassDir, "pkg/Added.class").createNewFile());
+        assertNotEquals(before, WarmStartSnapshot.computeKey(configFiles, calleeClassDir.getPath()));
+    }
+}